@@ -10,40 +10,57 @@ import org.example.repository.*;
 import org.example.service.*;
 import org.example.validation.*;
 
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class HelloApplication extends Application {
+    private ConnectionPool connectionPool;
+    private TaskExecutor taskExecutor;
+    private CommunityIndex communityIndex;
+    private EventBus eventBus;
+
     @Override
     public void start(Stage stage) throws Exception {
         String url = "jdbc:postgresql://localhost:5432/SocialNetwork";
         String user = "postgres";
         String password = "1234";
-        try (Connection conn = DriverManager.getConnection(url, user, password)) {
+        connectionPool = new ConnectionPool(url, user, password);
+        try (Connection conn = connectionPool.getConnection()) {
             System.out.println("Connected to the PostgresSQL server successfully.");
         } catch (SQLException e) {
             e.printStackTrace();
         }
 
-        UserRepository userRepository = new UserDataBaseRepository(url, user, password);
-        FriendshipRepository friendshipRepository = new FriendshipDataBaseRepository(url, user, password);
-        FriendshipRequestRepository friendshipRequestRepository = new FriendshipRequestDataBaseRepository(url, user, password);
-        FlockRepository flockRepository = new FlockDataBaseRepository(url, user, password);
-        EventRepository eventRepository = new EventDataBaseRepository(url, user, password);
-        MessageRepository messageRepository = new MessageDataBaseRepository(url, user, password);
+        UserRepository userRepository = new UserDataBaseRepository(connectionPool);
+        FriendshipRepository friendshipRepository = new FriendshipDataBaseRepository(connectionPool);
+        FriendshipRequestRepository friendshipRequestRepository = new FriendshipRequestDataBaseRepository(connectionPool);
+        FlockRepository flockRepository = new FlockDataBaseRepository(connectionPool);
+        EventRepository eventRepository = new EventDataBaseRepository(connectionPool);
+        MessageRepository messageRepository = new MessageDataBaseRepository(connectionPool);
+
+        IdAllocator userIdAllocator = new SequenceIdAllocator(connectionPool, "users");
+        IdAllocator friendshipIdAllocator = new SequenceIdAllocator(connectionPool, "friendships");
+        IdAllocator flockIdAllocator = new SequenceIdAllocator(connectionPool, "flocks");
+        IdAllocator eventIdAllocator = new SequenceIdAllocator(connectionPool, "events");
+        IdAllocator messageIdAllocator = new SequenceIdAllocator(connectionPool, "messages");
+
+        taskExecutor = new TaskExecutor();
+        eventBus = new EventBus();
+        communityIndex = new CommunityIndex(friendshipRepository, new GraphSnapshotStore(Path.of("data", "friendships.graph")));
+        FriendRecommendationService recommendationService = new FriendRecommendationService(communityIndex, userRepository, friendshipRequestRepository, taskExecutor);
 
         ValidatorContext<User> userValidator = new ValidatorContext<>(new UserValidationStrategy());
         ValidatorContext<Friendship> friendshipValidator = new ValidatorContext<>(new FriendshipValidationStrategy());
         ValidatorContext<Flock> flockValidator = new ValidatorContext<>(new FlockValidationStrategy());
         ValidatorContext<Event> eventValidator = new ValidatorContext<>(new EventValidationStrategy());
 
-        UserService userService = new UserService(userRepository, userValidator);
-        FriendshipService friendshipService = new FriendshipService(friendshipRepository, userRepository, friendshipValidator);
-        FriendshipRequestService friendshipRequestService = new FriendshipRequestService(friendshipRequestRepository, friendshipRepository, userRepository);
-        FlockService flockService = new FlockService(flockRepository, userRepository, flockValidator);
-        EventService eventService = new EventService(eventRepository, userRepository, eventValidator);
-        MessageService messageService = new MessageService(messageRepository);
+        UserService userService = new UserService(userRepository, userValidator, userIdAllocator, communityIndex);
+        FriendshipService friendshipService = new FriendshipService(friendshipRepository, userRepository, friendshipValidator, friendshipIdAllocator, communityIndex, recommendationService, taskExecutor);
+        FriendshipRequestService friendshipRequestService = new FriendshipRequestService(friendshipRequestRepository, friendshipRepository, userRepository, friendshipIdAllocator, communityIndex, recommendationService, eventBus, taskExecutor);
+        FlockService flockService = new FlockService(flockRepository, userRepository, flockValidator, flockIdAllocator);
+        EventService eventService = new EventService(eventRepository, userRepository, eventValidator, eventIdAllocator, taskExecutor, eventBus);
+        MessageService messageService = new MessageService(messageRepository, messageIdAllocator);
 
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/LoginWindow.fxml"));
         Scene scene = new Scene(loader.load(), 420, 640);
@@ -59,4 +76,21 @@ public class HelloApplication extends Application {
         stage.setScene(scene);
         stage.show();
     }
+
+    @Override
+    public void stop() {
+        if (taskExecutor != null) {
+            taskExecutor.close();
+        }
+        if (communityIndex != null) {
+            communityIndex.close();
+        }
+        if (eventBus != null) {
+            System.out.println("Event bus: " + eventBus.metrics());
+        }
+        if (connectionPool != null) {
+            System.out.println("Closing the connection pool: " + connectionPool.getMetrics());
+            connectionPool.close();
+        }
+    }
 }
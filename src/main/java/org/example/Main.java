@@ -2,15 +2,19 @@ package org.example;
 
 import org.example.domain.*;
 import org.example.repository.*;
+import org.example.service.CommunityIndex;
+import org.example.service.EventBus;
 import org.example.service.EventService;
 import org.example.service.FlockService;
+import org.example.service.FriendRecommendationService;
 import org.example.service.FriendshipService;
+import org.example.service.TaskExecutor;
 import org.example.service.UserService;
 import org.example.ui.Console;
 import org.example.validation.*;
 
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class Main {
@@ -19,29 +23,47 @@ public class Main {
         String user = "postgres";
         String password = "1234";
 
-        try (Connection conn = DriverManager.getConnection(url, user, password)) {
+        ConnectionPool connectionPool = new ConnectionPool(url, user, password);
+        try (Connection conn = connectionPool.getConnection()) {
             System.out.println("Connected to the PostgresSQL server successfully.");
         } catch (SQLException e) {
             e.printStackTrace();
         }
 
-        UserRepository userRepository = new UserDataBaseRepository(url, user, password);
-        FriendshipRepository friendshipRepository = new FriendshipDataBaseRepository(url, user, password);
-        FlockRepository flockRepository = new FlockDataBaseRepository(url, user, password);
-        EventRepository eventRepository = new EventDataBaseRepository(url, user, password);
+        UserRepository userRepository = new UserDataBaseRepository(connectionPool);
+        FriendshipRepository friendshipRepository = new FriendshipDataBaseRepository(connectionPool);
+        FriendshipRequestRepository friendshipRequestRepository = new FriendshipRequestDataBaseRepository(connectionPool);
+        FlockRepository flockRepository = new FlockDataBaseRepository(connectionPool);
+        EventRepository eventRepository = new EventDataBaseRepository(connectionPool);
+
+        IdAllocator userIdAllocator = new SequenceIdAllocator(connectionPool, "users");
+        IdAllocator friendshipIdAllocator = new SequenceIdAllocator(connectionPool, "friendships");
+        IdAllocator flockIdAllocator = new SequenceIdAllocator(connectionPool, "flocks");
+        IdAllocator eventIdAllocator = new SequenceIdAllocator(connectionPool, "events");
+
+        TaskExecutor taskExecutor = new TaskExecutor();
+        CommunityIndex communityIndex = new CommunityIndex(friendshipRepository, new GraphSnapshotStore(Path.of("data", "friendships.graph")));
+        FriendRecommendationService recommendationService = new FriendRecommendationService(communityIndex, userRepository, friendshipRequestRepository, taskExecutor);
 
         ValidatorContext<User> userValidator = new ValidatorContext<>(new UserValidationStrategy());
         ValidatorContext<Friendship> friendshipValidator = new ValidatorContext<>(new FriendshipValidationStrategy());
         ValidatorContext<Flock> flockValidator = new ValidatorContext<>(new FlockValidationStrategy());
         ValidatorContext<Event> eventValidator = new ValidatorContext<>(new EventValidationStrategy());
 
-        UserService userService = new UserService(userRepository, userValidator);
-        FriendshipService friendshipService = new FriendshipService(friendshipRepository, userRepository, friendshipValidator);
-        FlockService flockService = new FlockService(flockRepository, userRepository, flockValidator);
-        EventService eventService = new EventService(eventRepository, userRepository, eventValidator);
+        UserService userService = new UserService(userRepository, userValidator, userIdAllocator, communityIndex);
+        FriendshipService friendshipService = new FriendshipService(friendshipRepository, userRepository, friendshipValidator, friendshipIdAllocator, communityIndex, recommendationService, taskExecutor);
+        FlockService flockService = new FlockService(flockRepository, userRepository, flockValidator, flockIdAllocator);
+        EventBus eventBus = new EventBus();
+        EventService eventService = new EventService(eventRepository, userRepository, eventValidator, eventIdAllocator, taskExecutor, eventBus);
 
         Console console = Console.getInstance(userService, friendshipService, flockService, eventService);
 
         console.run();
+
+        taskExecutor.close();
+        communityIndex.close();
+        System.out.println("Event bus: " + eventBus.metrics());
+        System.out.println("Closing the connection pool: " + connectionPool.getMetrics());
+        connectionPool.close();
     }
 }
\ No newline at end of file
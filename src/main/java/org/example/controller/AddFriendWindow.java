@@ -1,5 +1,7 @@
 package org.example.controller;
 
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -8,20 +10,29 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
-import org.example.domain.Observer;
+import org.example.domain.FriendRequestUpdate;
+import org.example.domain.Page;
+import org.example.domain.Recommendation;
+import org.example.domain.Status;
 import org.example.domain.User;
 import org.example.service.*;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
-public class AddFriendWindow implements Observer {
+public class AddFriendWindow {
 
     @FXML
     private TableView<User> usersTable;
@@ -29,6 +40,12 @@ public class AddFriendWindow implements Observer {
     @FXML
     private TableColumn<User, String> usernameColumn;
 
+    @FXML
+    private TableColumn<User, Integer> mutualFriendsColumn;
+
+    @FXML
+    private TextField searchField;
+
     @FXML
     private Button notificationButton;
 
@@ -45,13 +62,21 @@ public class AddFriendWindow implements Observer {
     private EventService eventService;
 
     private User currentUser;
+    private EventBus.Subscription friendRequestSubscription;
     private ObservableList<User> availableUsers;
+    private final Map<Long, Integer> mutualFriends = new HashMap<>();
     private int currentPage = 1;
     private final int pageSize = 10;
+    private boolean browsing;
+    private String usernamePrefix = "";
+    private final Deque<Long> pageCursors = new ArrayDeque<>();
+    private Long nextCursor;
+    private CompletableFuture<FriendRecommendationService.RecommendationPage> pendingRecommendations;
 
     @FXML
     public void initialize() {
         usernameColumn.setCellValueFactory(new PropertyValueFactory<>("username"));
+        mutualFriendsColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(mutualFriends.get(cell.getValue().getId())));
     }
 
     public void setServices(UserService userService, FriendshipService friendshipService, FriendshipRequestService friendshipRequestService, MessageService messageService, EventService eventService, User currentUser) {
@@ -61,37 +86,106 @@ public class AddFriendWindow implements Observer {
         this.messageService = messageService;
         this.eventService = eventService;
         this.currentUser = currentUser;
-        this.friendshipRequestService.addObserver(this);
+        friendRequestSubscription = friendshipRequestService.subscribeToFriendRequests(currentUser.getId(), Platform::runLater, this::onFriendRequestUpdates);
+        browsing = false;
         loadUsers();
         updateNotificationIcon();
     }
 
     private void loadUsers() {
-        List<User> allUsers = StreamSupport.stream(userService.findAll().spliterator(), false)
-                .collect(Collectors.toList());
-
-        List<User> friends = friendshipService.findFriends(currentUser.getId(), 1, Integer.MAX_VALUE);
+        if (browsing) {
+            loadNonFriends();
+        } else {
+            loadRecommendations();
+        }
+    }
 
-        List<User> friendRequests = friendshipRequestService.getFriendRequests(currentUser.getId());
+    /**
+     * Shows the current page of "people you may know", ranked by the number of mutual friends.
+     * The ranking is computed in the background; the page is shown once it is ready, unless the user
+     * moved to another page or started a search in the meantime. Users without suggestions get the
+     * list of every user they can add instead.
+     */
+    private void loadRecommendations() {
+        int offset = (currentPage - 1) * pageSize;
+        cancelPendingRecommendations();
+        prevPageButton.setDisable(true);
+        nextPageButton.setDisable(true);
+        pendingRecommendations = friendshipService.getFriendRecommendationsAsync(currentUser.getId(), offset, pageSize);
+        pendingRecommendations
+                .thenAccept(page -> Platform.runLater(() -> showRecommendations(page, offset)))
+                .exceptionally(e -> {
+                    if (!(e instanceof CancellationException) && !(e.getCause() instanceof CancellationException)) {
+                        e.printStackTrace();
+                    }
+                    return null;
+                });
+    }
 
-        List<User> filteredUsers = allUsers.stream()
-                .filter(user -> !friends.contains(user) && !friendRequests.contains(user) && !user.equals(currentUser))
-                .collect(Collectors.toList());
+    private void showRecommendations(FriendRecommendationService.RecommendationPage page, int offset) {
+        if (browsing || offset != (currentPage - 1) * pageSize) {
+            return;
+        }
+        if (page.total() == 0 && offset == 0) {
+            browsing = true;
+            loadNonFriends();
+            return;
+        }
 
-        int fromIndex = (currentPage - 1) * pageSize;
-        int toIndex = Math.min(fromIndex + pageSize, filteredUsers.size());
-        List<User> paginatedUsers = filteredUsers.subList(fromIndex, toIndex);
+        mutualFriends.clear();
+        List<User> users = new ArrayList<>();
+        for (Recommendation recommendation : page.recommendations()) {
+            users.add(recommendation.user());
+            mutualFriends.put(recommendation.user().getId(), recommendation.mutualFriends());
+        }
 
-        availableUsers = FXCollections.observableArrayList(paginatedUsers);
+        availableUsers = FXCollections.observableArrayList(users);
         usersTable.setItems(availableUsers);
 
         prevPageButton.setDisable(currentPage == 1);
-        nextPageButton.setDisable(toIndex >= filteredUsers.size());
+        nextPageButton.setDisable(offset + pageSize >= page.total());
+    }
+
+    private void cancelPendingRecommendations() {
+        if (pendingRecommendations != null) {
+            pendingRecommendations.cancel(true);
+            pendingRecommendations = null;
+        }
+    }
+
+    /**
+     * Shows the current page of all the users that can still be added, optionally filtered by username.
+     * Only the users of the page are read from the database, starting after the cursor on top of the stack.
+     */
+    private void loadNonFriends() {
+        Page<User> page = userService.getNonFriendsPageAfter(currentUser.getId(), usernamePrefix, pageCursors.peek(), pageSize);
+        nextCursor = page.nextCursor();
+
+        mutualFriends.clear();
+        availableUsers = FXCollections.observableArrayList(page.items());
+        usersTable.setItems(availableUsers);
+
+        prevPageButton.setDisable(pageCursors.isEmpty());
+        nextPageButton.setDisable(nextCursor == null);
+    }
+
+    @FXML
+    private void handleSearch() {
+        usernamePrefix = searchField.getText() == null ? "" : searchField.getText().trim();
+        browsing = !usernamePrefix.isEmpty();
+        currentPage = 1;
+        pageCursors.clear();
+        loadUsers();
     }
 
     @FXML
     private void handlePrevPage() {
-        if (currentPage > 1) {
+        if (browsing) {
+            if (!pageCursors.isEmpty()) {
+                pageCursors.pop();
+                loadUsers();
+            }
+        } else if (currentPage > 1) {
             currentPage--;
             loadUsers();
         }
@@ -99,8 +193,15 @@ public class AddFriendWindow implements Observer {
 
     @FXML
     private void handleNextPage() {
-        currentPage++;
-        loadUsers();
+        if (browsing) {
+            if (nextCursor != null) {
+                pageCursors.push(nextCursor);
+                loadUsers();
+            }
+        } else {
+            currentPage++;
+            loadUsers();
+        }
     }
 
     @FXML
@@ -162,14 +263,36 @@ public class AddFriendWindow implements Observer {
     }
 
     private void closeWindow(Stage stage) {
-        friendshipRequestService.removeObserver(this);
+        friendRequestSubscription.cancel();
+        cancelPendingRecommendations();
         stage.close();
     }
 
-    public void updateNotificationIcon() {
+    /**
+     * Updates the notification icon after a batch of friend request changes. A new request to the
+     * current user turns the dot on directly; any other change needs a lookup, since other requests
+     * may still be pending.
+     */
+    private void onFriendRequestUpdates(List<FriendRequestUpdate> updates) {
+        boolean received = updates.stream()
+                .anyMatch(update -> update.recipientId().equals(currentUser.getId()) && update.status() == Status.PENDING);
+        if (received) {
+            showNotificationIcon(true);
+        } else {
+            updateNotificationIcon();
+        }
+    }
 
-        boolean hasNotifications = friendshipRequestService.hasPendingRequests(currentUser.getId());
+    public void updateNotificationIcon() {
+        friendshipRequestService.hasPendingRequestsAsync(currentUser.getId())
+                .thenAccept(hasNotifications -> Platform.runLater(() -> showNotificationIcon(hasNotifications)))
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    return null;
+                });
+    }
 
+    private void showNotificationIcon(boolean hasNotifications) {
         ImageView iv = (ImageView) notificationButton.getGraphic();
 
         if (hasNotifications) {
@@ -178,11 +301,4 @@ public class AddFriendWindow implements Observer {
             iv.setImage(new Image(getClass().getResourceAsStream("/images/notificationIcon.png")));
         }
     }
-
-    @Override
-    public void update(String message) {
-        if (message.contains(currentUser.getId().toString())) {
-            updateNotificationIcon();
-        }
-    }
 }
\ No newline at end of file
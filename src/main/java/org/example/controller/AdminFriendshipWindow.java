@@ -1,5 +1,6 @@
 package org.example.controller;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.TableColumn;
@@ -105,13 +106,30 @@ public class AdminFriendshipWindow implements Observer {
         alert.showAndWait();
     }
 
+    /**
+     * Shows the most sociable community once it is computed in the background, so a large graph does not
+     * freeze the window.
+     */
     public void showMostSociableCommunity() {
-        List<Long> community = friendshipService.getMostSociableCommunity();
-
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Most Sociable Community");
-        alert.setHeaderText("The users in the most sociable community are:");
-        alert.setContentText(community.toString());
-        alert.showAndWait();
+        friendshipService.getMostSociableCommunityAsync()
+                .whenComplete((community, e) -> Platform.runLater(() -> {
+                    if (e != null) {
+                        e.printStackTrace();
+                        Alert alert = new Alert(Alert.AlertType.WARNING);
+                        alert.setTitle("Warning");
+                        alert.setHeaderText("Most Sociable Community");
+                        alert.setContentText("The most sociable community could not be computed");
+                        alert.showAndWait();
+                        return;
+                    }
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Most Sociable Community");
+                    alert.setHeaderText("The users in the most sociable community are:");
+                    int error = friendshipService.getMostSociableCommunityError();
+                    alert.setContentText(community.toString() + (error > 0
+                            ? "\n\nDiameters of very large communities were estimated to within " + error + " friendships."
+                            : ""));
+                    alert.showAndWait();
+                }));
     }
 }
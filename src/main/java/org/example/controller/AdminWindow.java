@@ -16,6 +16,7 @@ import org.example.service.UserService;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 public class AdminWindow implements Observer {
@@ -42,7 +43,7 @@ public class AdminWindow implements Observer {
 
     private String filterType = null;
 
-    private List<UserRow> originalRows;
+    private final List<Long> pageCursors = new ArrayList<>();
 
     public Label labelPage;
 
@@ -119,11 +120,6 @@ public class AdminWindow implements Observer {
 
     public void setUserService(UserService userService) {
         this.userService = userService;
-        List<User> allUsers = userService.getUsersPage(1L, userService.getUsersCount());
-        originalRows = allUsers.stream()
-                .filter(u -> u != null)
-                .map(this::mapToUserRow)
-                .toList();
         initializePagination();
         loadPage(1L);}
 
@@ -145,7 +141,7 @@ public class AdminWindow implements Observer {
         String selectedType = userTypeComboBox.getValue();
 
         if (selectedType == null || selectedType.isEmpty()) {
-            userTable.getItems().setAll(originalRows);
+            loadUsers();
             return;
         }
 
@@ -205,6 +201,8 @@ public class AdminWindow implements Observer {
     }
 
     public void initializePagination() {
+        pageCursors.clear();
+        pageCursors.add(null);
         if (isFiltered && filterType != null) {
             long count = userService.getDucksCountByType(filterType);
             this.totalPages = (long) Math.ceil(count / (double) pageSize);
@@ -213,43 +211,30 @@ public class AdminWindow implements Observer {
         }
     }
 
+    /**
+     * Loads a page using keyset pagination. The cursor of every visited page is remembered,
+     * so a page can only be reached from the first page or from the page before it.
+     *
+     * @param pageNumber the number of the page to load, starting from 1
+     */
     public void loadPage(Long pageNumber) {
-        if (pageNumber < 1 || pageNumber > totalPages) {
+        if (pageNumber < 1 || pageNumber > totalPages || pageNumber > pageCursors.size()) {
             return;
         }
         currentPage = pageNumber;
         labelPage.setText(String.valueOf(currentPage));
-        List<User> users;
+        Long afterId = pageCursors.get((int) (pageNumber - 1));
+        Page<User> page;
         if (isFiltered && filterType != null) {
-            users = userService.getDucksPageByType(filterType, pageNumber, pageSize);
+            page = userService.getDucksPageByTypeAfter(filterType, afterId, pageSize.intValue());
         } else {
-            users = userService.getUsersPage(pageNumber, pageSize);
+            page = userService.getUsersPageAfter(afterId, pageSize.intValue());
         }
-        userTable.getItems().setAll(users.stream().map(u -> {
-            UserRow r = new UserRow();
-            r.setId(u.getId());
-            r.setUserType(u.getUserType());
-            r.setUsername(u.getUsername());
-            r.setEmail(u.getEmail());
-            r.setPassword(u.getPassword());
-
-            if (u.getUserType().equals("Person")) {
-                Person p = (Person) u;
-                r.setSurname(p.getSurname());
-                r.setName(p.getName());
-                r.setBirthDate(p.getBirthdate());
-                r.setOccupation(p.getOccupation());
-            }
-
-            if (u.getUserType().equals("Duck")) {
-                Duck d = (Duck) u;
-                r.setDuckType(d.getDuckType());
-                r.setSpeed(d.getSpeed());
-                r.setResistance(d.getResistance());
-            }
-
-            return r;
-        }).toList());
+        pageCursors.subList(pageNumber.intValue(), pageCursors.size()).clear();
+        if (page.hasNext()) {
+            pageCursors.add(page.nextCursor());
+        }
+        userTable.getItems().setAll(page.items().stream().map(this::mapToUserRow).toList());
     }
 
     public void nextPage() {
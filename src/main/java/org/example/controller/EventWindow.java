@@ -1,5 +1,6 @@
 package org.example.controller;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -11,17 +12,18 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
 import org.example.domain.Event;
-import org.example.domain.Observer;
 import org.example.domain.User;
 import org.example.service.*;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
-public class EventWindow implements Observer {
+public class EventWindow {
 
     boolean hasNotifications;
 
@@ -53,6 +55,9 @@ public class EventWindow implements Observer {
     private ObservableList<Event> events;
     private int currentPage = 1;
     private final int pageSize = 10;
+    private List<CompletableFuture<StringBuilder>> pendingNotifications;
+    private Set<Long> subscribedEventIds = new HashSet<>();
+    private EventBus.Subscription eventStartSubscription;
 
     @FXML
     public void initialize() {
@@ -67,7 +72,10 @@ public class EventWindow implements Observer {
         this.messageService = messageService;
         this.eventService = eventService;
         this.currentUser = currentUser;
-        eventService.addObserver(this);
+        eventStartSubscription = eventService.subscribeToEventStarts(currentUser.getId(), Platform::runLater, started -> {
+            hasNotifications = true;
+            updateNotificationIcon();
+        });
         loadEvents();
         updateNotificationIcon();
     }
@@ -76,6 +84,8 @@ public class EventWindow implements Observer {
         List<Event> allEvents = StreamSupport.stream(eventService.findAll().spliterator(), false)
                 .collect(Collectors.toList());
 
+        subscribedEventIds = eventService.findSubscribedEventIds(currentUser);
+
         int fromIndex = (currentPage - 1) * pageSize;
         int toIndex = Math.min(fromIndex + pageSize, allEvents.size());
         List<Event> paginatedEvents = allEvents.subList(fromIndex, toIndex);
@@ -88,7 +98,7 @@ public class EventWindow implements Observer {
                 super.updateItem(event, empty);
                 if (event == null || empty) {
                     setStyle("");
-                } else if (eventService.findEvents(currentUser).contains(event)) {
+                } else if (subscribedEventIds.contains(event.getId())) {
                     setStyle("-fx-background-color: #c8f7c5;");
                 } else {
                     setStyle("");
@@ -120,7 +130,7 @@ public class EventWindow implements Observer {
         if (selectedEvent != null) {
             try {
                 eventService.addSpectatorToEvent(selectedEvent.getId().toString(), currentUser.getId().toString());
-                selectedEvent.addObserver(this);
+                subscribedEventIds.add(selectedEvent.getId());
                 hasNotifications = false;
                 eventsTable.refresh();
             } catch (Exception e) {
@@ -135,7 +145,7 @@ public class EventWindow implements Observer {
         if (selectedEvent != null) {
             try {
                 eventService.removeSpectatorFromEvent(selectedEvent.getId().toString(), currentUser.getId().toString());
-                selectedEvent.removeObserver(this);
+                subscribedEventIds.remove(selectedEvent.getId());
                 hasNotifications = false;
                 eventsTable.refresh();
             } catch (Exception e) {
@@ -150,6 +160,11 @@ public class EventWindow implements Observer {
         closeWindow((Stage) eventsTable.getScene().getWindow());
     }
 
+    /**
+     * Shows the results of the ended events the user is subscribed to. The results are fetched in the
+     * background by {@link EventService#getResultsAsync(String)} and shown on the JavaFX thread once all
+     * of them are ready, so the window stays responsive; a new click replaces a pending request.
+     */
     @FXML
     private void handleNotifications() {
         List<Event> subscribedEvents = eventService.findEvents(currentUser);
@@ -159,39 +174,45 @@ public class EventWindow implements Observer {
 
         if (endedEvents.isEmpty()) {
             return;
-        } else {
-            ExecutorService pool = Executors.newFixedThreadPool(4);
-            List<CompletableFuture<String>> futures = endedEvents.stream()
-                    .map(e -> CompletableFuture.supplyAsync(() -> {
-                        return "Event: " + e.getName() + "\n" +
-                                "Type: " + e.getType() + "\n" +
-                                eventService.getResults(e.getId().toString()) +
-                                "-----------------\n";
-                    }, pool))
-                    .toList();
-
+        }
+        cancelPendingNotifications();
+        List<CompletableFuture<StringBuilder>> results = endedEvents.stream()
+                .map(e -> eventService.getResultsAsync(e.getId().toString()))
+                .toList();
+        pendingNotifications = results;
 
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).whenComplete((ignored, failure) -> {
             StringBuilder content = new StringBuilder();
-            for (CompletableFuture<String> f : futures) {
+            for (int i = 0; i < results.size(); i++) {
+                Event e = endedEvents.get(i);
                 try {
-                    content.append(f.get());
-                } catch (Exception ex) {
+                    StringBuilder eventResults = results.get(i).join();
+                    content.append("Event: ").append(e.getName()).append("\n")
+                            .append("Type: ").append(e.getType()).append("\n")
+                            .append(eventResults)
+                            .append("-----------------\n");
+                } catch (CancellationException ex) {
+                    return;
+                } catch (CompletionException ex) {
                     ex.printStackTrace();
                 }
             }
-
-            pool.shutdown();
-            try {
-                if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
-                    pool.shutdownNow();
+            Platform.runLater(() -> {
+                if (pendingNotifications != results) {
+                    return;
                 }
-            } catch (InterruptedException ex) {
-                pool.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-            hasNotifications = false;
-            updateNotificationIcon();
-            showInformationAlert("Notifications", "You have notifications for these events:", content.toString());
+                pendingNotifications = null;
+                hasNotifications = false;
+                updateNotificationIcon();
+                showInformationAlert("Notifications", "You have notifications for these events:", content.toString());
+            });
+        });
+    }
+
+    private void cancelPendingNotifications() {
+        if (pendingNotifications != null) {
+            pendingNotifications.forEach(result -> result.cancel(true));
+            pendingNotifications = null;
         }
     }
 
@@ -223,7 +244,8 @@ public class EventWindow implements Observer {
     }
 
     private void closeWindow(Stage stage) {
-        friendshipRequestService.removeObserver(this);
+        cancelPendingNotifications();
+        eventStartSubscription.cancel();
         stage.close();
     }
 
@@ -236,12 +258,6 @@ public class EventWindow implements Observer {
         }
     }
 
-    @Override
-    public void update(String message) {
-        hasNotifications = true;
-        updateNotificationIcon();
-    }
-
     public User getCurrentUser() {
         return currentUser;
     }
@@ -1,5 +1,6 @@
 package org.example.controller;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -13,7 +14,9 @@ import org.example.domain.User;
 import org.example.service.*;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class FriendRequestWindow {
@@ -29,6 +32,9 @@ public class FriendRequestWindow {
     @FXML
     private TableColumn<User, String> lastNameColumn;
 
+    @FXML
+    private TableColumn<User, Integer> mutualFriendsColumn;
+
     private UserService userService;
     private FriendshipService friendshipService;
     private FriendshipRequestService friendshipRequestService;
@@ -37,10 +43,12 @@ public class FriendRequestWindow {
 
     private User currentUser;
     private ObservableList<User> friendRequests;
+    private final Map<Long, Integer> mutualFriends = new HashMap<>();
 
     @FXML
     public void initialize() {
         usernameColumn.setCellValueFactory(new PropertyValueFactory<>("username"));
+        mutualFriendsColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(mutualFriends.get(cell.getValue().getId())));
     }
 
     public void setServices(UserService userService, FriendshipService friendshipService, FriendshipRequestService friendshipRequestService, MessageService messageService, EventService eventService, User currentUser) {
@@ -58,6 +66,9 @@ public class FriendRequestWindow {
         requests = requests.stream()
                 .filter(user -> !user.equals(currentUser))
                 .collect(Collectors.toList());
+        mutualFriends.clear();
+        mutualFriends.putAll(friendshipService.mutualFriendCounts(currentUser.getId(),
+                requests.stream().map(User::getId).toList()));
         friendRequests = FXCollections.observableArrayList(requests);
         friendRequestsTable.setItems(friendRequests);
     }
@@ -13,11 +13,13 @@ import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import org.example.domain.Observer;
+import org.example.domain.Page;
 import org.example.domain.User;
 import org.example.service.*;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 public class MessagesWindow implements Observer {
     private UserService userService;
@@ -28,7 +30,8 @@ public class MessagesWindow implements Observer {
 
     private User currentUser;
     private ObservableList<User> friendsList = FXCollections.observableArrayList();
-    private int currentPage = 1;
+    private final Deque<Long> pageCursors = new ArrayDeque<>();
+    private Long nextCursor;
     private final int pageSize = 5;
 
     @FXML
@@ -61,26 +64,29 @@ public class MessagesWindow implements Observer {
     public void setEventService(EventService eventService) { this.eventService = eventService; }
 
     private void loadFriends() {
-        List<User> friends = friendshipService.findFriends(currentUser.getId(), currentPage, pageSize);
-        friendsList.setAll(friends);
+        Page<User> page = friendshipService.findFriendsAfter(currentUser.getId(), pageCursors.peek(), pageSize);
+        nextCursor = page.nextCursor();
+        friendsList.setAll(page.items());
         friendsTable.setItems(friendsList);
 
-        prevPageButton.setDisable(currentPage == 1);
-        nextPageButton.setDisable(friends.size() < pageSize);
+        prevPageButton.setDisable(pageCursors.isEmpty());
+        nextPageButton.setDisable(!page.hasNext());
     }
 
     @FXML
     private void handlePrevPage() {
-        if (currentPage > 1) {
-            currentPage--;
+        if (!pageCursors.isEmpty()) {
+            pageCursors.pop();
             loadFriends();
         }
     }
 
     @FXML
     private void handleNextPage() {
-        currentPage++;
-        loadFriends();
+        if (nextCursor != null) {
+            pageCursors.push(nextCursor);
+            loadFriends();
+        }
     }
 
     @FXML
@@ -1,10 +1,12 @@
 package org.example.controller;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
@@ -15,6 +17,7 @@ import org.example.service.*;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class ProfileWindow {
 
@@ -30,6 +33,12 @@ public class ProfileWindow {
     @FXML
     public Label occupation;
 
+    @FXML
+    private TextField connectionField;
+
+    @FXML
+    private Label connection;
+
     @FXML
     private Button eventButton;
 
@@ -66,6 +75,39 @@ public class ProfileWindow {
 
     }
 
+    /**
+     * Shows how the profile owner is connected to the user with the typed username.
+     * The search runs in the background and its result is shown when it is ready.
+     */
+    @FXML
+    private void handleConnection() {
+        User other = userService.findByUsername(connectionField.getText().trim());
+        if (other == null) {
+            connection.setText("No user with this username");
+            return;
+        }
+        connection.setText("Searching...");
+        friendshipService.findConnectionPathAsync(currentUser.getId(), other.getId())
+                .whenComplete((path, e) -> Platform.runLater(() -> {
+                    if (e != null) {
+                        e.printStackTrace();
+                        connection.setText("Could not search for a connection");
+                    } else {
+                        showConnectionPath(path);
+                    }
+                }));
+    }
+
+    private void showConnectionPath(List<User> path) {
+        if (path.isEmpty()) {
+            connection.setText("Not connected within " + friendshipService.getMaxConnectionHops() + " friendships");
+            return;
+        }
+        connection.setText((path.size() - 1) + " degrees: " + path.stream()
+                .map(user -> "@" + user.getUsername())
+                .collect(Collectors.joining(" > ")));
+    }
+
     @FXML
     private void handleFriends() {
         openAddFriendWindow(currentUser);
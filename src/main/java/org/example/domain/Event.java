@@ -1,14 +1,14 @@
 package org.example.domain;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.stream.Collectors;
 
-public class Event extends Entity<Long> implements Subject {
+public class Event extends Entity<Long> {
 
     private String type;
     private String name;
     private boolean status = false;
-    private List<Observer> subscribers = new ArrayList<>();
+    private final IdRegistry<Observer> subscribers = new IdRegistry<>(); // subscribed users, by id
 
     public Event(Long id, String type, String name) {
         super(id);
@@ -24,29 +24,40 @@ public class Event extends Entity<Long> implements Subject {
     public void setName(String name) { this.name = name; }
     public void setStatus(boolean status) { this.status = status; }
 
-    // Observer pattern
-    @Override
+    // Subscribers; they are notified through the EventBus when the event starts
     public void addObserver(Observer observer) {
-        if (!subscribers.contains(observer)) {
-            this.subscribers.add(observer);
-        }
+        subscribers.add(observer);
     }
 
     public void removeObserver(Observer observer) {
-        this.subscribers.remove(observer);
+        subscribers.remove(observer);
     }
 
-    public void startEvent() {
-        notifyObservers("Event \"" + name + "\" has started!");
+    /**
+     * @param userId the id of a user
+     * @return true if the user is subscribed to the event
+     */
+    public boolean hasSubscriber(long userId) {
+        return subscribers.containsId(userId);
     }
 
-    public void notifyObservers(String message) {
-        for (Observer observer : subscribers) {
-            observer.update(message);
-        }
+    /**
+     * Unsubscribes a user from the event.
+     *
+     * @param userId the id of the user
+     * @return true if the user was subscribed
+     */
+    public boolean removeSubscriber(long userId) {
+        return subscribers.removeId(userId);
     }
 
-    public List<Observer> getSubscribers() {
+    /**
+     * Returns the users subscribed to the event, in the order they subscribed. Membership checks and
+     * removals on the returned collection take constant time; changes are applied to the event.
+     *
+     * @return the subscribed users
+     */
+    public Collection<Observer> getSubscribers() {
         return subscribers;
     }
 
@@ -58,12 +69,9 @@ public class Event extends Entity<Long> implements Subject {
         sb.append(", eventType='").append(type).append('\'');
         sb.append(", eventName='").append(name).append('\'');
         sb.append(", subscribers=[");
-        for (int i = 0; i < subscribers.size(); i++) {
-            sb.append(((User) subscribers.get(i)).getId());
-            if (i < subscribers.size() - 1) {
-                sb.append(", ");
-            }
-        }
+        sb.append(subscribers.stream()
+                .map(subscriber -> String.valueOf(((User) subscriber).getId()))
+                .collect(Collectors.joining(", ")));
         sb.append("]}");
         return sb.toString();
     }
@@ -0,0 +1,10 @@
+package org.example.domain;
+
+/**
+ * Notification published when an event a user is subscribed to starts.
+ *
+ * @param eventId   the id of the event
+ * @param eventName the name of the event
+ */
+public record EventStarted(Long eventId, String eventName) {
+}
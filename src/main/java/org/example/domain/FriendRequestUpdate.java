@@ -0,0 +1,11 @@
+package org.example.domain;
+
+/**
+ * Notification published when a friend request is sent, accepted or denied.
+ *
+ * @param senderId    the id of the user who sent the request
+ * @param recipientId the id of the user who received the request
+ * @param status      the status of the request after the change
+ */
+public record FriendRequestUpdate(Long senderId, Long recipientId, Status status) {
+}
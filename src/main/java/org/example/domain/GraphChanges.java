@@ -0,0 +1,95 @@
+package org.example.domain;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Friendship changes not yet applied to a {@link SocialGraph}: added friendships, removed friendships
+ * and removed users, in the order they happened. Only the last change of every friendship is kept,
+ * and removing a user drops the pending changes of their friendships, so the changes can be applied
+ * to a graph in a single pass, whatever their number.
+ */
+public final class GraphChanges {
+    private final Map<Edge, Boolean> edges = new HashMap<>();
+    private final Set<Long> removedUsers = new HashSet<>();
+
+    /**
+     * Records that two users became friends.
+     */
+    public void friendshipAdded(long firstUserId, long secondUserId) {
+        if (firstUserId != secondUserId) {
+            edges.put(Edge.of(firstUserId, secondUserId), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Records that two users are no longer friends.
+     */
+    public void friendshipRemoved(long firstUserId, long secondUserId) {
+        if (firstUserId != secondUserId) {
+            edges.put(Edge.of(firstUserId, secondUserId), Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Records that a user was removed together with their friendships.
+     */
+    public void userRemoved(long userId) {
+        removedUsers.add(userId);
+        edges.keySet().removeIf(edge -> edge.first() == userId || edge.second() == userId);
+    }
+
+    /**
+     * @return true if there is no change to apply
+     */
+    public boolean isEmpty() {
+        return edges.isEmpty() && removedUsers.isEmpty();
+    }
+
+    /**
+     * Builds the graph obtained by applying the changes to the given graph, which is left unchanged.
+     *
+     * @param graph the graph the changes were made to
+     * @return the changed graph, or the given graph itself if there is no change
+     */
+    public SocialGraph applyTo(SocialGraph graph) {
+        if (isEmpty()) {
+            return graph;
+        }
+        int capacity = graph.edgeCount() + edges.size();
+        long[] firstIds = new long[capacity];
+        long[] secondIds = new long[capacity];
+        int count = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            long id = graph.idOf(v);
+            if (removedUsers.contains(id)) {
+                continue;
+            }
+            for (int p = graph.neighborStart(v); p < graph.neighborEnd(v); p++) {
+                int w = graph.neighborAt(p);
+                long friendId = graph.idOf(w);
+                if (w > v && !removedUsers.contains(friendId) && edges.get(new Edge(id, friendId)) != Boolean.FALSE) {
+                    firstIds[count] = id;
+                    secondIds[count] = friendId;
+                    count++;
+                }
+            }
+        }
+        for (Map.Entry<Edge, Boolean> change : edges.entrySet()) {
+            if (change.getValue()) {
+                firstIds[count] = change.getKey().first();
+                secondIds[count] = change.getKey().second();
+                count++;
+            }
+        }
+        return SocialGraph.of(firstIds, secondIds, count);
+    }
+
+    private record Edge(long first, long second) {
+        static Edge of(long a, long b) {
+            return a < b ? new Edge(a, b) : new Edge(b, a);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.example.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Computes the diameter (longest shortest path) of the connected components of a {@link SocialGraph}
+ * with the iFUB algorithm (iterative Fringe Upper Bound).
+ *
+ * <p>A central user {@code u} is first chosen between the user with the most friends and the result of
+ * the 4-sweep heuristic (two double sweeps, each starting from the middle of the previous longest path),
+ * keeping the one with the smaller eccentricity; the sweeps also provide a good lower bound.
+ * A breadth-first search from {@code u} then splits the component into the fringes
+ * {@code F(i)}, the users at distance {@code i} from {@code u}. Any two users in fringes at most
+ * {@code i - 1} are at most {@code 2(i - 1)} apart, so after computing the eccentricities of the users
+ * in the outer fringes the diameter is known as soon as the best eccentricity found exceeds that bound.
+ * On social graphs only a few fringes need to be visited, so the exact diameter usually costs a handful
+ * of breadth-first searches instead of one per user.</p>
+ *
+ * <p>An error budget {@code k} stops the search as soon as the upper and lower bounds are at most
+ * {@code k} apart; the returned value is then a lower bound at most {@code k} below the real diameter.
+ * A cap on the number of eccentricity searches bounds the running time instead: on components without
+ * hubs the fringes can hold a large part of the users, and {@link #estimate(int[], int, int)} then stops
+ * at the cap and reports how far apart the bounds still are.</p>
+ *
+ * <p>Instances reuse their scratch arrays and are therefore not thread safe; use one instance per thread.
+ * When created with a pool, components of at least {@code parallelThreshold} users are explored with
+ * {@link SocialGraph#parallelBreadthFirst(int, int[], int[], ForkJoinPool)}.</p>
+ */
+public final class GraphDiameter {
+    private final SocialGraph graph;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int[] distance;
+    private final int[] queue;
+    private final int[] fringes;
+    private final int[] sweepDistance;
+    private boolean parallel;
+
+    /**
+     * Bounds on the diameter of a component.
+     *
+     * @param lowerBound the length of a shortest path found in the component
+     * @param upperBound the largest value the diameter can have
+     */
+    public record Estimate(int lowerBound, int upperBound) {
+        /**
+         * @return by how much {@link #lowerBound()} may underestimate the diameter; 0 if it is exact
+         */
+        public int error() {
+            return upperBound - lowerBound;
+        }
+    }
+
+    /**
+     * Creates a sequential diameter calculator for the given graph.
+     *
+     * @param graph the graph whose components will be measured
+     */
+    public GraphDiameter(SocialGraph graph) {
+        this(graph, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a diameter calculator that runs the searches of large components in parallel.
+     *
+     * @param graph             the graph whose components will be measured
+     * @param pool              the pool used for the parallel searches
+     * @param parallelThreshold the smallest component size searched in parallel
+     */
+    public GraphDiameter(SocialGraph graph, ForkJoinPool pool, int parallelThreshold) {
+        this.graph = graph;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.distance = new int[graph.size()];
+        this.queue = new int[graph.size()];
+        this.fringes = new int[graph.size()];
+        this.sweepDistance = new int[graph.size()];
+        Arrays.fill(distance, -1);
+    }
+
+    /**
+     * Computes the exact diameter of a connected component.
+     *
+     * @param component the dense indices of the users of the component
+     * @return the diameter of the component
+     */
+    public int exact(int[] component) {
+        return approximate(component, 0);
+    }
+
+    /**
+     * Computes the diameter of a connected component, allowing an error of at most {@code errorBudget}.
+     *
+     * @param component   the dense indices of the users of the component
+     * @param errorBudget the largest accepted difference between the result and the real diameter; 0 for the exact value
+     * @return a value between {@code diameter - errorBudget} and the diameter of the component
+     */
+    public int approximate(int[] component, int errorBudget) {
+        return estimate(component, errorBudget, Integer.MAX_VALUE).lowerBound();
+    }
+
+    /**
+     * Bounds the diameter of a connected component, stopping once the bounds are at most {@code errorBudget}
+     * apart or after {@code maxSearches} eccentricity searches of fringe users, whichever comes first.
+     * The few searches that choose the central user are not counted.
+     *
+     * @param component   the dense indices of the users of the component
+     * @param errorBudget the largest accepted difference between the bounds; 0 for the exact value
+     * @param maxSearches the largest number of fringe users whose eccentricity is computed
+     * @return the bounds on the diameter of the component
+     */
+    public Estimate estimate(int[] component, int errorBudget, int maxSearches) {
+        if (component.length <= 2) {
+            return new Estimate(component.length - 1, component.length - 1);
+        }
+
+        parallel = pool != null && component.length >= parallelThreshold;
+        int[] lowerBound = {0};
+        int hub = highestDegree(component);
+        int center = sweepMiddle(sweepMiddle(hub, lowerBound), lowerBound);
+        int u = eccentricity(center) < eccentricity(hub) ? center : hub;
+
+        int reached = search(u);
+        int eccentricityU = distance[queue[reached - 1]];
+        System.arraycopy(queue, 0, fringes, 0, reached);
+        int[] fringeStart = new int[eccentricityU + 2];
+        for (int k = 0; k < reached; k++) {
+            fringeStart[distance[fringes[k]] + 1] = k + 1;
+        }
+        reset(reached);
+
+        int best = Math.max(lowerBound[0], eccentricityU);
+        int upperBound = 2 * eccentricityU;
+        int searches = 0;
+        for (int i = eccentricityU; i > 0 && upperBound - best > errorBudget; i--) {
+            for (int k = fringeStart[i]; k < fringeStart[i + 1]; k++) {
+                if (searches++ == maxSearches) {
+                    return new Estimate(best, Math.max(best, upperBound));
+                }
+                best = Math.max(best, eccentricity(fringes[k]));
+            }
+            if (best > 2 * (i - 1)) {
+                return new Estimate(best, best);
+            }
+            upperBound = 2 * (i - 1);
+        }
+        return new Estimate(best, Math.max(best, upperBound));
+    }
+
+    /**
+     * Double sweep: searches from {@code start} to find the farthest user {@code a}, then from {@code a}
+     * to find the farthest user {@code b}, and returns the user in the middle of that {@code a-b} path.
+     *
+     * @param start      the user the sweep starts from
+     * @param lowerBound a one-element array raised to the eccentricity of {@code a} if larger
+     * @return the middle of the longest path found
+     */
+    private int sweepMiddle(int start, int[] lowerBound) {
+        int reached = search(start);
+        int a = queue[reached - 1];
+        reset(reached);
+
+        reached = search(a);
+        int b = queue[reached - 1];
+        int length = distance[b];
+        lowerBound[0] = Math.max(lowerBound[0], length);
+        for (int k = 0; k < reached; k++) {
+            sweepDistance[queue[k]] = distance[queue[k]];
+        }
+        reset(reached);
+
+        reached = search(b);
+        int middle = b;
+        for (int k = 0; k < reached; k++) {
+            int v = queue[k];
+            if (sweepDistance[v] == length / 2 && distance[v] == length - length / 2) {
+                middle = v;
+                break;
+            }
+        }
+        reset(reached);
+        return middle;
+    }
+
+    private int highestDegree(int[] component) {
+        int best = component[0];
+        for (int v : component) {
+            if (graph.degree(v) > graph.degree(best)) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    private int search(int source) {
+        return parallel
+                ? graph.parallelBreadthFirst(source, distance, queue, pool)
+                : graph.breadthFirst(source, distance, queue);
+    }
+
+    private int eccentricity(int source) {
+        int reached = search(source);
+        int eccentricity = distance[queue[reached - 1]];
+        reset(reached);
+        return eccentricity;
+    }
+
+    private void reset(int reached) {
+        for (int k = 0; k < reached; k++) {
+            distance[queue[k]] = -1;
+        }
+    }
+}
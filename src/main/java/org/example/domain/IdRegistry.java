@@ -0,0 +1,259 @@
+package org.example.domain;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Insertion-ordered set of entities identified by a {@code Long} id, with constant time
+ * {@link #add(Object)}, {@link #contains(Object)} and {@link #remove(Object)}.
+ *
+ * <p>The entities are kept in insertion order in a dense array, next to a parallel {@code long[]}
+ * of their ids. A primitive open-addressing hash table (linear probing) maps every id to its position
+ * in the dense array, so no {@code Long} keys or map entries are allocated. Removing an entity leaves
+ * a hole in the dense array that iteration skips; the holes are squeezed out once they outnumber the
+ * entities, which keeps removal amortized constant time while preserving the order.</p>
+ *
+ * <p>Two elements are the same if they have the same id, which matches {@link Entity#equals(Object)}
+ * for entities stored in the same table.</p>
+ *
+ * @param <T> the declared type of the elements; every element must be an {@link Entity} with a {@code Long} id
+ */
+public final class IdRegistry<T> extends AbstractCollection<T> {
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    private long[] ids = new long[8];
+    private Object[] elements = new Object[8];
+    private int end;
+    private int size;
+    private int[] table = new int[16];
+    private int usedSlots;
+    private int modCount;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        Long id = idOf(o);
+        return id != null && slotOf(id) >= 0;
+    }
+
+    /**
+     * Checks whether an entity with the given id is registered.
+     *
+     * @param id the id to look up
+     * @return true if an entity with the id is registered
+     */
+    public boolean containsId(long id) {
+        return slotOf(id) >= 0;
+    }
+
+    /**
+     * Removes the entity with the given id, if there is one.
+     *
+     * @param id the id of the entity to remove
+     * @return true if an entity was removed
+     */
+    public boolean removeId(long id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        if (end - size > size && end - size > 16) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Adds an entity unless an entity with the same id is already registered.
+     *
+     * @param element the entity to add
+     * @return true if the entity was added
+     * @throws IllegalArgumentException if the element is not an entity with a {@code Long} id
+     */
+    @Override
+    public boolean add(T element) {
+        Long id = idOf(element);
+        if (id == null) {
+            throw new IllegalArgumentException("Only entities with a Long id can be registered");
+        }
+        if (slotOf(id) >= 0) {
+            return false;
+        }
+        if (end == ids.length) {
+            if (end - size > size) {
+                compact();
+            } else {
+                ids = Arrays.copyOf(ids, end * 2);
+                elements = Arrays.copyOf(elements, end * 2);
+            }
+        }
+        ids[end] = id;
+        elements[end] = element;
+        insert(id, end);
+        end++;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Long id = idOf(o);
+        return id != null && removeId(id);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, end, null);
+        Arrays.fill(table, EMPTY);
+        end = 0;
+        size = 0;
+        usedSlots = 0;
+        modCount++;
+    }
+
+    /**
+     * Iterates over the entities in insertion order. The iterator supports {@link Iterator#remove()}.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int next = skipHoles(0);
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = skipHoles(next + 1);
+                return (T) elements[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(slotOf(ids[last]));
+                expectedModCount = modCount;
+                last = -1;
+            }
+        };
+    }
+
+    private int skipHoles(int position) {
+        while (position < end && elements[position] == null) {
+            position++;
+        }
+        return position;
+    }
+
+    private static Long idOf(Object o) {
+        return o instanceof Entity<?> entity && entity.getId() instanceof Long id ? id : null;
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @return the index in the hash table of the entry with the given id, or -1 if there is none
+     */
+    private int slotOf(long id) {
+        int mask = table.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != DELETED && ids[entry - 1] == id) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(long id, int position) {
+        if ((usedSlots + 1) * 2 > table.length) {
+            rehash(Math.max(16, Integer.highestOneBit(Math.max(size + 1, 1) * 4 - 1) << 1));
+        }
+        int mask = table.length - 1;
+        int slot = hash(id) & mask;
+        while (table[slot] != EMPTY && table[slot] != DELETED) {
+            slot = (slot + 1) & mask;
+        }
+        if (table[slot] == EMPTY) {
+            usedSlots++;
+        }
+        table[slot] = position + 1;
+    }
+
+    private void removeAt(int slot) {
+        int position = table[slot] - 1;
+        table[slot] = DELETED;
+        elements[position] = null;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Rebuilds the hash table with the given capacity, dropping the deleted markers.
+     */
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        usedSlots = 0;
+        int mask = capacity - 1;
+        for (int position = 0; position < end; position++) {
+            if (elements[position] != null) {
+                int slot = hash(ids[position]) & mask;
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = position + 1;
+                usedSlots++;
+            }
+        }
+    }
+
+    /**
+     * Moves the entities over the holes left by removals, keeping their order, and rebuilds the hash table.
+     */
+    private void compact() {
+        int live = 0;
+        for (int position = 0; position < end; position++) {
+            if (elements[position] != null) {
+                ids[live] = ids[position];
+                elements[live] = elements[position];
+                live++;
+            }
+        }
+        Arrays.fill(elements, live, end, null);
+        end = live;
+        rehash(table.length);
+        modCount++;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.domain;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset (seek) paginated listing.
+ * Instead of skipping rows with an offset, the next page is requested with the key of the last
+ * row of this page, so every page costs the same regardless of its depth and rows cannot shift
+ * between pages.
+ *
+ * @param items      the rows of this page, in ascending key order
+ * @param nextCursor the cursor to pass as {@code afterId} to get the next page, or null if this is the last page
+ * @param <T>        the type of the rows
+ */
+public record Page<T>(List<T> items, Long nextCursor) {
+
+    /**
+     * Builds a page from rows fetched with one row of look-ahead ({@code LIMIT pageSize + 1}).
+     *
+     * @param rows     the fetched rows, at most {@code pageSize + 1}
+     * @param pageSize the requested page size
+     * @param key      extracts the cursor key of a row
+     * @param <T>      the type of the rows
+     * @return the page, with a next cursor only if the look-ahead row was present
+     */
+    public static <T> Page<T> fromLookahead(List<T> rows, int pageSize, Function<T, Long> key) {
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new Page<>(items, key.apply(items.getLast()));
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
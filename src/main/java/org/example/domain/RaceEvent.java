@@ -1,21 +1,26 @@
 package org.example.domain;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class RaceEvent extends Event {
 
-    private List<Swimmer> participants = new ArrayList<>(); // N ducks
+    private final IdRegistry<Swimmer> participants = new IdRegistry<>(); // N ducks, by id
     private List<Double> lanes = new ArrayList<>(); // M distances
 
     public RaceEvent(Long id, String eventType, String eventName) {
         super(id, eventType, eventName);
     }
 
-    public List<Swimmer> getParticipants() { return participants; }
+    public Collection<Swimmer> getParticipants() { return participants; }
     public List<Double> getLanes() { return lanes; }
 
-    public void setParticipants(List<Swimmer> participants) { this.participants = participants; };
+    public void setParticipants(Collection<Swimmer> participants) {
+        this.participants.clear();
+        this.participants.addAll(participants);
+    }
     public void setLanes(List<Double> lanes) { this.lanes = lanes; }
 
     public void addParticipant(Swimmer participant) {
@@ -26,6 +31,24 @@ public class RaceEvent extends Event {
         participants.remove(participant);
     }
 
+    /**
+     * @param duckId the id of a duck
+     * @return true if the duck takes part in the race
+     */
+    public boolean hasParticipant(long duckId) {
+        return participants.containsId(duckId);
+    }
+
+    /**
+     * Removes a duck from the race.
+     *
+     * @param duckId the id of the duck
+     * @return true if the duck took part in the race
+     */
+    public boolean removeParticipant(long duckId) {
+        return participants.removeId(duckId);
+    }
+
     public void addLane(Double lane) {
         lanes.add(lane);
     }
@@ -39,13 +62,9 @@ public class RaceEvent extends Event {
         StringBuilder sb = new StringBuilder();
         sb.append(super.toString());
         sb.append(", participants=[");
-
-        for (int i = 0; i < participants.size(); i++) {
-            sb.append(((User) participants.get(i)).getId());
-            if (i < participants.size() - 1) {
-                sb.append(", ");
-            }
-        }
+        sb.append(participants.stream()
+                .map(participant -> String.valueOf(((User) participant).getId()))
+                .collect(Collectors.joining(", ")));
 
         sb.append("], lanes=").append(lanes);
         sb.append('}');
@@ -0,0 +1,11 @@
+package org.example.domain;
+
+/**
+ * A user suggested as a new friend, with the number of friends they have in common with the user
+ * the suggestion is for.
+ *
+ * @param user          the suggested user
+ * @param mutualFriends the number of mutual friends
+ */
+public record Recommendation(User user, int mutualFriends) {
+}
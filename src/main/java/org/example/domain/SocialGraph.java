@@ -0,0 +1,656 @@
+package org.example.domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Immutable friendship graph stored in compressed sparse row (CSR) form.
+ * User ids are remapped to dense indices {@code 0..size()-1} (in ascending id order), and the
+ * neighbors of the user with index {@code v} are {@code neighbors[offsets[v]]} up to
+ * {@code neighbors[offsets[v + 1] - 1]}, sorted ascending. The whole graph therefore lives in three
+ * primitive arrays, and every traversal is iterative, so long chains cannot overflow the stack.
+ */
+public final class SocialGraph {
+    private static final VarHandle DISTANCE = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int PARALLEL_FRONTIER = 4096;
+    private static final int FRONTIER_CHUNK = 1024;
+
+    private final long[] ids;
+    private final int[] offsets;
+    private final int[] neighbors;
+
+    private SocialGraph(long[] ids, int[] offsets, int[] neighbors) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * Builds the graph of the given friendships. Every user appearing in a friendship becomes a node;
+     * users without friends are not part of the graph.
+     *
+     * @param friendships the friendships forming the edges of the graph
+     * @return the graph
+     */
+    public static SocialGraph of(Iterable<Friendship> friendships) {
+        int edgeCount = 0;
+        for (Friendship ignored : friendships) {
+            edgeCount++;
+        }
+        long[] firstIds = new long[edgeCount];
+        long[] secondIds = new long[edgeCount];
+        int e = 0;
+        for (Friendship friendship : friendships) {
+            if (e == edgeCount) {
+                break;
+            }
+            firstIds[e] = friendship.getFirstFriendId();
+            secondIds[e] = friendship.getSecondFriendId();
+            e++;
+        }
+        return of(firstIds, secondIds, e);
+    }
+
+    /**
+     * Builds the graph of the edges {@code (firstIds[i], secondIds[i])} for {@code i < edgeCount}.
+     * Self loops and repeated edges are ignored.
+     *
+     * @param firstIds  the id of one endpoint of every edge
+     * @param secondIds the id of the other endpoint of every edge
+     * @param edgeCount the number of edges to read from the arrays
+     * @return the graph
+     */
+    public static SocialGraph of(long[] firstIds, long[] secondIds, int edgeCount) {
+        long[] endpoints = new long[2 * edgeCount];
+        System.arraycopy(firstIds, 0, endpoints, 0, edgeCount);
+        System.arraycopy(secondIds, 0, endpoints, edgeCount, edgeCount);
+        Arrays.sort(endpoints);
+        int n = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            if (i == 0 || endpoints[i] != endpoints[i - 1]) {
+                endpoints[n++] = endpoints[i];
+            }
+        }
+        long[] ids = Arrays.copyOf(endpoints, n);
+
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        int[] degree = new int[n];
+        for (int i = 0; i < edgeCount; i++) {
+            sources[i] = Arrays.binarySearch(ids, firstIds[i]);
+            targets[i] = Arrays.binarySearch(ids, secondIds[i]);
+            if (sources[i] != targets[i]) {
+                degree[sources[i]]++;
+                degree[targets[i]]++;
+            }
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + degree[v];
+        }
+        int[] position = Arrays.copyOf(offsets, n);
+        int[] neighbors = new int[offsets[n]];
+        for (int i = 0; i < edgeCount; i++) {
+            if (sources[i] != targets[i]) {
+                neighbors[position[sources[i]]++] = targets[i];
+                neighbors[position[targets[i]]++] = sources[i];
+            }
+        }
+
+        int[] compactOffsets = new int[n + 1];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            int start = offsets[v];
+            int end = offsets[v + 1];
+            Arrays.sort(neighbors, start, end);
+            for (int i = start; i < end; i++) {
+                if (i == start || neighbors[i] != neighbors[i - 1]) {
+                    neighbors[size++] = neighbors[i];
+                }
+            }
+            compactOffsets[v + 1] = size;
+        }
+        return new SocialGraph(ids, compactOffsets, Arrays.copyOf(neighbors, size));
+    }
+
+    /**
+     * Wraps arrays already in CSR form, as stored in a snapshot. The arrays are checked, not copied.
+     *
+     * @param ids       the user ids, strictly ascending
+     * @param offsets   {@code ids.length + 1} ascending offsets into {@code neighbors}, starting at 0
+     * @param neighbors the dense indices of the friends of every user, ascending for each user
+     * @return the graph
+     * @throws IllegalArgumentException if the arrays do not describe a valid graph
+     */
+    public static SocialGraph fromCsr(long[] ids, int[] offsets, int[] neighbors) {
+        if (offsets.length != ids.length + 1 || offsets[0] != 0 || offsets[ids.length] != neighbors.length) {
+            throw new IllegalArgumentException("The offsets do not match the ids and neighbors");
+        }
+        for (int v = 0; v < ids.length; v++) {
+            if (v > 0 && ids[v] <= ids[v - 1]) {
+                throw new IllegalArgumentException("The ids must be strictly ascending");
+            }
+            if (offsets[v + 1] < offsets[v]) {
+                throw new IllegalArgumentException("The offsets must be ascending");
+            }
+            for (int p = offsets[v]; p < offsets[v + 1]; p++) {
+                if (neighbors[p] < 0 || neighbors[p] >= ids.length || (p > offsets[v] && neighbors[p] <= neighbors[p - 1])) {
+                    throw new IllegalArgumentException("Invalid neighbor list of user " + ids[v]);
+                }
+            }
+        }
+        return new SocialGraph(ids, offsets, neighbors);
+    }
+
+    /**
+     * @return the number of users in the graph
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the number of friendships in the graph
+     */
+    public int edgeCount() {
+        return neighbors.length / 2;
+    }
+
+    /**
+     * Returns the dense index of a user.
+     *
+     * @param id the id of the user
+     * @return the index of the user, or -1 if the user has no friends and is therefore not in the graph
+     */
+    public int indexOf(long id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * @param index the dense index of a user
+     * @return the id of the user
+     */
+    public long idOf(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @param index the dense index of a user
+     * @return the number of friends of the user
+     */
+    public int degree(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * @param index the dense index of a user
+     * @return the position in {@link #neighborAt(int)} of the first friend of the user
+     */
+    public int neighborStart(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @param index the dense index of a user
+     * @return the position in {@link #neighborAt(int)} just after the last friend of the user
+     */
+    public int neighborEnd(int index) {
+        return offsets[index + 1];
+    }
+
+    /**
+     * @param position a position between {@link #neighborStart(int)} and {@link #neighborEnd(int)} of a user
+     * @return the dense index of the friend stored at that position
+     */
+    public int neighborAt(int position) {
+        return neighbors[position];
+    }
+
+    /**
+     * Counts the friends two users have in common.
+     *
+     * @param first  the dense index of one user
+     * @param second the dense index of the other user
+     * @return the number of mutual friends
+     * @see #commonNeighbors(int, int)
+     */
+    public int commonNeighborCount(int first, int second) {
+        return intersect(first, second, null);
+    }
+
+    /**
+     * Returns the friends two users have in common. Both neighbor lists are sorted, so they are
+     * intersected by walking the shorter one and galloping (exponential then binary search) through
+     * the longer one from the last match. This costs {@code O(m log(n / m))} for lists of lengths
+     * {@code m <= n}, which stays cheap when one of the users has thousands of friends.
+     *
+     * @param first  the dense index of one user
+     * @param second the dense index of the other user
+     * @return the dense indices of the mutual friends, in ascending order
+     */
+    public int[] commonNeighbors(int first, int second) {
+        int[] common = new int[Math.min(degree(first), degree(second))];
+        return Arrays.copyOf(common, intersect(first, second, common));
+    }
+
+    private int intersect(int first, int second, int[] common) {
+        if (degree(first) > degree(second)) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        int count = 0;
+        int position = offsets[second];
+        int end = offsets[second + 1];
+        for (int i = offsets[first]; i < offsets[first + 1] && position < end; i++) {
+            position = gallop(neighbors[i], position, end);
+            if (position < end && neighbors[position] == neighbors[i]) {
+                if (common != null) {
+                    common[count] = neighbors[i];
+                }
+                count++;
+                position++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the first position in {@code neighbors[from..to)} holding a value of at least {@code key}, or {@code to}
+     */
+    private int gallop(int key, int from, int to) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && neighbors[high] < key) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (neighbors[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Computes the distance in friendships from a user to every other user with an iterative
+     * breadth-first search.
+     *
+     * @param source the dense index of the starting user
+     * @return the distance to every user, indexed by dense index, or -1 for users that cannot be reached
+     */
+    public int[] distancesFrom(int source) {
+        int[] distance = new int[ids.length];
+        Arrays.fill(distance, -1);
+        breadthFirst(source, distance, new int[ids.length]);
+        return distance;
+    }
+
+    /**
+     * Iterative breadth-first search working on caller-provided arrays, so repeated searches
+     * (one per component, or several per component) allocate nothing and only touch the users
+     * they reach. On return {@code queue[0..count)} holds the reached users in visiting order,
+     * the last one being the farthest from {@code source}; resetting {@code distance} for exactly
+     * those users makes the arrays ready for the next search.
+     *
+     * @param source   the dense index of the starting user
+     * @param distance an array of length {@link #size()} holding -1 for every user; receives the distances
+     * @param queue    an array of length {@link #size()}; receives the reached users in visiting order
+     * @return the number of reached users, including {@code source}
+     */
+    public int breadthFirst(int source, int[] distance, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        distance[source] = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                int neighbor = neighbors[i];
+                if (distance[neighbor] < 0) {
+                    distance[neighbor] = distance[current] + 1;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Level-synchronous breadth-first search that expands large frontiers in parallel on the given pool.
+     * Small frontiers are expanded on the calling thread; when a frontier has at least a few thousand users
+     * it is split into chunks whose users claim their unvisited neighbors with a compare-and-set on
+     * {@code distance}. The contract is the same as {@link #breadthFirst(int, int[], int[])}, except that
+     * users of the same level may appear in {@code queue} in any order.
+     *
+     * @param source   the dense index of the starting user
+     * @param distance an array of length {@link #size()} holding -1 for every user; receives the distances
+     * @param queue    an array of length {@link #size()}; receives the reached users level by level
+     * @param pool     the pool running the frontier expansion
+     * @return the number of reached users, including {@code source}
+     */
+    public int parallelBreadthFirst(int source, int[] distance, int[] queue, ForkJoinPool pool) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        distance[source] = 0;
+        int level = 0;
+        while (head < tail) {
+            int levelEnd = tail;
+            if (levelEnd - head < PARALLEL_FRONTIER) {
+                for (int k = head; k < levelEnd; k++) {
+                    int current = queue[k];
+                    for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                        int neighbor = neighbors[i];
+                        if (distance[neighbor] < 0) {
+                            distance[neighbor] = level + 1;
+                            queue[tail++] = neighbor;
+                        }
+                    }
+                }
+            } else {
+                int[] next = pool.invoke(new FrontierExpansion(queue, head, levelEnd, distance, level + 1));
+                System.arraycopy(next, 0, queue, tail, next.length);
+                tail += next.length;
+            }
+            head = levelEnd;
+            level++;
+        }
+        return tail;
+    }
+
+    /**
+     * Expands a slice of a BFS frontier, splitting it in halves until the slices are small enough.
+     * Returns the users discovered by the slice.
+     */
+    private final class FrontierExpansion extends RecursiveTask<int[]> {
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final int[] distance;
+        private final int nextLevel;
+
+        FrontierExpansion(int[] frontier, int from, int to, int[] distance, int nextLevel) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.distance = distance;
+            this.nextLevel = nextLevel;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from > FRONTIER_CHUNK) {
+                int middle = (from + to) >>> 1;
+                FrontierExpansion left = new FrontierExpansion(frontier, from, middle, distance, nextLevel);
+                left.fork();
+                int[] right = new FrontierExpansion(frontier, middle, to, distance, nextLevel).compute();
+                int[] leftResult = left.join();
+                int[] result = Arrays.copyOf(leftResult, leftResult.length + right.length);
+                System.arraycopy(right, 0, result, leftResult.length, right.length);
+                return result;
+            }
+            int[] found = new int[16];
+            int count = 0;
+            for (int k = from; k < to; k++) {
+                int current = frontier[k];
+                for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                    int neighbor = neighbors[i];
+                    if ((int) DISTANCE.getAcquire(distance, neighbor) < 0
+                            && DISTANCE.compareAndSet(distance, neighbor, -1, nextLevel)) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = neighbor;
+                    }
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+    }
+
+    /**
+     * Finds a shortest chain of friendships between two users with a bidirectional breadth-first search.
+     * The searches from both ends take turns, always expanding the smaller frontier by one whole layer,
+     * and stop as soon as they meet: the first meeting found in a layer is a shortest path. Only the
+     * users within about half the distance of each end are visited, which on a social graph is a tiny
+     * part of it. Visited users are tracked in one bitset per side, so no per-user array is allocated.
+     *
+     * @param source  the dense index of the first user
+     * @param target  the dense index of the second user
+     * @param maxHops the longest path accepted, in friendships
+     * @return the dense indices of the users on the path, from {@code source} to {@code target},
+     *         or null if the users are more than {@code maxHops} friendships apart
+     */
+    public int[] shortestPath(int source, int target, int maxHops) {
+        if (source == target) {
+            return new int[]{source};
+        }
+        SearchSide forward = new SearchSide(source, ids.length);
+        SearchSide backward = new SearchSide(target, ids.length);
+        for (int hops = 0; hops < maxHops; hops++) {
+            boolean forwardTurn = forward.frontierSize() <= backward.frontierSize();
+            SearchSide side = forwardTurn ? forward : backward;
+            SearchSide other = forwardTurn ? backward : forward;
+            if (side.frontierSize() == 0) {
+                return null;
+            }
+            int layerEnd = side.size;
+            for (int slot = side.layerStart; slot < layerEnd; slot++) {
+                int v = side.nodes[slot];
+                for (int p = offsets[v]; p < offsets[v + 1]; p++) {
+                    int w = neighbors[p];
+                    if (side.isVisited(w)) {
+                        continue;
+                    }
+                    if (other.isVisited(w)) {
+                        return forwardTurn
+                                ? joinPaths(forward, slot, backward, backward.slotOf(w))
+                                : joinPaths(forward, forward.slotOf(w), backward, slot);
+                    }
+                    side.visit(w, slot);
+                }
+            }
+            side.layerStart = layerEnd;
+        }
+        return null;
+    }
+
+    private static int[] joinPaths(SearchSide forward, int forwardSlot, SearchSide backward, int backwardSlot) {
+        int forwardLength = forward.depthOf(forwardSlot) + 1;
+        int[] path = new int[forwardLength + backward.depthOf(backwardSlot) + 1];
+        for (int slot = forwardSlot, k = forwardLength - 1; slot >= 0; slot = forward.parents[slot], k--) {
+            path[k] = forward.nodes[slot];
+        }
+        for (int slot = backwardSlot, k = forwardLength; slot >= 0; slot = backward.parents[slot], k++) {
+            path[k] = backward.nodes[slot];
+        }
+        return path;
+    }
+
+    /**
+     * One end of a bidirectional search: the users visited so far in discovery order, the slot of the
+     * user each one was reached from (-1 for the start), the visited bitset and the start of the current layer.
+     */
+    private static final class SearchSide {
+        private final long[] visited;
+        private int[] nodes = new int[16];
+        private int[] parents = new int[16];
+        private int size;
+        private int layerStart;
+
+        private SearchSide(int start, int graphSize) {
+            visited = new long[(graphSize + 63) >>> 6];
+            visit(start, -1);
+        }
+
+        private boolean isVisited(int v) {
+            return (visited[v >>> 6] & (1L << v)) != 0;
+        }
+
+        private void visit(int v, int parent) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                parents = Arrays.copyOf(parents, size * 2);
+            }
+            visited[v >>> 6] |= 1L << v;
+            nodes[size] = v;
+            parents[size] = parent;
+            size++;
+        }
+
+        private int frontierSize() {
+            return size - layerStart;
+        }
+
+        private int slotOf(int v) {
+            for (int slot = size - 1; slot >= 0; slot--) {
+                if (nodes[slot] == v) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private int depthOf(int slot) {
+            int depth = 0;
+            for (int parent = parents[slot]; parent >= 0; parent = parents[parent]) {
+                depth++;
+            }
+            return depth;
+        }
+    }
+
+    /**
+     * Lists the users reachable from a user in depth-first order, using an explicit stack.
+     *
+     * @param source the dense index of the starting user
+     * @return the dense indices of the reachable users, starting with {@code source}
+     */
+    public int[] depthFirstOrder(int source) {
+        boolean[] visited = new boolean[ids.length];
+        int[] order = new int[ids.length];
+        int count = depthFirst(source, visited, order, 0, new int[ids.length], new int[ids.length]);
+        return Arrays.copyOf(order, count);
+    }
+
+    /**
+     * Splits the graph into its connected components (communities).
+     *
+     * @return the connected components of the graph
+     */
+    public Components connectedComponents() {
+        int n = ids.length;
+        boolean[] visited = new boolean[n];
+        int[] componentOf = new int[n];
+        int[] members = new int[n];
+        int[] starts = new int[n + 1];
+        int[] stack = new int[n];
+        int[] nextNeighbor = new int[n];
+        int count = 0;
+        int filled = 0;
+        for (int v = 0; v < n; v++) {
+            if (!visited[v]) {
+                starts[count] = filled;
+                int end = depthFirst(v, visited, members, filled, stack, nextNeighbor);
+                for (int i = filled; i < end; i++) {
+                    componentOf[members[i]] = count;
+                }
+                filled = end;
+                count++;
+            }
+        }
+        starts[count] = filled;
+        return new Components(count, componentOf, members, Arrays.copyOf(starts, count + 1));
+    }
+
+    /**
+     * Iterative depth-first search appending every newly visited user to {@code order}.
+     *
+     * @return the position in {@code order} after the last visited user
+     */
+    private int depthFirst(int source, boolean[] visited, int[] order, int filled,
+                           int[] stack, int[] nextNeighbor) {
+        int top = 0;
+        stack[top++] = source;
+        visited[source] = true;
+        order[filled++] = source;
+        nextNeighbor[source] = offsets[source];
+        while (top > 0) {
+            int current = stack[top - 1];
+            if (nextNeighbor[current] == offsets[current + 1]) {
+                top--;
+                continue;
+            }
+            int neighbor = neighbors[nextNeighbor[current]++];
+            if (!visited[neighbor]) {
+                visited[neighbor] = true;
+                order[filled++] = neighbor;
+                nextNeighbor[neighbor] = offsets[neighbor];
+                stack[top++] = neighbor;
+            }
+        }
+        return filled;
+    }
+
+    /**
+     * The connected components of a {@link SocialGraph}. The members of every component are stored
+     * contiguously, in depth-first order, so iterating one component costs only its size.
+     */
+    public static final class Components {
+        private final int count;
+        private final int[] componentOf;
+        private final int[] members;
+        private final int[] starts;
+
+        private Components(int count, int[] componentOf, int[] members, int[] starts) {
+            this.count = count;
+            this.componentOf = componentOf;
+            this.members = members;
+            this.starts = starts;
+        }
+
+        /**
+         * @return the number of components
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * @param index the dense index of a user
+         * @return the component containing the user
+         */
+        public int componentOf(int index) {
+            return componentOf[index];
+        }
+
+        /**
+         * @param component a component number, between 0 and {@link #count()} - 1
+         * @return the number of users in the component
+         */
+        public int size(int component) {
+            return starts[component + 1] - starts[component];
+        }
+
+        /**
+         * @param component a component number, between 0 and {@link #count()} - 1
+         * @return the dense indices of the users in the component, in depth-first order
+         */
+        public int[] members(int component) {
+            return Arrays.copyOfRange(members, starts[component], starts[component + 1]);
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package org.example.repository;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of JDBC connections shared by all the database repositories.
+ * <p>
+ * At most {@code maxPoolSize} connections are open at the same time. Callers that find the pool
+ * exhausted wait up to {@code maxWaitMillis} before a {@link SQLTimeoutException} is thrown.
+ * Connections that sat idle for a while are validated before being handed out (recently returned
+ * ones are handed out without a round trip to the server), connections idle for longer than
+ * {@code idleTimeoutMillis} are closed (down to {@code minIdle}), and connections borrowed for longer
+ * than {@code leakDetectionThresholdMillis} are reported. The stack trace of the borrower is only
+ * captured when {@link #setLeakStackTracesEnabled(boolean)} is turned on, since it costs an exception
+ * per borrow.
+ * <p>
+ * The connections returned by {@link #getConnection()} are wrappers: calling {@code close()} on them
+ * gives the physical connection back to the pool instead of closing it, so repositories keep using
+ * try-with-resources exactly as they did with {@link DriverManager}.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+    private static final int DEFAULT_MAX_POOL_SIZE = 10;
+    private static final int DEFAULT_MIN_IDLE = 2;
+    private static final long DEFAULT_MAX_WAIT_MILLIS = 5_000;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300_000;
+    private static final long DEFAULT_LEAK_DETECTION_THRESHOLD_MILLIS = 60_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long VALIDATION_IDLE_THRESHOLD_MILLIS = 5_000;
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 30_000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxPoolSize;
+    private final int minIdle;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final long leakDetectionThresholdMillis;
+    private final LongSupplier clock;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Map<Connection, Lease> leases = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenance;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+
+    private volatile boolean closed = false;
+    private volatile boolean leakStackTracesEnabled = false;
+    private PrintWriter logWriter;
+
+    /**
+     * Creates a pool with the default sizing and timeouts.
+     *
+     * @param url      the JDBC url of the database
+     * @param username the database user
+     * @param password the password of the database user
+     */
+    public ConnectionPool(String url, String username, String password) {
+        this(url, username, password, DEFAULT_MAX_POOL_SIZE, DEFAULT_MIN_IDLE, DEFAULT_MAX_WAIT_MILLIS,
+                DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_LEAK_DETECTION_THRESHOLD_MILLIS);
+    }
+
+    /**
+     * Creates a pool with explicit sizing and timeouts.
+     *
+     * @param url                          the JDBC url of the database
+     * @param username                     the database user
+     * @param password                     the password of the database user
+     * @param maxPoolSize                  the maximum number of open connections
+     * @param minIdle                      the number of idle connections kept open by the idle eviction
+     * @param maxWaitMillis                how long {@link #getConnection()} waits for a free connection
+     * @param idleTimeoutMillis            how long a connection may stay idle before it is closed
+     * @param leakDetectionThresholdMillis how long a connection may be borrowed before it is reported as leaked
+     */
+    public ConnectionPool(String url, String username, String password, int maxPoolSize, int minIdle,
+                          long maxWaitMillis, long idleTimeoutMillis, long leakDetectionThresholdMillis) {
+        this(url, username, password, maxPoolSize, minIdle, maxWaitMillis, idleTimeoutMillis,
+                leakDetectionThresholdMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a pool that reads the time used for validation, idle eviction and leak detection from
+     * the given clock, so tests do not have to wait for it.
+     *
+     * @param clock the current time in epoch milliseconds
+     */
+    ConnectionPool(String url, String username, String password, int maxPoolSize, int minIdle,
+                   long maxWaitMillis, long idleTimeoutMillis, long leakDetectionThresholdMillis, LongSupplier clock) {
+        if (maxPoolSize < 1) {
+            throw new IllegalArgumentException("The pool size must be at least 1");
+        }
+        if (minIdle < 0 || minIdle > maxPoolSize) {
+            throw new IllegalArgumentException("The minimum number of idle connections must be between 0 and " + maxPoolSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxPoolSize = maxPoolSize;
+        this.minIdle = minIdle;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        this.clock = clock;
+        this.permits = new Semaphore(maxPoolSize, true);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::runMaintenance,
+                MAINTENANCE_INTERVAL_MILLIS, MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no valid idle connection is available.
+     *
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLTimeoutException if no connection became available within the max wait
+     * @throws SQLException        if the pool is closed or a new connection could not be opened
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("No database connection available after " + maxWaitMillis + " ms " + getMetrics());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        Connection physical;
+        try {
+            physical = takeValidIdleConnection();
+            if (physical == null) {
+                physical = DriverManager.getConnection(url, username, password);
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - start;
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        Exception origin = leakDetectionThresholdMillis > 0 && leakStackTracesEnabled
+                ? new Exception("Connection borrowed here") : null;
+        leases.put(physical, new Lease(clock.getAsLong(), origin));
+        return wrap(physical);
+    }
+
+    /**
+     * Not supported: the pool always connects with the credentials it was created with.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The connection pool only supports its configured credentials");
+    }
+
+    /**
+     * Turns the capture of the borrower's stack trace on or off. When it is on, a reported leak
+     * shows where the connection was borrowed; when it is off, leaks are only counted and reported.
+     *
+     * @param enabled whether to capture a stack trace on every borrow
+     */
+    public void setLeakStackTracesEnabled(boolean enabled) {
+        this.leakStackTracesEnabled = enabled;
+    }
+
+    /**
+     * Returns a snapshot of the pool usage.
+     *
+     * @return the current pool metrics
+     */
+    public PoolMetrics getMetrics() {
+        long count = acquisitions.get();
+        double averageWait = count == 0 ? 0 : totalWaitNanos.get() / (double) count / 1_000_000;
+        return new PoolMetrics(leases.size(), idleConnections.size(), maxPoolSize, count, timeouts.get(),
+                averageWait, maxWaitNanos.get() / 1_000_000.0, leaksDetected.get());
+    }
+
+    /**
+     * Closes every idle connection and stops the maintenance thread.
+     * Connections that are still borrowed are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdownNow();
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            closeQuietly(idle.connection());
+        }
+    }
+
+    /**
+     * Pops idle connections (most recently used first) until a valid one is found. A connection
+     * returned less than {@code VALIDATION_IDLE_THRESHOLD_MILLIS} ago is trusted without validation.
+     *
+     * @return a valid physical connection, or null if the pool has no idle connection
+     */
+    private Connection takeValidIdleConnection() {
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            if (clock.getAsLong() - idle.returnedAt() < VALIDATION_IDLE_THRESHOLD_MILLIS) {
+                return idle.connection();
+            }
+            try {
+                if (idle.connection().isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return idle.connection();
+                }
+            } catch (SQLException ignored) {
+                // an invalid connection is simply discarded
+            }
+            closeQuietly(idle.connection());
+        }
+        return null;
+    }
+
+    /**
+     * Gives a physical connection back to the pool, resetting the state a repository may have changed.
+     *
+     * @param physical the physical connection being returned
+     */
+    private void release(Connection physical) {
+        leases.remove(physical);
+        try {
+            if (closed || physical.isClosed()) {
+                closeQuietly(physical);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            idleConnections.offerFirst(new IdleConnection(physical, clock.getAsLong()));
+        } catch (SQLException e) {
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than the idle timeout and reports leaked connections.
+     */
+    void runMaintenance() {
+        long now = clock.getAsLong();
+
+        for (IdleConnection idle : idleConnections.toArray(new IdleConnection[0])) {
+            if (idleConnections.size() <= minIdle) {
+                break;
+            }
+            if (now - idle.returnedAt() > idleTimeoutMillis && idleConnections.remove(idle)) {
+                closeQuietly(idle.connection());
+            }
+        }
+
+        for (Lease lease : leases.values()) {
+            if (leakDetectionThresholdMillis > 0 && !lease.reported && now - lease.borrowedAt > leakDetectionThresholdMillis) {
+                lease.reported = true;
+                leaksDetected.incrementAndGet();
+                System.err.println("Possible connection leak: a connection has been borrowed for "
+                        + (now - lease.borrowedAt) + " ms");
+                if (lease.origin != null) {
+                    lease.origin.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps a physical connection so that {@code close()} returns it to the pool.
+     *
+     * @param physical the physical connection
+     * @return the connection handed to the repositories
+     */
+    private Connection wrap(Connection physical) {
+        AtomicBoolean logicallyClosed = new AtomicBoolean(false);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (logicallyClosed.compareAndSet(false, true)) {
+                                release(physical);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return logicallyClosed.get() || physical.isClosed();
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "toString" -> {
+                            return "PooledConnection[" + physical + "]";
+                        }
+                    }
+                    if (logicallyClosed.get()) {
+                        throw new SQLException("The connection was already returned to the pool");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // nothing left to do with a broken connection
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("The connection pool does not use java.util.logging");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new SQLException("The connection pool is not a wrapper for " + type.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+
+    /**
+     * An open connection waiting in the pool.
+     *
+     * @param connection the physical connection
+     * @param returnedAt when the connection was returned, in epoch milliseconds
+     */
+    private record IdleConnection(Connection connection, long returnedAt) {
+    }
+
+    /**
+     * Bookkeeping for a borrowed connection, used by the leak detection.
+     */
+    private static final class Lease {
+        private final long borrowedAt;
+        private final Exception origin;
+        private volatile boolean reported = false;
+
+        private Lease(long borrowedAt, Exception origin) {
+            this.borrowedAt = borrowedAt;
+            this.origin = origin;
+        }
+    }
+}
@@ -2,26 +2,47 @@ package org.example.repository;
 
 import org.example.domain.*;
 
+import javax.sql.DataSource;
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class EventDataBaseRepository implements EventRepository {
-    private final String url;
-    private final String username;
-    private final String password;
+    private final DataSource dataSource;
 
-    public EventDataBaseRepository(String url, String username, String password){
-        this.url = url;
-        this.username = username;
-        this.password = password;
+    public EventDataBaseRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        createTables();
+    }
+
+    /**
+     * Creates the table holding the computed race results and the index serving subscription
+     * lookups by user if they do not exist yet.
+     */
+    private void createTables() {
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS race_results (" +
+                       "eventId BIGINT NOT NULL REFERENCES events(id) ON DELETE CASCADE, " +
+                       "lanePosition INT NOT NULL, " +
+                       "duckId BIGINT NOT NULL, " +
+                       "laneDistance DOUBLE PRECISION NOT NULL, " +
+                       "raceTime DOUBLE PRECISION NOT NULL, " +
+                       "PRIMARY KEY (eventId, lanePosition))");
+            st.execute("CREATE INDEX IF NOT EXISTS event_subscriber_subscriber_idx ON Event_Subscriber(subscriberId, eventId)");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
     }
 
     @Override
     public void add(Event entity) {
         String sql = "INSERT INTO events(id, eventType, eventName) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, entity.getId());
             ps.setString(2, entity.getType());
@@ -35,7 +56,7 @@ public class EventDataBaseRepository implements EventRepository {
     @Override
     public void remove(Event entity) {
         String sql = "DELETE FROM events WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, entity.getId());
             ps.executeUpdate();
@@ -46,135 +67,118 @@ public class EventDataBaseRepository implements EventRepository {
 
     @Override
     public Event findById(Long id) {
-        try (Connection conn = DriverManager.getConnection(url, username, password)) {
-            String sqlEvent = "SELECT * FROM events WHERE id = ?";
-            Event event;
-            String eventType;
-            try (PreparedStatement ps = conn.prepareStatement(sqlEvent)) {
-                ps.setLong(1, id);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    Long eventId = rs.getLong("id");
-                    eventType = rs.getString("eventtype");
-                    String eventName = rs.getString("eventname");
-                    boolean status = rs.getBoolean("status");
-                    if (eventType.equals("RaceEvent")) {
-                        event = new RaceEvent(eventId, eventType, eventName);
-                        event.setStatus(status);
-                    } else {
-                        return null;
-                    }
-                } else {
-                    return null;
-                }
-            }
+        String sql = "SELECT * FROM events WHERE id = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            List<Event> events = loadEvents(conn, ps);
+            return events.isEmpty() ? null : events.getFirst();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 
-            String sqlSubscribers = "SELECT s.* FROM Users s " +
-                                    "JOIN Event_Subscriber es ON es.subscriberId = s.id " +
-                                    "WHERE es.eventId = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sqlSubscribers)) {
-                ps.setLong(1, id);
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    Long userId = rs.getLong("id");
-                    String userType = rs.getString("usertype");
-                    String username = rs.getString("username");
-                    String email = rs.getString("email");
-                    String password = rs.getString("password");
-                    if (userType.equals("Person")) {
-                        String surname = rs.getString("surname");
-                        String name = rs.getString("name");
-                        LocalDate birthdate = rs.getDate("birthdate").toLocalDate();
-                        String occupation = rs.getString("occupation");
-                        event.addObserver(new Person(userId, userType, username, email, password, surname, name, birthdate, occupation));
-                    } else if (userType.equals("Duck")) {
-                        String duckType = rs.getString("duckType");
-                        Double speed = rs.getDouble("speed");
-                        Double resistance = rs.getDouble("resistance");
-                        if (duckType.equals("SWIMMING")) {
-                            event.addObserver(new SwimmingDuck(userId, userType, username, email, password, speed, resistance));
-                        } else if (duckType.equals("FLYING")) {
-                            event.addObserver(new FlyingDuck(userId, userType, username, email, password, speed, resistance));
-                        } else if (duckType.equals("FLYING_AND_SWIMMING")) {
-                            event.addObserver(new FlyingSwimmingDuck(userId, userType, username, email, password, speed, resistance));
-                        }
-                    }
+    @Override
+    public Iterable<Event> findAll() {
+        String sql = "SELECT * FROM events ORDER BY id";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            return loadEvents(conn, ps);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Loads the events selected by the given statement together with their subscribers,
+     * participants and lanes. The related rows are fetched with one set-based query per table
+     * ({@code eventId = ANY(?)}) and stitched onto the events in memory, so any number of events
+     * costs four round trips on a single connection.
+     *
+     * @param conn the connection used for all the queries
+     * @param eventStatement a prepared statement selecting rows of the {@code events} table
+     * @return the hydrated events, in the order returned by the statement
+     * @throws SQLException if any of the queries fails
+     */
+    private List<Event> loadEvents(Connection conn, PreparedStatement eventStatement) throws SQLException {
+        Map<Long, Event> events = new LinkedHashMap<>();
+        try (ResultSet rs = eventStatement.executeQuery()) {
+            while (rs.next()) {
+                Long eventId = rs.getLong("id");
+                String eventType = rs.getString("eventtype");
+                String eventName = rs.getString("eventname");
+                boolean status = rs.getBoolean("status");
+                if (eventType.equals("RaceEvent")) {
+                    Event event = new RaceEvent(eventId, eventType, eventName);
+                    event.setStatus(status);
+                    events.put(eventId, event);
                 }
             }
+        }
+        if (events.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-            if (eventType.equals("RaceEvent")) {
-                String sqlParticipants = "SELECT p.* FROM Users p " +
-                                         "JOIN RaceEvent_Participant ep ON ep.participantId = p.id " +
-                                         "WHERE ep.eventId = ?";
-                try (PreparedStatement ps = conn.prepareStatement(sqlParticipants)) {
-                    ps.setLong(1, id);
-                    ResultSet rs = ps.executeQuery();
-                    while (rs.next()) {
-                        Long userId = rs.getLong("id");
-                        String userType = rs.getString("usertype");
-                        String username = rs.getString("username");
-                        String email = rs.getString("email");
-                        String password = rs.getString("password");
-                        if (userType.equals("Person")) {
-                            throw new IllegalArgumentException("Participant must be a Duck, not a Person");
-                        } else if (userType.equals("Duck")) {
-                            String duckType = rs.getString("duckType");
-                            Double speed = rs.getDouble("speed");
-                            Double resistance = rs.getDouble("resistance");
-                            if (duckType.equals("SWIMMING")) {
-                                ((RaceEvent)event).addParticipant(new SwimmingDuck(userId, userType, username, email, password, speed, resistance));
-                            } else if (duckType.equals("FLYING")) {
-                                throw new IllegalArgumentException("Participant must be a SwimmingDuck, not a FlyingDuck");
-                            } else if (duckType.equals("FLYING_AND_SWIMMING")) {
-                                ((RaceEvent)event).addParticipant(new FlyingSwimmingDuck(userId, userType, username, email, password, speed, resistance));
-                            }
-                        }
-                    }
+        Array eventIds = conn.createArrayOf("bigint", events.keySet().toArray());
+
+        String sqlSubscribers = "SELECT es.eventId AS subscribed_event_id, s.* FROM Users s " +
+                                "JOIN Event_Subscriber es ON es.subscriberId = s.id " +
+                                "WHERE es.eventId = ANY(?)";
+        try (PreparedStatement ps = conn.prepareStatement(sqlSubscribers)) {
+            ps.setArray(1, eventIds);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                Event event = events.get(rs.getLong("subscribed_event_id"));
+                User subscriber = UserRowMapper.mapRow(rs);
+                if (event != null && subscriber != null) {
+                    event.addObserver(subscriber);
                 }
+            }
+        }
 
-                String sqlLanes = "SELECT l.laneValue FROM Lanes l " +
-                                  "JOIN Events e ON e.id = l.eventId " +
-                                  "WHERE e.id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(sqlLanes)) {
-                    ps.setLong(1, id);
-                    ResultSet rs = ps.executeQuery();
-                    while (rs.next()) {
-                        Double distance = rs.getDouble("laneValue");
-                        ((RaceEvent)event).addLane(distance);
+        String sqlParticipants = "SELECT ep.eventId AS race_event_id, p.* FROM Users p " +
+                                 "JOIN RaceEvent_Participant ep ON ep.participantId = p.id " +
+                                 "WHERE ep.eventId = ANY(?)";
+        try (PreparedStatement ps = conn.prepareStatement(sqlParticipants)) {
+            ps.setArray(1, eventIds);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                if (events.get(rs.getLong("race_event_id")) instanceof RaceEvent raceEvent) {
+                    User participant = UserRowMapper.mapRow(rs);
+                    if (participant instanceof Person) {
+                        throw new IllegalArgumentException("Participant must be a Duck, not a Person");
+                    } else if (participant instanceof FlyingDuck) {
+                        throw new IllegalArgumentException("Participant must be a SwimmingDuck, not a FlyingDuck");
+                    } else if (participant instanceof Swimmer swimmer) {
+                        raceEvent.addParticipant(swimmer);
                     }
                 }
             }
-
-            return event;
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
-        return null;
-    }
 
-    @Override
-    public Iterable<Event> findAll() {
-        String sql = "SELECT * FROM Events";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            List<Event> events = new ArrayList<>();
+        String sqlLanes = "SELECT l.eventId, l.laneValue FROM Lanes l " +
+                          "WHERE l.eventId = ANY(?) " +
+                          "ORDER BY l.eventId, l.id";
+        try (PreparedStatement ps = conn.prepareStatement(sqlLanes)) {
+            ps.setArray(1, eventIds);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Long eventId = rs.getLong("id");
-                Event event = findById(eventId);
-                events.add(event);
+                if (events.get(rs.getLong("eventId")) instanceof RaceEvent raceEvent) {
+                    raceEvent.addLane(rs.getDouble("laneValue"));
+                }
             }
-            return events;
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
-        return null;
+
+        eventIds.free();
+        return new ArrayList<>(events.values());
     }
 
     @Override
     public void addSpectatorToEvent(Long eventId, Long userId) {
         String sql = "INSERT INTO Event_Subscriber(eventId, subscriberId) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, eventId);
             ps.setLong(2, userId);
@@ -187,7 +191,7 @@ public class EventDataBaseRepository implements EventRepository {
     @Override
     public void removeSpectatorFromEvent(Long eventId, Long userId) {
         String sql = "DELETE FROM Event_Subscriber WHERE eventId = ? AND subscriberId = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, eventId);
             ps.setLong(2, userId);
@@ -200,7 +204,7 @@ public class EventDataBaseRepository implements EventRepository {
     @Override
     public void addParticipantToEvent(Long eventId, Long duckId) {
         String sql = "INSERT INTO RaceEvent_Participant(eventId, participantId) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, eventId);
             ps.setLong(2, duckId);
@@ -212,8 +216,8 @@ public class EventDataBaseRepository implements EventRepository {
 
     @Override
     public void removeParticipantFromEvent(Long eventId, Long duckId) {
-        String sql = "DELETE FROM Event_Subscriber WHERE eventId = ? AND participantId = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        String sql = "DELETE FROM RaceEvent_Participant WHERE eventId = ? AND participantId = ?";
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, eventId);
             ps.setLong(2, duckId);
@@ -226,7 +230,7 @@ public class EventDataBaseRepository implements EventRepository {
     @Override
     public void addLaneToEvent(Long eventId, Double laneValue) {
         String sql = "INSERT INTO Lanes(eventId, laneValue) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, eventId);
             ps.setDouble(2, laneValue);
@@ -239,7 +243,7 @@ public class EventDataBaseRepository implements EventRepository {
     @Override
     public void removeLaneFromEvent(Long eventId, Long indexValue) {
         String sql = "DELETE FROM Lanes WHERE eventId = ? AND id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, eventId);
             ps.setLong(2, indexValue);
@@ -253,7 +257,7 @@ public class EventDataBaseRepository implements EventRepository {
     public List<Lane> getLanes(Long eventId) {
         List<Lane> lanes = new ArrayList<>();
         String sql = "SELECT * FROM Lanes WHERE eventId = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
              ps.setLong(1, eventId);
              ResultSet rs = ps.executeQuery();
@@ -272,7 +276,7 @@ public class EventDataBaseRepository implements EventRepository {
     @Override
     public void updateStatusEvent(Long eventId, boolean status) {
         String sql = "UPDATE events SET status = ? WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setBoolean(1, status);
             ps.setLong(2, eventId);
@@ -281,4 +285,110 @@ public class EventDataBaseRepository implements EventRepository {
             e.printStackTrace();
         }
     }
+
+    @Override
+    public Set<Long> findSubscribedEventIds(Long userId) {
+        String sql = "SELECT eventId FROM Event_Subscriber WHERE subscriberId = ?";
+        Set<Long> eventIds = new HashSet<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                eventIds.add(rs.getLong("eventId"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return eventIds;
+    }
+
+    @Override
+    public List<Event> findSubscribedEvents(Long userId) {
+        String sql = "SELECT * FROM events " +
+                     "WHERE id IN (SELECT eventId FROM Event_Subscriber WHERE subscriberId = ?) " +
+                     "ORDER BY id";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            return loadEvents(conn, ps);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void saveRaceResults(Long eventId, List<DuckResult> results) {
+        String sqlDelete = "DELETE FROM race_results WHERE eventId = ?";
+        String sqlInsert = "INSERT INTO race_results(eventId, lanePosition, duckId, laneDistance, raceTime) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement(sqlDelete);
+                 PreparedStatement insert = conn.prepareStatement(sqlInsert)) {
+                delete.setLong(1, eventId);
+                delete.executeUpdate();
+                for (int i = 0; i < results.size(); i++) {
+                    DuckResult result = results.get(i);
+                    insert.setLong(1, eventId);
+                    insert.setInt(2, i);
+                    insert.setLong(3, result.getDuck().getId());
+                    insert.setDouble(4, result.getLaneDistance());
+                    insert.setDouble(5, result.getTime());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the stored results together with their ducks in one query. If a duck of the results
+     * no longer exists, the results are incomplete and null is returned so they are computed again.
+     */
+    @Override
+    public List<DuckResult> findRaceResults(Long eventId) {
+        String sql = "SELECT rr.lanePosition, rr.laneDistance, rr.raceTime, u.* FROM race_results rr " +
+                     "LEFT JOIN users u ON u.id = rr.duckId " +
+                     "WHERE rr.eventId = ? " +
+                     "ORDER BY rr.lanePosition";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, eventId);
+            ResultSet rs = ps.executeQuery();
+            List<DuckResult> results = new ArrayList<>();
+            while (rs.next()) {
+                User user = rs.getObject("id") == null ? null : UserRowMapper.mapRow(rs);
+                if (!(user instanceof Duck duck)) {
+                    return null;
+                }
+                results.add(new DuckResult(duck, rs.getDouble("laneDistance"), rs.getDouble("raceTime")));
+            }
+            return results.isEmpty() ? null : results;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public void removeRaceResults(Long eventId) {
+        String sql = "DELETE FROM race_results WHERE eventId = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, eventId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 }
@@ -2,7 +2,9 @@ package org.example.repository;
 
 import org.example.domain.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * A file-based repository for {@link Event} entities.
@@ -91,19 +93,8 @@ public class EventFileRepository extends AbstractFileRepository<Long, Event> {
             sb.append(entity.getType()).append(";");
             sb.append(entity.getName()).append(";");
 
-            List<Observer> subs = entity.getSubscribers();
-            for (int i = 0; i < subs.size(); i++) {
-                sb.append(((User) subs.get(i)).getId());
-                if (i < subs.size() - 1) sb.append(",");
-            }
-            sb.append(";");
-
-            List<Swimmer> participants = ((RaceEvent) entity).getParticipants();
-            for (int i = 0; i < participants.size(); i++) {
-                sb.append(((User) participants.get(i)).getId());
-                if (i < participants.size() - 1) sb.append(",");
-            }
-            sb.append(";");
+            sb.append(joinIds(entity.getSubscribers())).append(";");
+            sb.append(joinIds(((RaceEvent) entity).getParticipants())).append(";");
 
             List<Double> lanes = ((RaceEvent) entity).getLanes();
             for (int i = 0; i < lanes.size(); i++) {
@@ -118,6 +109,12 @@ public class EventFileRepository extends AbstractFileRepository<Long, Event> {
         }
     }
 
+    private static String joinIds(Collection<?> users) {
+        return users.stream()
+                .map(user -> String.valueOf(((User) user).getId()))
+                .collect(Collectors.joining(","));
+    }
+
     /** Saves all events to the file. */
     public void save() {
         writeToFile();
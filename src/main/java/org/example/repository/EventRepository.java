@@ -1,9 +1,11 @@
 package org.example.repository;
 
+import org.example.domain.DuckResult;
 import org.example.domain.Event;
 import org.example.domain.Lane;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Repository interface for managing Event entities.
@@ -73,4 +75,43 @@ public interface EventRepository extends Repository<Long, Event> {
      * @param status  the new status of the event (true = active, false = inactive)
      */
     void updateStatusEvent(Long eventId, boolean status);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the IDs of the events a user is subscribed to.
+     *
+     * @param userId the ID of the user
+     * @return the IDs of the events the user is subscribed to
+     */
+    Set<Long> findSubscribedEventIds(Long userId);
+
+    /**
+     * Retrieves the events a user is subscribed to.
+     *
+     * @param userId the ID of the user
+     * @return the events the user is subscribed to, ordered by ID
+     */
+    List<Event> findSubscribedEvents(Long userId);
+
+    /**
+     * Stores the results of a race, replacing any results already stored for it.
+     *
+     * @param eventId the ID of the race event
+     * @param results the result of every lane, in lane order
+     */
+    void saveRaceResults(Long eventId, List<DuckResult> results);
+
+    /**
+     * Retrieves the stored results of a race.
+     *
+     * @param eventId the ID of the race event
+     * @return the result of every lane, in lane order, or null if no complete results are stored
+     */
+    List<DuckResult> findRaceResults(Long eventId);
+
+    /**
+     * Removes the stored results of a race.
+     *
+     * @param eventId the ID of the race event
+     */
+    void removeRaceResults(Long eventId);
+}
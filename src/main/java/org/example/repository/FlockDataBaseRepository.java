@@ -1,29 +1,27 @@
 package org.example.repository;
 
+import org.example.domain.Duck;
 import org.example.domain.Flock;
-import org.example.domain.FlyingDuck;
-import org.example.domain.FlyingSwimmingDuck;
-import org.example.domain.SwimmingDuck;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FlockDataBaseRepository implements FlockRepository{
-    private final String url;
-    private final String username;
-    private final String password;
+    private final DataSource dataSource;
 
-    public FlockDataBaseRepository(String url, String username, String password){
-        this.url = url;
-        this.username = username;
-        this.password = password;
+    public FlockDataBaseRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @Override
     public void add(Flock entity) {
         String sql = "INSERT INTO Flocks(id, flockname, flocktype) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, entity.getId());
             ps.setString(2, entity.getFlockName());
@@ -37,7 +35,7 @@ public class FlockDataBaseRepository implements FlockRepository{
     @Override
     public void remove(Flock entity) {
         String sql = "DELETE FROM Flocks WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, entity.getId());
             ps.executeUpdate();
@@ -48,48 +46,12 @@ public class FlockDataBaseRepository implements FlockRepository{
 
     @Override
     public Flock findById(Long id) {
-        try (Connection conn = DriverManager.getConnection(url, username, password)) {
-            String sqlFlock = "SELECT * FROM Flocks WHERE id = ?";
-            Flock flock;
-            try (PreparedStatement ps = conn.prepareStatement(sqlFlock)) {
-                ps.setLong(1, id);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    Long flockId = rs.getLong("id");
-                    String flockName = rs.getString("flockname");
-                    String flockType = rs.getString("flocktype");
-                    flock = new Flock(flockId, flockName, flockType);
-                } else {
-                    return null;
-                }
-            }
-
-            String sqlDucks = "SELECT d.* FROM Users d " +
-                              "JOIN Flock_Duck fd ON fd.duckId = d.id " +
-                              "WHERE fd.flockId = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sqlDucks)) {
-                ps.setLong(1, id);
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    Long duckId = rs.getLong("id");
-                    String userType = rs.getString("usertype");
-                    String username = rs.getString("username");
-                    String email = rs.getString("email");
-                    String password = rs.getString("password");
-                    String duckType = rs.getString("duckType");
-                    Double speed = rs.getDouble("speed");
-                    Double resistance = rs.getDouble("resistance");
-                    switch (duckType) {
-                        case "SWIMMING" ->
-                                flock.addDuck(new SwimmingDuck(duckId, userType, username, email, password, speed, resistance));
-                        case "FLYING" ->
-                                flock.addDuck(new FlyingDuck(duckId, userType, username, email, password, speed, resistance));
-                        case "FLYING_AND_SWIMMING" ->
-                                flock.addDuck(new FlyingSwimmingDuck(duckId, userType, username, email, password, speed, resistance));
-                    }
-                }
-                return flock;
-            }
+        String sql = "SELECT * FROM Flocks WHERE id = ?";
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            List<Flock> flocks = loadFlocks(conn, ps);
+            return flocks.isEmpty() ? null : flocks.getFirst();
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -98,27 +60,81 @@ public class FlockDataBaseRepository implements FlockRepository{
 
     @Override
     public Iterable<Flock> findAll() {
-        String sql = "SELECT * FROM Flocks";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        String sql = "SELECT * FROM Flocks ORDER BY id";
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
-            List<Flock> flocks = new ArrayList<>();
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Long flockId = rs.getLong("id");
-                Flock flock = findById(flockId);
-                flocks.add(flock);
-            }
-            return flocks;
+            return loadFlocks(conn, ps);
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    @Override
+    public List<Flock> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT * FROM Flocks WHERE id = ANY(?) ORDER BY id";
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+            Array flockIds = conn.createArrayOf("bigint", ids.toArray());
+            ps.setArray(1, flockIds);
+            List<Flock> flocks = loadFlocks(conn, ps);
+            flockIds.free();
+            return flocks;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Loads the flocks selected by the given statement together with their ducks.
+     * The memberships of all the flocks are read with a single {@code flockId = ANY(?)} query,
+     * so any number of flocks costs two round trips on one connection.
+     *
+     * @param conn the connection used for both queries
+     * @param flockStatement a prepared statement selecting rows of the {@code Flocks} table
+     * @return the flocks with their ducks, in the order returned by the statement
+     * @throws SQLException if any of the queries fails
+     */
+    private List<Flock> loadFlocks(Connection conn, PreparedStatement flockStatement) throws SQLException {
+        Map<Long, Flock> flocks = new LinkedHashMap<>();
+        try (ResultSet rs = flockStatement.executeQuery()) {
+            while (rs.next()) {
+                Long flockId = rs.getLong("id");
+                String flockName = rs.getString("flockname");
+                String flockType = rs.getString("flocktype");
+                flocks.put(flockId, new Flock(flockId, flockName, flockType));
+            }
+        }
+        if (flocks.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sqlDucks = "SELECT fd.flockId AS member_flock_id, d.* FROM Users d " +
+                          "JOIN Flock_Duck fd ON fd.duckId = d.id " +
+                          "WHERE fd.flockId = ANY(?)";
+        Array flockIds = conn.createArrayOf("bigint", flocks.keySet().toArray());
+        try (PreparedStatement ps = conn.prepareStatement(sqlDucks)) {
+            ps.setArray(1, flockIds);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                Flock flock = flocks.get(rs.getLong("member_flock_id"));
+                if (flock != null && UserRowMapper.mapRow(rs) instanceof Duck duck) {
+                    flock.addDuck(duck);
+                }
+            }
+        }
+        flockIds.free();
+        return new ArrayList<>(flocks.values());
+    }
+
     @Override
     public void addDuckToFlock(Long flockId, Long duckId){
         String sql = "INSERT INTO Flock_Duck(flockId, duckId) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, flockId);
             ps.setLong(2, duckId);
@@ -131,7 +147,7 @@ public class FlockDataBaseRepository implements FlockRepository{
     @Override
     public void removeDuckFromFlock(Long flockId, Long duckId){
         String sql = "DELETE FROM Flock_Duck WHERE flockId = ? AND duckId = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, flockId);
             ps.setLong(2, duckId);
@@ -2,6 +2,9 @@ package org.example.repository;
 
 import org.example.domain.Flock;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repository interface for managing Flock entities.
  */
@@ -22,4 +25,12 @@ public interface FlockRepository extends Repository<Long, Flock> {
      * @param duckId  the ID of the duck to be removed
      */
     void removeDuckFromFlock(Long flockId, Long duckId);
+
+    /**
+     * Finds the flocks with the given IDs, together with their ducks.
+     *
+     * @param ids the IDs of the flocks to load
+     * @return the flocks that exist among the given IDs, ordered by ID
+     */
+    List<Flock> findByIds(Collection<Long> ids);
 }
\ No newline at end of file
@@ -2,41 +2,104 @@ package org.example.repository;
 
 import org.example.domain.*;
 
+import javax.sql.DataSource;
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FriendshipDataBaseRepository implements FriendshipRepository{
-    private final String url;
-    private final String username;
-    private final String password;
+    private final DataSource dataSource;
 
-    public FriendshipDataBaseRepository(String url, String username, String password){
-        this.url = url;
-        this.username = username;
-        this.password = password;
+    public FriendshipDataBaseRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        createIndexes();
+    }
+
+    /**
+     * Creates the indexes serving both sides of the relation: the unique index on
+     * {@code (firstFriendId, secondFriendId)} forbids duplicates and answers existence checks,
+     * the one on {@code (secondFriendId, firstFriendId)} serves lookups from the larger id.
+     * The first time, the table is migrated to canonical pairs before the unique index is created.
+     *
+     * @throws IllegalStateException if the migration or an index creation fails
+     */
+    private void createIndexes() {
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            ResultSet rs = st.executeQuery("SELECT to_regclass('friendships_pair_key') IS NOT NULL");
+            if (!rs.next() || !rs.getBoolean(1)) {
+                migrateToCanonicalPairs(conn);
+            }
+            st.execute("CREATE INDEX IF NOT EXISTS friendships_second_first_idx ON friendships(secondFriendId, firstFriendId)");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the indexes of the friendships table", e);
+        }
+    }
+
+    /**
+     * One-off migration to canonical pairs, in a single transaction: every friendship stored more than once,
+     * in either orientation, keeps only its row with the smallest id, the remaining rows are rewritten with
+     * {@code firstFriendId < secondFriendId}, and the unique index is created. Once the index exists the
+     * migration is never run again.
+     */
+    private void migrateToCanonicalPairs(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("""
+                             DELETE FROM friendships f USING friendships g
+                             WHERE LEAST(f.firstFriendId, f.secondFriendId) = LEAST(g.firstFriendId, g.secondFriendId)
+                               AND GREATEST(f.firstFriendId, f.secondFriendId) = GREATEST(g.firstFriendId, g.secondFriendId)
+                               AND f.id > g.id
+                             """);
+            st.executeUpdate("UPDATE friendships SET firstFriendId = secondFriendId, secondFriendId = firstFriendId " +
+                             "WHERE firstFriendId > secondFriendId");
+            st.execute("CREATE UNIQUE INDEX friendships_pair_key ON friendships(firstFriendId, secondFriendId)");
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
     }
 
     @Override
     public void add(Friendship entity) {
         String sql = "INSERT INTO friendships(id, firstFriendId, secondFriendId) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setLong(1, entity.getId());
-            ps.setLong(2, entity.getFirstFriendId());
-            ps.setLong(3, entity.getSecondFriendId());
+            ps.setLong(2, Math.min(entity.getFirstFriendId(), entity.getSecondFriendId()));
+            ps.setLong(3, Math.max(entity.getFirstFriendId(), entity.getSecondFriendId()));
             ps.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    @Override
+    public boolean addIfAbsent(Friendship friendship) {
+        String sql = "INSERT INTO friendships(id, firstFriendId, secondFriendId) VALUES (?, ?, ?) " +
+                     "ON CONFLICT (firstFriendId, secondFriendId) DO NOTHING";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, friendship.getId());
+            ps.setLong(2, Math.min(friendship.getFirstFriendId(), friendship.getSecondFriendId()));
+            ps.setLong(3, Math.max(friendship.getFirstFriendId(), friendship.getSecondFriendId()));
+            return ps.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not save the friendship " + friendship.getId(), e);
+        }
+    }
+
     @Override
     public void remove(Friendship entity) {
         String sql = "DELETE FROM friendships WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, entity.getId());
             ps.executeUpdate();
@@ -45,10 +108,37 @@ public class FriendshipDataBaseRepository implements FriendshipRepository{
         }
     }
 
+    @Override
+    public boolean removeIfPresent(Friendship friendship) {
+        String sql = "DELETE FROM friendships WHERE id = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, friendship.getId());
+            return ps.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not remove the friendship " + friendship.getId(), e);
+        }
+    }
+
+    @Override
+    public Watermark getWatermark() {
+        String sql = "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM friendships";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                return new Watermark(rs.getLong(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not read the friendship watermark", e);
+        }
+        return new Watermark(0, 0);
+    }
+
     @Override
     public Friendship findById(Long id) {
         String sql = "SELECT * FROM friendships WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, id);
             ResultSet rs = ps.executeQuery();
@@ -67,7 +157,7 @@ public class FriendshipDataBaseRepository implements FriendshipRepository{
     @Override
     public Iterable<Friendship> findAll() {
         String sql = "SELECT * FROM friendships";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ResultSet rs = ps.executeQuery();
@@ -75,8 +165,9 @@ public class FriendshipDataBaseRepository implements FriendshipRepository{
 
             while (rs.next()) {
                 Long friendshipId = rs.getLong("id");
-                Friendship friendship = findById(friendshipId);
-                friendships.add(friendship);
+                Long firstFriendId = rs.getLong("firstFriendId");
+                Long secondFriendId = rs.getLong("secondFriendId");
+                friendships.add(new Friendship(friendshipId, firstFriendId, secondFriendId));
             }
 
             return friendships;
@@ -89,12 +180,11 @@ public class FriendshipDataBaseRepository implements FriendshipRepository{
     @Override
     public int countFriendsOfUser(Long userId) {
         String sql = """
-        SELECT COUNT(*) AS cnt
-        FROM friendships
-        WHERE firstFriendId = ? OR secondFriendId = ?
+        SELECT (SELECT COUNT(*) FROM friendships WHERE firstFriendId = ?)
+             + (SELECT COUNT(*) FROM friendships WHERE secondFriendId = ?) AS cnt
         """;
 
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setLong(1, userId);
@@ -111,55 +201,143 @@ public class FriendshipDataBaseRepository implements FriendshipRepository{
     }
 
     @Override
-    public List<User> findFriends(Long userId, int page, int pageSize) {
-        String sql = "SELECT u.* " +
-                "FROM users u " +
-                "JOIN friendships f ON (u.id = f.firstFriendId OR u.id = f.secondFriendId) " +
-                "WHERE (f.firstFriendId = ? OR f.secondFriendId = ?) AND u.id != ? " +
-                "LIMIT ? OFFSET ?";
-
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+    public Page<User> findFriendsAfter(Long userId, Long afterId, int pageSize) {
+        String sql = """
+                     SELECT u.* FROM users u
+                     JOIN (SELECT secondFriendId AS friendId FROM friendships WHERE firstFriendId = ? AND secondFriendId > ?
+                           UNION ALL
+                           SELECT firstFriendId AS friendId FROM friendships WHERE secondFriendId = ? AND firstFriendId > ?) f
+                       ON u.id = f.friendId
+                     ORDER BY u.id
+                     LIMIT ?
+                     """;
+        long cursor = afterId == null ? Long.MIN_VALUE : afterId;
+        List<User> friends = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-
             ps.setLong(1, userId);
-            ps.setLong(2, userId);
+            ps.setLong(2, cursor);
             ps.setLong(3, userId);
-            ps.setInt(4, pageSize);
-            ps.setInt(5, (page - 1) * pageSize);
+            ps.setLong(4, cursor);
+            ps.setInt(5, pageSize + 1);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    friends.add(user);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Page.fromLookahead(friends, pageSize, User::getId);
+    }
 
+    @Override
+    public boolean existsBetween(Long firstUserId, Long secondUserId) {
+        String sql = "SELECT 1 FROM friendships WHERE firstFriendId = ? AND secondFriendId = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, Math.min(firstUserId, secondUserId));
+            ps.setLong(2, Math.max(firstUserId, secondUserId));
             ResultSet rs = ps.executeQuery();
-            List<User> friends = new ArrayList<>();
+            return rs.next();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
 
+    /**
+     * Friend sets of the two users, each read from the two friendship indexes. The sets are
+     * intersected by the database, so only the mutual friends are sent back.
+     */
+    private static final String MUTUAL_FRIEND_IDS = """
+            (SELECT secondFriendId AS friendId FROM friendships WHERE firstFriendId = ?
+             UNION ALL
+             SELECT firstFriendId AS friendId FROM friendships WHERE secondFriendId = ?)
+            INTERSECT
+            (SELECT secondFriendId AS friendId FROM friendships WHERE firstFriendId = ?
+             UNION ALL
+             SELECT firstFriendId AS friendId FROM friendships WHERE secondFriendId = ?)
+            """;
+
+    @Override
+    public List<User> findMutualFriends(Long firstUserId, Long secondUserId) {
+        String sql = "SELECT u.* FROM users u JOIN (" + MUTUAL_FRIEND_IDS + ") m ON u.id = m.friendId ORDER BY u.id";
+        List<User> friends = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            setMutualFriendParameters(ps, firstUserId, secondUserId);
+            ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Long id = rs.getLong("id");
-                String userType = rs.getString("usertype");
-                String username = rs.getString("username");
-                String email = rs.getString("email");
-                String password = rs.getString("password");
-                if (userType.equals("Person")) {
-                    String surname = rs.getString("surname");
-                    String name = rs.getString("name");
-                    LocalDate birthdate = rs.getDate("birthdate").toLocalDate();
-                    String occupation = rs.getString("occupation");
-                    friends.add(new Person(id, userType, username, email, password, surname, name, birthdate, occupation));
-                } else if (userType.equals("Duck")) {
-                    String duckType = rs.getString("duckType");
-                    Double speed = rs.getDouble("speed");
-                    Double resistance = rs.getDouble("resistance");
-                    if (duckType.equals("SWIMMING")) {
-                        friends.add(new SwimmingDuck(id, userType, username, email, password, speed, resistance));
-                    } else if (duckType.equals("FLYING")) {
-                        friends.add(new FlyingDuck(id, userType, username, email, password, speed, resistance));
-                    } else if (duckType.equals("FLYING_AND_SWIMMING")) {
-                        friends.add(new FlyingSwimmingDuck(id, userType, username, email, password, speed, resistance));
-                    }
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    friends.add(user);
                 }
             }
-            return friends;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return friends;
+    }
 
+    @Override
+    public int countMutualFriends(Long firstUserId, Long secondUserId) {
+        String sql = "SELECT COUNT(*) AS cnt FROM (" + MUTUAL_FRIEND_IDS + ") m";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            setMutualFriendParameters(ps, firstUserId, secondUserId);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("cnt");
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return new ArrayList<>(); // always return an empty list if something fails
+        return 0;
+    }
+
+    @Override
+    public Map<Long, Integer> countMutualFriends(Long userId, Collection<Long> otherUserIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        if (otherUserIds.isEmpty()) {
+            return counts;
+        }
+        String sql = """
+                     WITH mine AS (
+                         SELECT secondFriendId AS friendId FROM friendships WHERE firstFriendId = ?
+                         UNION ALL
+                         SELECT firstFriendId AS friendId FROM friendships WHERE secondFriendId = ?
+                     ), theirs AS (
+                         SELECT firstFriendId AS userId, secondFriendId AS friendId FROM friendships WHERE firstFriendId = ANY(?)
+                         UNION ALL
+                         SELECT secondFriendId AS userId, firstFriendId AS friendId FROM friendships WHERE secondFriendId = ANY(?)
+                     )
+                     SELECT t.userId, COUNT(*) AS cnt FROM theirs t JOIN mine m ON m.friendId = t.friendId GROUP BY t.userId
+                     """;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            Array ids = conn.createArrayOf("bigint", otherUserIds.toArray());
+            ps.setLong(1, userId);
+            ps.setLong(2, userId);
+            ps.setArray(3, ids);
+            ps.setArray(4, ids);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                counts.put(rs.getLong("userId"), rs.getInt("cnt"));
+            }
+            ids.free();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return counts;
+    }
+
+    private void setMutualFriendParameters(PreparedStatement ps, Long firstUserId, Long secondUserId) throws SQLException {
+        ps.setLong(1, firstUserId);
+        ps.setLong(2, firstUserId);
+        ps.setLong(3, secondUserId);
+        ps.setLong(4, secondUserId);
     }
 }
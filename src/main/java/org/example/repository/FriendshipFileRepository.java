@@ -6,7 +6,9 @@ import org.example.domain.Person;
 import org.example.domain.User;
 
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Repository for storing {@link Friendship} entities in a file.
@@ -14,14 +16,58 @@ import java.util.List;
  * conversion between file lines and entity objects.
  */
 public class FriendshipFileRepository extends AbstractFileRepository<Long, Friendship> {
+    private final Map<Pair, Friendship> friendshipsByPair = new HashMap<>();
 
     /**
-     * Creates a file repository for friendships.
+     * Creates a file repository for friendships
+     * and indexes the loaded friendships by their canonical pair of user ids.
      *
      * @param fileName the name of the file where friendships are stored
      */
     public FriendshipFileRepository(String fileName) {
         super(fileName);
+        for (Friendship friendship : storage.values()) {
+            friendshipsByPair.put(Pair.of(friendship.getFirstFriendId(), friendship.getSecondFriendId()), friendship);
+        }
+    }
+
+    @Override
+    public void add(Friendship entity) {
+        Friendship previous = findById(entity.getId());
+        if (previous != null) {
+            friendshipsByPair.remove(Pair.of(previous.getFirstFriendId(), previous.getSecondFriendId()), previous);
+        }
+        super.add(entity);
+        friendshipsByPair.put(Pair.of(entity.getFirstFriendId(), entity.getSecondFriendId()), entity);
+    }
+
+    @Override
+    public void remove(Friendship entity) {
+        Friendship stored = findById(entity.getId());
+        super.remove(entity);
+        if (stored != null) {
+            friendshipsByPair.remove(Pair.of(stored.getFirstFriendId(), stored.getSecondFriendId()), stored);
+        }
+    }
+
+    /**
+     * Checks in constant time whether two users are friends, regardless of the order of the ids.
+     *
+     * @param firstUserId  the ID of one user
+     * @param secondUserId the ID of the other user
+     * @return true if a friendship between the two users exists, false otherwise
+     */
+    public boolean existsBetween(Long firstUserId, Long secondUserId) {
+        return friendshipsByPair.containsKey(Pair.of(firstUserId, secondUserId));
+    }
+
+    /**
+     * Unordered pair of user ids, stored as (smaller id, larger id).
+     */
+    private record Pair(long low, long high) {
+        static Pair of(long a, long b) {
+            return new Pair(Math.min(a, b), Math.max(a, b));
+        }
     }
 
     /**
@@ -1,15 +1,51 @@
 package org.example.repository;
 
 import org.example.domain.Friendship;
+import org.example.domain.Page;
 import org.example.domain.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Repository interface for managing Friendship entities.
  */
 public interface FriendshipRepository extends Repository<Long, Friendship> {
 
+    /**
+     * The number of stored friendships and the highest friendship ID, used to tell whether a copy of
+     * the friendships is still up to date.
+     *
+     * @param count the number of friendships
+     * @param maxId the highest friendship ID, or 0 if there are no friendships
+     */
+    record Watermark(long count, long maxId) {
+    }
+
+    /**
+     * Adds a friendship unless the two users are already friends.
+     *
+     * @param friendship the friendship to add
+     * @return true if the friendship was stored, false if the two users were already friends
+     * @throws RuntimeException if the friendship could not be stored
+     */
+    boolean addIfAbsent(Friendship friendship);
+
+    /**
+     * Removes a friendship if it is still stored.
+     *
+     * @param friendship the friendship to remove
+     * @return true if the friendship was removed, false if it was no longer stored
+     * @throws RuntimeException if the friendship could not be removed
+     */
+    boolean removeIfPresent(Friendship friendship);
+
+    /**
+     * @return the number of stored friendships and the highest friendship ID
+     */
+    Watermark getWatermark();
+
     /**
      * Counts the number of friends a user has.
      *
@@ -19,12 +55,48 @@ public interface FriendshipRepository extends Repository<Long, Friendship> {
     int countFriendsOfUser(Long userId);
 
     /**
-     * Retrieves a paginated list of friends for a given user.
+     * Retrieves the friends of a user whose ID is greater than the given cursor, ordered by ID.
      *
      * @param userId   the ID of the user
-     * @param page     the page number (starting from 0)
+     * @param afterId  the cursor returned with the previous page, or null for the first page
      * @param pageSize the number of friends per page
-     * @return a list of User objects representing the user's friends
+     * @return the page of friends and the cursor of the next page
+     */
+    Page<User> findFriendsAfter(Long userId, Long afterId, int pageSize);
+
+    /**
+     * Checks whether two users are friends, regardless of the order of the ids.
+     *
+     * @param firstUserId  the ID of one user
+     * @param secondUserId the ID of the other user
+     * @return true if a friendship between the two users exists, false otherwise
+     */
+    boolean existsBetween(Long firstUserId, Long secondUserId);
+
+    /**
+     * Retrieves the friends two users have in common.
+     *
+     * @param firstUserId  the ID of one user
+     * @param secondUserId the ID of the other user
+     * @return the mutual friends, ordered by ID
+     */
+    List<User> findMutualFriends(Long firstUserId, Long secondUserId);
+
+    /**
+     * Counts the friends two users have in common.
+     *
+     * @param firstUserId  the ID of one user
+     * @param secondUserId the ID of the other user
+     * @return the number of mutual friends
+     */
+    int countMutualFriends(Long firstUserId, Long secondUserId);
+
+    /**
+     * Counts, in one query, the friends a user has in common with each of several other users.
+     *
+     * @param userId       the ID of the user
+     * @param otherUserIds the IDs of the users to compare with
+     * @return the number of mutual friends keyed by the ID of the other user; users without mutual friends are left out
      */
-    List<User> findFriends(Long userId, int page, int pageSize);
-}
\ No newline at end of file
+    Map<Long, Integer> countMutualFriends(Long userId, Collection<Long> otherUserIds);
+}
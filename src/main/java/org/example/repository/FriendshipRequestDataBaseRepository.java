@@ -2,21 +2,31 @@ package org.example.repository;
 
 import org.example.domain.*;
 
+import javax.sql.DataSource;
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 public class FriendshipRequestDataBaseRepository implements FriendshipRequestRepository {
-    private final String url;
-    private final String username;
-    private final String password;
+    private final DataSource dataSource;
 
-    public FriendshipRequestDataBaseRepository(String url, String username, String password){
-        this.url = url;
-        this.username = username;
-        this.password = password;
+    public FriendshipRequestDataBaseRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        createIndexes();
+    }
+
+    /**
+     * Creates the indexes serving request lookups by sender and by recipient, if they do not exist yet.
+     */
+    private void createIndexes() {
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE INDEX IF NOT EXISTS friendship_requests_sender_idx ON friendship_requests(idsender, idrecipient)");
+            st.execute("CREATE INDEX IF NOT EXISTS friendship_requests_recipient_idx ON friendship_requests(idrecipient, idsender)");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
     }
 
     @Override
@@ -25,7 +35,7 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
                 "FROM users u " +
                 "JOIN friendship_requests fr ON u.id = fr.idsender OR u.id = fr.idrecipient " +
                 "WHERE (fr.idrecipient = ? OR fr.idsender = ?) AND fr.status = 'PENDING'";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, userId);
             ps.setLong(2, userId);
@@ -34,28 +44,9 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
             List<User> friendRequests = new ArrayList<>();
 
             while (rs.next()) {
-                Long id = rs.getLong("id");
-                String userType = rs.getString("usertype");
-                String username = rs.getString("username");
-                String email = rs.getString("email");
-                String password = rs.getString("password");
-                if (userType.equals("Person")) {
-                    String surname = rs.getString("surname");
-                    String name = rs.getString("name");
-                    LocalDate birthdate = rs.getDate("birthdate").toLocalDate();
-                    String occupation = rs.getString("occupation");
-                    friendRequests.add(new Person(id, userType, username, email, password, surname, name, birthdate, occupation));
-                } else if (userType.equals("Duck")) {
-                    String duckType = rs.getString("duckType");
-                    Double speed = rs.getDouble("speed");
-                    Double resistance = rs.getDouble("resistance");
-                    if (duckType.equals("SWIMMING")) {
-                        friendRequests.add(new SwimmingDuck(id, userType, username, email, password, speed, resistance));
-                    } else if (duckType.equals("FLYING")) {
-                        friendRequests.add(new FlyingDuck(id, userType, username, email, password, speed, resistance));
-                    } else if (duckType.equals("FLYING_AND_SWIMMING")) {
-                        friendRequests.add(new FlyingSwimmingDuck(id, userType, username, email, password, speed, resistance));
-                    }
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    friendRequests.add(user);
                 }
             }
             return friendRequests;
@@ -67,7 +58,7 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
     @Override
     public void sendFriendRequest(Long userId, Long friendId) {
         String sql = "INSERT INTO friendship_requests (idsender, idrecipient, status) VALUES (?, ?, 'PENDING')";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, userId);
             ps.setLong(2, friendId);
@@ -80,7 +71,7 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
     @Override
     public Optional<FriendshipRequest> save(FriendshipRequest entity) {
         String sql = "INSERT INTO friendship_requests (idsender, idrecipient, status) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, entity.getSender().getId());
             ps.setLong(2, entity.getRecipient().getId());
@@ -106,35 +97,16 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
                 "FROM users u " +
                 "JOIN friendship_requests fr ON u.id = fr.idsender " +
                 "WHERE fr.idrecipient = ? AND fr.status = 'PENDING'";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, userId);
             ResultSet rs = ps.executeQuery();
 
             List<User> friendRequests = new ArrayList<>();
             while (rs.next()) {
-                Long id = rs.getLong("id");
-                String userType = rs.getString("usertype");
-                String username = rs.getString("username");
-                String email = rs.getString("email");
-                String password = rs.getString("password");
-                if (userType.equals("Person")) {
-                    String surname = rs.getString("surname");
-                    String name = rs.getString("name");
-                    LocalDate birthdate = rs.getDate("birthdate").toLocalDate();
-                    String occupation = rs.getString("occupation");
-                    friendRequests.add(new Person(id, userType, username, email, password, surname, name, birthdate, occupation));
-                } else if (userType.equals("Duck")) {
-                    String duckType = rs.getString("duckType");
-                    Double speed = rs.getDouble("speed");
-                    Double resistance = rs.getDouble("resistance");
-                    if (duckType.equals("SWIMMING")) {
-                        friendRequests.add(new SwimmingDuck(id, userType, username, email, password, speed, resistance));
-                    } else if (duckType.equals("FLYING")) {
-                        friendRequests.add(new FlyingDuck(id, userType, username, email, password, speed, resistance));
-                    } else if (duckType.equals("FLYING_AND_SWIMMING")) {
-                        friendRequests.add(new FlyingSwimmingDuck(id, userType, username, email, password, speed, resistance));
-                    }
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    friendRequests.add(user);
                 }
             }
             return friendRequests;
@@ -143,6 +115,19 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
         }
     }
 
+    @Override
+    public boolean hasPendingRequests(Long recipientId) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM friendship_requests WHERE idrecipient = ? AND status = 'PENDING')";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, recipientId);
+            ResultSet rs = ps.executeQuery();
+            return rs.next() && rs.getBoolean(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error checking friend requests for user with ID " + recipientId + ": " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void setPreparedStatementParametersForUpdate(PreparedStatement statement, FriendshipRequest entity) throws SQLException {
         statement.setLong(1, entity.getSender().getId());
@@ -154,7 +139,7 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
     @Override
     public void updateFR(FriendshipRequest entity) {
         String sql = "UPDATE friendship_requests SET idsender = ?, idrecipient = ?, status = ? WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             setPreparedStatementParametersForUpdate(ps, entity);
             ps.executeUpdate();
@@ -166,34 +151,12 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
     @Override
     public Optional<User> findUserById(Long userId) {
         String sql = "SELECT * FROM users WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, userId);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                Long id = rs.getLong("id");
-                String userType = rs.getString("usertype");
-                String username = rs.getString("username");
-                String email = rs.getString("email");
-                String password = rs.getString("password");
-                if (userType.equals("Person")) {
-                    String surname = rs.getString("surname");
-                    String name = rs.getString("name");
-                    LocalDate birthdate = rs.getDate("birthdate").toLocalDate();
-                    String occupation = rs.getString("occupation");
-                    return Optional.of(new Person(id, userType, username, email, password, surname, name, birthdate, occupation));
-                } else if (userType.equals("Duck")) {
-                    String duckType = rs.getString("duckType");
-                    Double speed = rs.getDouble("speed");
-                    Double resistance = rs.getDouble("resistance");
-                    if (duckType.equals("SWIMMING")) {
-                        return Optional.of(new SwimmingDuck(id, userType, username, email, password, speed, resistance));
-                    } else if (duckType.equals("FLYING")) {
-                        return Optional.of(new FlyingDuck(id, userType, username, email, password, speed, resistance));
-                    } else if (duckType.equals("FLYING_AND_SWIMMING")) {
-                        return Optional.of(new FlyingSwimmingDuck(id, userType, username, email, password, speed, resistance));
-                    }
-                }
+                return Optional.ofNullable(UserRowMapper.mapRow(rs));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error finding user by ID: " + e.getMessage(), e);
@@ -221,7 +184,7 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
     @Override
     public Optional<FriendshipRequest> findRequestBySenderAndRecipient(Long senderId, Long recipientId) {
         String sql = "SELECT * FROM friendship_requests WHERE idsender = ? AND idrecipient = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, senderId);
             ps.setLong(2, recipientId);
@@ -254,7 +217,7 @@ public class FriendshipRequestDataBaseRepository implements FriendshipRequestRep
     public Iterable<FriendshipRequest> findAll() {
         List<FriendshipRequest> requests = new ArrayList<>();
         String sql = "SELECT * FROM friendship_requests";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
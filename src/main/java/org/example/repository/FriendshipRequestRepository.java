@@ -46,6 +46,14 @@ public interface FriendshipRequestRepository extends Repository<Long, Friendship
      */
     List<User> getFriendRequestsUser(Long userId);
 
+    /**
+     * Checks whether a user has received friend requests that are still pending.
+     *
+     * @param recipientId the ID of the user receiving friend requests
+     * @return true if at least one request to the user is pending
+     */
+    boolean hasPendingRequests(Long recipientId);
+
     /**
      * Sets parameters of a PreparedStatement for updating a FriendshipRequest entity.
      *
@@ -0,0 +1,305 @@
+package org.example.repository;
+
+import org.example.domain.GraphChanges;
+import org.example.domain.SocialGraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores a {@link SocialGraph} in a compact binary file, so the friendship graph can be restored
+ * after a restart without scanning the {@code friendships} table.
+ *
+ * <p>The snapshot holds a header (magic number, format version, number of users, number of
+ * neighbor entries, highest friendship id) followed by the three CSR arrays of the graph: the id of
+ * every user, the neighbor offsets and the neighbor indices, all little-endian. It is written to a
+ * temporary file and atomically moved over the previous snapshot, so a crash never leaves a half
+ * written snapshot. Loading reads the file into a heap buffer and bulk-copies each array out of it;
+ * there is nothing to parse, sort or remap. The file is not memory-mapped, so it can be replaced right
+ * after loading, which is not possible on every platform while a mapping is live.</p>
+ *
+ * <p>Changes made after the snapshot are appended to a delta log next to it ({@code <snapshot>.log}),
+ * one fixed-size record per added friendship, removed friendship or removed user. The log is
+ * replayed when the snapshot is loaded and emptied every time a new snapshot is saved. Replaying
+ * a record whose effect is already in the snapshot changes nothing, so a crash between saving
+ * a snapshot and emptying the log is harmless.</p>
+ *
+ * <p>The snapshot only stands in for the database while both agree: {@link #load} compares the number
+ * of friendships and the highest friendship id of the loaded graph with the {@link FriendshipRepository.Watermark}
+ * of the database, and rejects the snapshot if they differ, for instance because friendships were
+ * written while the snapshot was not being kept up to date.</p>
+ *
+ * <p>A store holds an exclusive lock on {@code <snapshot>.lock} until it is closed, so only one process
+ * appends to the log and replaces the snapshot. A store that cannot take the lock does nothing: it loads
+ * no snapshot and records no change, and the graph is rebuilt from the database instead.</p>
+ */
+public class GraphSnapshotStore implements AutoCloseable {
+    private static final int MAGIC = 0x53475246;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+    private static final int RECORD_BYTES = 25;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    private static final byte FRIENDSHIP_ADDED = 1;
+    private static final byte FRIENDSHIP_REMOVED = 2;
+    private static final byte USER_REMOVED = 3;
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final FileLock lock;
+    private long maxFriendshipId;
+    private int unsavedRecords;
+
+    /**
+     * Creates a store for the given snapshot file and locks it for this process. Neither the snapshot
+     * nor its log need to exist yet.
+     *
+     * @param snapshotFile the file holding the snapshot
+     */
+    public GraphSnapshotStore(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        this.logFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".log");
+        this.lock = tryLock(snapshotFile.resolveSibling(snapshotFile.getFileName() + ".lock"));
+        if (lock == null) {
+            System.out.println("The graph snapshot " + snapshotFile + " is in use by another process; "
+                    + "the friendship graph will be built from the database");
+        }
+    }
+
+    private static FileLock tryLock(Path lockFile) {
+        FileChannel channel = null;
+        try {
+            Path directory = lockFile.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return lock;
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            // the lock is held elsewhere, or the directory is not writable: run without a snapshot
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Loads the snapshot and replays the delta log on top of it. If the log was not empty, the result
+     * is saved as the new snapshot.
+     *
+     * @param watermark the number of friendships and the highest friendship id in the database
+     * @return the stored graph, or null if there is no readable snapshot, it does not match the
+     * watermark, or the store is not locked by this process
+     */
+    public synchronized SocialGraph load(FriendshipRepository.Watermark watermark) {
+        if (!isLocked() || !Files.exists(snapshotFile)) {
+            return null;
+        }
+        SocialGraph graph;
+        long storedMaxId;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile)).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                System.out.println("Ignoring graph snapshot with an unknown format: " + snapshotFile);
+                return null;
+            }
+            int userCount = buffer.getInt();
+            int neighborCount = buffer.getInt();
+            storedMaxId = buffer.getLong();
+            long[] ids = new long[userCount];
+            int[] offsets = new int[userCount + 1];
+            int[] neighbors = new int[neighborCount];
+            buffer.asLongBuffer().get(ids);
+            buffer.position(buffer.position() + Long.BYTES * userCount);
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + Integer.BYTES * offsets.length);
+            buffer.asIntBuffer().get(neighbors);
+            graph = SocialGraph.fromCsr(ids, offsets, neighbors);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        GraphChanges changes = new GraphChanges();
+        long maxId = storedMaxId;
+        int records = 0;
+        try {
+            if (Files.exists(logFile)) {
+                ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(logFile)).order(ByteOrder.LITTLE_ENDIAN);
+                while (log.remaining() >= RECORD_BYTES) {
+                    byte type = log.get();
+                    long first = log.getLong();
+                    long second = log.getLong();
+                    long friendshipId = log.getLong();
+                    if (type == FRIENDSHIP_ADDED) {
+                        changes.friendshipAdded(first, second);
+                        maxId = Math.max(maxId, friendshipId);
+                    } else if (type == FRIENDSHIP_REMOVED) {
+                        changes.friendshipRemoved(first, second);
+                    } else {
+                        changes.userRemoved(first);
+                    }
+                    records++;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        graph = changes.applyTo(graph);
+
+        if (graph.edgeCount() != watermark.count() || maxId != watermark.maxId()) {
+            System.out.println("The graph snapshot " + snapshotFile + " does not match the database ("
+                    + graph.edgeCount() + " friendships up to id " + maxId + " instead of "
+                    + watermark.count() + " up to id " + watermark.maxId() + "); rebuilding it");
+            return null;
+        }
+        maxFriendshipId = maxId;
+        if (records > 0) {
+            save(graph, maxId);
+        }
+        return graph;
+    }
+
+    /**
+     * Atomically replaces the snapshot with the given graph and empties the delta log.
+     *
+     * @param graph           the graph to store
+     * @param maxFriendshipId the highest id of the friendships forming the graph
+     */
+    public synchronized void save(SocialGraph graph, long maxFriendshipId) {
+        if (!isLocked()) {
+            return;
+        }
+        Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        int userCount = graph.size();
+        int neighborCount = 2 * graph.edgeCount();
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(userCount).putInt(neighborCount).putLong(maxFriendshipId);
+                for (int v = 0; v < userCount; v++) {
+                    flushIfFull(channel, buffer, Long.BYTES);
+                    buffer.putLong(graph.idOf(v));
+                }
+                flushIfFull(channel, buffer, Integer.BYTES);
+                buffer.putInt(0);
+                for (int v = 0; v < userCount; v++) {
+                    flushIfFull(channel, buffer, Integer.BYTES);
+                    buffer.putInt(graph.neighborEnd(v));
+                }
+                for (int p = 0; p < neighborCount; p++) {
+                    flushIfFull(channel, buffer, Integer.BYTES);
+                    buffer.putInt(graph.neighborAt(p));
+                }
+                flushIfFull(channel, buffer, WRITE_BUFFER_BYTES);
+                channel.force(true);
+            }
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(logFile);
+            this.maxFriendshipId = maxFriendshipId;
+            unsavedRecords = 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves the given graph as the new snapshot if changes were logged since the last save, so the
+     * next start does not have to replay them.
+     *
+     * @param graph the graph with every logged change applied
+     */
+    public synchronized void checkpoint(SocialGraph graph) {
+        if (unsavedRecords > 0) {
+            save(graph, maxFriendshipId);
+        }
+    }
+
+    private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Records in the delta log that a friendship was stored in the database.
+     */
+    public void friendshipAdded(long friendshipId, long firstUserId, long secondUserId) {
+        appendRecord(FRIENDSHIP_ADDED, firstUserId, secondUserId, friendshipId);
+    }
+
+    /**
+     * Records in the delta log that a friendship was deleted from the database.
+     */
+    public void friendshipRemoved(long firstUserId, long secondUserId) {
+        appendRecord(FRIENDSHIP_REMOVED, firstUserId, secondUserId, 0);
+    }
+
+    /**
+     * Records in the delta log that a user was deleted from the database together with their friendships.
+     */
+    public void userRemoved(long userId) {
+        appendRecord(USER_REMOVED, userId, userId, 0);
+    }
+
+    private synchronized void appendRecord(byte type, long first, long second, long friendshipId) {
+        if (!isLocked()) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        record.put(type).putLong(first).putLong(second).putLong(friendshipId).flip();
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (type == FRIENDSHIP_ADDED) {
+                maxFriendshipId = Math.max(maxFriendshipId, friendshipId);
+            }
+            unsavedRecords++;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean isLocked() {
+        return lock != null && lock.isValid();
+    }
+
+    /**
+     * Releases the lock on the snapshot, letting another process use it.
+     */
+    @Override
+    public synchronized void close() {
+        if (!isLocked()) {
+            return;
+        }
+        try {
+            lock.channel().close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.repository;
+
+/**
+ * Source of unique identifiers for new entities.
+ * Services ask an allocator for the id of every entity they create instead of scanning
+ * the repository for the current maximum, so allocating an id does not depend on the table size.
+ */
+public interface IdAllocator {
+
+    /**
+     * Returns an identifier that has not been handed out before by this allocator
+     * or by any other allocator sharing the same backing store.
+     *
+     * @return a new unique identifier
+     */
+    Long nextId();
+}
@@ -2,26 +2,26 @@ package org.example.repository;
 
 import org.example.domain.Message;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MessageDataBaseRepository implements MessageRepository {
-    private final String url;
-    private final String username;
-    private final String password;
+    private final DataSource dataSource;
 
-    public MessageDataBaseRepository(String url, String username, String password){
-        this.url = url;
-        this.username = username;
-        this.password = password;
+    public MessageDataBaseRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @Override
     public void add(Message message) {
         String sql = "INSERT INTO messages (id, text, timestamp, sender_id, recipient_id, reply_to) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, message.getId());
             ps.setString(2, message.getText());
@@ -41,24 +41,11 @@ public class MessageDataBaseRepository implements MessageRepository {
 
     @Override
     public Message findById(Long id) {
-        String sql = "SELECT * FROM messages WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
-            PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                Long idMessage = rs.getLong("id");
-                String text = rs.getString("text");
-                LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
-                Long senderId = rs.getLong("sender_id");
-                Long recipientId = rs.getLong("recipient_id");
-                Message message = new Message(idMessage, text, timestamp, senderId, recipientId);
-                Long replyToId = rs.getLong("reply_to");
-                if (!rs.wasNull()) {
-                    message.setReplyTo(findById(replyToId));
-                }
-                return message;
-            }
+        try (Connection conn = dataSource.getConnection()) {
+            Map<Long, Long> replyToIds = new HashMap<>();
+            Map<Long, Message> chain = findReplyChains(conn, List.of(id), replyToIds);
+            linkReplies(chain, replyToIds);
+            return chain.get(id);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -69,26 +56,28 @@ public class MessageDataBaseRepository implements MessageRepository {
     public List<Message> getMessagesBetweenUsers(Long userId1, Long userId2) {
         String sql = "SELECT * FROM messages WHERE (sender_id = ? AND recipient_id = ?) OR (sender_id = ? AND recipient_id = ?) ORDER BY timestamp";
         List<Message> messages = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, userId1);
             ps.setLong(2, userId2);
             ps.setLong(3, userId2);
             ps.setLong(4, userId1);
             ResultSet rs = ps.executeQuery();
+            Map<Long, Message> conversation = new LinkedHashMap<>();
+            Map<Long, Long> replyToIds = new HashMap<>();
             while (rs.next()) {
-                Long idMessage = rs.getLong("id");
-                String text = rs.getString("text");
-                LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
-                Long senderId = rs.getLong("sender_id");
-                Long recipientId = rs.getLong("recipient_id");
-                Message message = new Message(idMessage, text, timestamp, senderId, recipientId);
-                Long replyToId = rs.getLong("reply_to");
-                if (!rs.wasNull()) {
-                    message.setReplyTo(findById(replyToId));
-                }
-                messages.add(message);
+                Message message = mapMessage(rs, replyToIds);
+                conversation.put(message.getId(), message);
             }
+            messages.addAll(conversation.values());
+
+            List<Long> missingIds = replyToIds.values().stream()
+                    .filter(replyToId -> !conversation.containsKey(replyToId))
+                    .distinct()
+                    .toList();
+            Map<Long, Message> identityMap = new HashMap<>(conversation);
+            findReplyChains(conn, missingIds, replyToIds).forEach(identityMap::putIfAbsent);
+            linkReplies(identityMap, replyToIds);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -100,19 +89,94 @@ public class MessageDataBaseRepository implements MessageRepository {
 
     @Override
     public Iterable<Message> findAll() {
-        try (Connection conn = DriverManager.getConnection(url, username, password);
-             PreparedStatement ps = conn.prepareStatement("SELECT * FROM messages")) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM messages ORDER BY timestamp")) {
             ResultSet rs = ps.executeQuery();
-            List<Message> messages = new ArrayList<>();
+            Map<Long, Message> messages = new LinkedHashMap<>();
+            Map<Long, Long> replyToIds = new HashMap<>();
             while (rs.next()) {
-                Long messageId = rs.getLong("id");
-                Message message = findById(messageId);
-                messages.add(message);
+                Message message = mapMessage(rs, replyToIds);
+                messages.put(message.getId(), message);
             }
-            return messages;
+            linkReplies(messages, replyToIds);
+            return new ArrayList<>(messages.values());
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
+
+    /**
+     * Loads the given messages together with their whole reply chains, in one recursive query.
+     * {@code UNION} rather than {@code UNION ALL} stops the recursion at messages that were already reached,
+     * so chains sharing a target are read once.
+     *
+     * @param conn the connection to use
+     * @param ids the IDs of the messages to load
+     * @param replyToIds the map receiving the message ID to reply target ID association of the loaded messages
+     * @return the loaded messages, keyed by ID, not yet linked to their reply targets
+     * @throws SQLException if the query fails
+     */
+    private Map<Long, Message> findReplyChains(Connection conn, List<Long> ids, Map<Long, Long> replyToIds) throws SQLException {
+        Map<Long, Message> chain = new HashMap<>();
+        if (ids.isEmpty()) {
+            return chain;
+        }
+        String sql = """
+                     WITH RECURSIVE chain AS (
+                         SELECT * FROM messages WHERE id = ANY(?)
+                         UNION
+                         SELECT m.* FROM messages m JOIN chain c ON m.id = c.reply_to
+                     )
+                     SELECT * FROM chain
+                     """;
+        Array messageIds = conn.createArrayOf("bigint", ids.toArray());
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setArray(1, messageIds);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                Message message = mapMessage(rs, replyToIds);
+                chain.put(message.getId(), message);
+            }
+        }
+        messageIds.free();
+        return chain;
+    }
+
+    /**
+     * Builds a message from the current row, recording the ID it replies to (if any) instead of resolving it.
+     *
+     * @param rs a result set positioned on a row of the {@code messages} table
+     * @param replyToIds the map receiving the message ID to reply target ID association
+     * @return the message stored in the row, without its reply target
+     * @throws SQLException if a column cannot be read
+     */
+    private Message mapMessage(ResultSet rs, Map<Long, Long> replyToIds) throws SQLException {
+        Long idMessage = rs.getLong("id");
+        String text = rs.getString("text");
+        LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+        Long senderId = rs.getLong("sender_id");
+        Long recipientId = rs.getLong("recipient_id");
+        Message message = new Message(idMessage, text, timestamp, senderId, recipientId);
+        long replyToId = rs.getLong("reply_to");
+        if (!rs.wasNull()) {
+            replyToIds.put(idMessage, replyToId);
+        }
+        return message;
+    }
+
+    /**
+     * Sets the reply target of every message whose target is present in the identity map.
+     *
+     * @param identityMap the loaded messages, keyed by ID
+     * @param replyToIds the message ID to reply target ID association
+     */
+    private void linkReplies(Map<Long, Message> identityMap, Map<Long, Long> replyToIds) {
+        for (Map.Entry<Long, Long> entry : replyToIds.entrySet()) {
+            Message message = identityMap.get(entry.getKey());
+            if (message != null) {
+                message.setReplyTo(identityMap.get(entry.getValue()));
+            }
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package org.example.repository;
+
+/**
+ * Snapshot of the state of a {@link ConnectionPool}, intended for monitoring.
+ *
+ * @param active           the number of connections currently borrowed
+ * @param idle             the number of open connections waiting in the pool
+ * @param maxPoolSize      the upper bound of open connections
+ * @param acquisitions     the total number of successful {@code getConnection} calls
+ * @param timeouts         the number of {@code getConnection} calls that gave up after the max wait
+ * @param averageWaitMillis the average time spent waiting for a connection, in milliseconds
+ * @param maxWaitMillis    the longest time spent waiting for a connection, in milliseconds
+ * @param leaksDetected    the number of connections reported as held longer than the leak threshold
+ */
+public record PoolMetrics(int active,
+                          int idle,
+                          int maxPoolSize,
+                          long acquisitions,
+                          long timeouts,
+                          double averageWaitMillis,
+                          double maxWaitMillis,
+                          long leaksDetected) {
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", maxPoolSize=" + maxPoolSize +
+                ", acquisitions=" + acquisitions +
+                ", timeouts=" + timeouts +
+                ", averageWaitMillis=" + String.format("%.3f", averageWaitMillis) +
+                ", maxWaitMillis=" + String.format("%.3f", maxWaitMillis) +
+                ", leaksDetected=" + leaksDetected +
+                '}';
+    }
+}
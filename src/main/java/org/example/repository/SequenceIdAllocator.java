@@ -0,0 +1,109 @@
+package org.example.repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * {@link IdAllocator} using the hi/lo algorithm over a PostgreSQL sequence.
+ * Every {@code nextval} of the sequence reserves a block of {@code blockSize} ids
+ * ({@code hi * blockSize} up to {@code hi * blockSize + blockSize - 1}) that are then handed out
+ * from memory, so the database is contacted once per block. Because {@code nextval} is atomic,
+ * several clients sharing the same table never receive the same id.
+ *
+ * <p>The sequence is created on first use and, the first time it is used, seeded above the
+ * largest id already present in the table.</p>
+ */
+public class SequenceIdAllocator implements IdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    private final DataSource dataSource;
+    private final String tableName;
+    private final String sequenceName;
+    private final int blockSize;
+
+    private long nextId;
+    private long blockEnd;
+    private boolean initialized;
+
+    /**
+     * Creates an allocator for the given table with the default block size.
+     *
+     * @param dataSource the data source used to reach the sequence
+     * @param tableName the table whose {@code id} column receives the allocated ids
+     */
+    public SequenceIdAllocator(DataSource dataSource, String tableName) {
+        this(dataSource, tableName, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an allocator for the given table.
+     *
+     * @param dataSource the data source used to reach the sequence
+     * @param tableName the table whose {@code id} column receives the allocated ids
+     * @param blockSize the number of ids reserved with each call to the sequence
+     */
+    public SequenceIdAllocator(DataSource dataSource, String tableName, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.dataSource = dataSource;
+        this.tableName = tableName.toLowerCase();
+        this.sequenceName = this.tableName + "_id_hilo_seq";
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public synchronized Long nextId() {
+        if (nextId >= blockEnd) {
+            long hi = nextHi();
+            nextId = hi * blockSize;
+            blockEnd = nextId + blockSize;
+        }
+        return nextId++;
+    }
+
+    /**
+     * Reserves the next block by advancing the sequence.
+     *
+     * @return the high part of the reserved block
+     */
+    private long nextHi() {
+        try (Connection conn = dataSource.getConnection()) {
+            if (!initialized) {
+                ensureSequence(conn);
+                initialized = true;
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT nextval(CAST(? AS regclass))")) {
+                ps.setString(1, sequenceName);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not allocate ids for table " + tableName, e);
+        }
+    }
+
+    /**
+     * Creates the sequence if it is missing and, if it has never been used, moves it past
+     * the block containing the largest id already stored in the table.
+     */
+    private void ensureSequence(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE SEQUENCE IF NOT EXISTS " + sequenceName + " MINVALUE 0 START 0");
+        }
+        String sqlSeed = "SELECT setval(CAST(? AS regclass), (SELECT COALESCE(MAX(id), 0) FROM " + tableName + ") / ? + 1, false) " +
+                         "WHERE (SELECT last_value IS NULL FROM pg_sequences WHERE sequencename = ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sqlSeed)) {
+            ps.setString(1, sequenceName);
+            ps.setLong(2, blockSize);
+            ps.setString(3, sequenceName);
+            ps.executeQuery().close();
+        }
+    }
+}
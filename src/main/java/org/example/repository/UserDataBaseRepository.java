@@ -2,26 +2,60 @@ package org.example.repository;
 
 import org.example.domain.*;
 
+import javax.sql.DataSource;
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public class UserDataBaseRepository implements UserRepository{
-    private final String url;
-    private final String username;
-    private final String password;
+    private final DataSource dataSource;
 
-    public UserDataBaseRepository(String url, String username, String password) {
-        this.url = url;
-        this.username = username;
-        this.password = password;
+    public UserDataBaseRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        createIndexes();
+    }
+
+    /**
+     * Creates the unique indexes used by {@link #findByUsername(String)} and {@link #findByEmail(String)},
+     * and the pattern index serving username prefix searches, if they do not exist yet.
+     * Existing duplicate usernames or emails are reported instead of being deleted, since they belong to
+     * real accounts; the application does not start until they are resolved.
+     *
+     * @throws IllegalStateException if the table holds duplicates or an index cannot be created
+     */
+    private void createIndexes() {
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            for (String column : List.of("username", "email")) {
+                List<String> duplicates = findDuplicates(st, column);
+                if (!duplicates.isEmpty()) {
+                    throw new IllegalStateException("Cannot create the unique index on users(" + column
+                            + "), these values are used by more than one user: " + duplicates);
+                }
+            }
+            st.execute("CREATE UNIQUE INDEX IF NOT EXISTS users_username_key ON users(username)");
+            st.execute("CREATE UNIQUE INDEX IF NOT EXISTS users_email_key ON users(email)");
+            st.execute("CREATE INDEX IF NOT EXISTS users_username_prefix_idx ON users(username text_pattern_ops)");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the indexes of the users table", e);
+        }
+    }
+
+    private List<String> findDuplicates(Statement st, String column) throws SQLException {
+        List<String> duplicates = new ArrayList<>();
+        ResultSet rs = st.executeQuery("SELECT " + column + " FROM users GROUP BY " + column + " HAVING COUNT(*) > 1 LIMIT 10");
+        while (rs.next()) {
+            duplicates.add(rs.getString(1));
+        }
+        return duplicates;
     }
 
     @Override
     public void add(User entity) {
         String sql = "INSERT INTO users (id, userType, username, email, password, surname, name, birthdate, occupation, duckType, speed, resistance) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, entity.getId());
             ps.setString(2, entity.getUserType());
@@ -62,7 +96,7 @@ public class UserDataBaseRepository implements UserRepository{
     @Override
     public void remove(User entity) {
         String sql = "DELETE FROM users WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, entity.getId());
             ps.executeUpdate();
@@ -74,34 +108,12 @@ public class UserDataBaseRepository implements UserRepository{
     @Override
     public User findById(Long id) {
         String sql = "SELECT * FROM users WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, id);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                Long userId = rs.getLong("id");
-                String userType = rs.getString("usertype");
-                String username = rs.getString("username");
-                String email = rs.getString("email");
-                String password = rs.getString("password");
-                if (userType.equals("Person")) {
-                    String surname = rs.getString("surname");
-                    String name = rs.getString("name");
-                    LocalDate birthdate = rs.getDate("birthdate").toLocalDate();
-                    String occupation = rs.getString("occupation");
-                    return new Person(userId, userType, username, email, password, surname, name, birthdate, occupation);
-                } else if (userType.equals("Duck")) {
-                    String duckType = rs.getString("duckType");
-                    Double speed = rs.getDouble("speed");
-                    Double resistance = rs.getDouble("resistance");
-                    if (duckType.equals("SWIMMING")) {
-                        return new SwimmingDuck(userId, userType, username, email, password, speed, resistance);
-                    } else if (duckType.equals("FLYING")) {
-                        return new FlyingDuck(userId, userType, username, email, password, speed, resistance);
-                    } else if (duckType.equals("FLYING_AND_SWIMMING")) {
-                        return new FlyingSwimmingDuck(userId, userType, username, email, password, speed, resistance);
-                    }
-                }
+                return UserRowMapper.mapRow(rs);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -111,14 +123,15 @@ public class UserDataBaseRepository implements UserRepository{
 
     @Override
     public Iterable<User> findAll() {
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement("SELECT * FROM users")) {
             ResultSet rs = ps.executeQuery();
             List<User> users = new ArrayList<>();
             while (rs.next()) {
-                Long userId = rs.getLong("id");
-                User user = findById(userId);
-                users.add(user);
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    users.add(user);
+                }
             }
             return users;
         } catch (SQLException e) {
@@ -128,32 +141,33 @@ public class UserDataBaseRepository implements UserRepository{
     }
 
     @Override
-    public List<User> getUsersPage(Long pageNumber, Long pageSize) {
-        String sql = "SELECT * FROM users ORDER BY id LIMIT ? OFFSET ?";
-        Long offset = (pageNumber - 1) * pageSize;
-        List<User> users = new ArrayList<>();
-        try(Connection conn = DriverManager.getConnection(url, username, password);
+    public Long getUsersCount() {
+        String sql = "SELECT COUNT(*) FROM users";
+        Long count = 0L;
+        try(Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, pageSize);
-            ps.setLong(2, offset);
             ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Long userId = rs.getLong("id");
-                User user = findById(userId);
-                users.add(user);
+            if (rs.next()) {
+                count = rs.getLong(1);
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return users;
+        return count;
     }
 
     @Override
-    public Long getUsersCount() {
-        String sql = "SELECT COUNT(*) FROM users";
+    public Long getDucksCountByType(String type) {
+        String sql = """
+                     SELECT COUNT(*)
+                     FROM users
+                     WHERE usertype = 'Duck'
+                     AND (ducktype = ? OR ducktype = 'FLYING_AND_SWIMMING')
+                     """;
         Long count = 0L;
-        try(Connection conn = DriverManager.getConnection(url, username, password);
+        try(Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, type);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
                 count = rs.getLong(1);
@@ -165,53 +179,151 @@ public class UserDataBaseRepository implements UserRepository{
     }
 
     @Override
-    public List<User> findDucksPageByType(String type, Long pageNumber, Long pageSize) {
-        long offset = (pageNumber - 1) * pageSize;
+    public Page<User> getUsersPageAfter(Long afterId, int pageSize) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        List<User> users = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+            ps.setInt(2, pageSize + 1);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Page.fromLookahead(users, pageSize, User::getId);
+    }
 
+    @Override
+    public Page<User> findDucksPageByTypeAfter(String type, Long afterId, int pageSize) {
         String sql = """
-                     SELECT * FROM users 
+                     SELECT * FROM users
                      WHERE usertype = 'Duck'
                      AND (ducktype = ? OR ducktype = 'FLYING_AND_SWIMMING')
+                     AND id > ?
                      ORDER BY id
-                     LIMIT ? OFFSET ?
+                     LIMIT ?
                      """;
         List<User> ducks = new ArrayList<>();
-        try(Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, type);
-            ps.setLong(2, pageSize);
-            ps.setLong(3, offset);
+            ps.setLong(2, afterId == null ? Long.MIN_VALUE : afterId);
+            ps.setInt(3, pageSize + 1);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Long userId = rs.getLong("id");
-                User user = findById(userId);
-                ducks.add(user);
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    ducks.add(user);
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return ducks;
+        return Page.fromLookahead(ducks, pageSize, User::getId);
     }
 
     @Override
-    public Long getDucksCountByType(String type) {
-        String sql = """
-                     SELECT COUNT(*)
-                     FROM users
-                     WHERE usertype = 'Duck'
-                     AND (ducktype = ? OR ducktype = 'FLYING_AND_SWIMMING')
-                     """;
-        Long count = 0L;
-        try(Connection conn = DriverManager.getConnection(url, username, password);
-            PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, type);
+    public Optional<User> findByUsername(String username) {
+        return findByUniqueColumn("SELECT * FROM users WHERE username = ?", username);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return findByUniqueColumn("SELECT * FROM users WHERE email = ?", email);
+    }
+
+    private Optional<User> findByUniqueColumn(String sql, String value) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, value);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                count = rs.getLong(1);
+                return Optional.ofNullable(UserRowMapper.mapRow(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return count;
+        return Optional.empty();
+    }
+
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        List<User> users = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return users;
+        }
+        String sql = "SELECT * FROM users WHERE id = ANY(?) ORDER BY id";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            Array userIds = conn.createArrayOf("bigint", ids.toArray());
+            ps.setArray(1, userIds);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+            userIds.free();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return users;
+    }
+
+    /**
+     * Runs as a single anti-join: the candidate users are scanned in ID order and each one is dropped
+     * by {@code NOT EXISTS} probes on the canonical friendship index and the friendship request indexes,
+     * so the cost depends on the page size rather than on the number of users.
+     */
+    @Override
+    public Page<User> findNonFriendsPageAfter(Long userId, String usernamePrefix, Long afterId, int pageSize) {
+        boolean filterByPrefix = usernamePrefix != null && !usernamePrefix.isEmpty();
+        String sql = "SELECT u.* FROM users u " +
+                     "WHERE u.id > ? AND u.id <> ? " +
+                     (filterByPrefix ? "AND u.username LIKE ? ESCAPE '\\' " : "") +
+                     "AND NOT EXISTS (SELECT 1 FROM friendships f " +
+                     "                WHERE f.firstFriendId = LEAST(u.id, ?) AND f.secondFriendId = GREATEST(u.id, ?)) " +
+                     "AND NOT EXISTS (SELECT 1 FROM friendship_requests fr " +
+                     "                WHERE fr.idsender = ? AND fr.idrecipient = u.id AND fr.status = 'PENDING') " +
+                     "AND NOT EXISTS (SELECT 1 FROM friendship_requests fr " +
+                     "                WHERE fr.idsender = u.id AND fr.idrecipient = ? AND fr.status = 'PENDING') " +
+                     "ORDER BY u.id " +
+                     "LIMIT ?";
+        List<User> users = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int parameter = 1;
+            ps.setLong(parameter++, afterId == null ? Long.MIN_VALUE : afterId);
+            ps.setLong(parameter++, userId);
+            if (filterByPrefix) {
+                ps.setString(parameter++, escapeLikePattern(usernamePrefix) + "%");
+            }
+            ps.setLong(parameter++, userId);
+            ps.setLong(parameter++, userId);
+            ps.setLong(parameter++, userId);
+            ps.setLong(parameter++, userId);
+            ps.setInt(parameter, pageSize + 1);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                User user = UserRowMapper.mapRow(rs);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return Page.fromLookahead(users, pageSize, User::getId);
+    }
+
+    private static String escapeLikePattern(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
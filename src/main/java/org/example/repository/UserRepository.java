@@ -1,8 +1,11 @@
 package org.example.repository;
 
+import org.example.domain.Page;
 import org.example.domain.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing User entities.
@@ -10,36 +13,72 @@ import java.util.List;
 public interface UserRepository extends Repository<Long, User> {
 
     /**
-     * Retrieves a paginated list of users.
+     * Counts the total number of users in the repository.
      *
-     * @param pageNumber the page number (starting from 0)
-     * @param pageSize   the number of users per page
-     * @return a list of User objects for the specified page
+     * @return the total number of users
      */
-    List<User> getUsersPage(Long pageNumber, Long pageSize);
+    Long getUsersCount();
 
     /**
-     * Counts the total number of users in the repository.
+     * Counts the total number of ducks of a specific type.
      *
-     * @return the total number of users
+     * @param type the type of ducks to count
+     * @return the total number of ducks of the given type
      */
-    Long getUsersCount();
+    Long getDucksCountByType(String type);
 
     /**
-     * Retrieves a paginated list of ducks filtered by type.
+     * Retrieves the users whose ID is greater than the given cursor, ordered by ID.
      *
-     * @param type       the type of ducks to filter
-     * @param pageNumber the page number (starting from 0)
-     * @param pageSize   the number of ducks per page
-     * @return a list of User objects representing ducks of the given type
+     * @param afterId  the cursor returned with the previous page, or null for the first page
+     * @param pageSize the number of users per page
+     * @return the page of users and the cursor of the next page
      */
-    List<User> findDucksPageByType(String type, Long pageNumber, Long pageSize);
+    Page<User> getUsersPageAfter(Long afterId, int pageSize);
 
     /**
-     * Counts the total number of ducks of a specific type.
+     * Retrieves the ducks of a specific type whose ID is greater than the given cursor, ordered by ID.
      *
-     * @param type the type of ducks to count
-     * @return the total number of ducks of the given type
+     * @param type     the type of ducks to filter
+     * @param afterId  the cursor returned with the previous page, or null for the first page
+     * @param pageSize the number of ducks per page
+     * @return the page of ducks and the cursor of the next page
      */
-    Long getDucksCountByType(String type);
-}
\ No newline at end of file
+    Page<User> findDucksPageByTypeAfter(String type, Long afterId, int pageSize);
+
+    /**
+     * Finds the user with the given username using the unique index on the username.
+     *
+     * @param username the username to search for
+     * @return an {@link Optional} containing the user, or empty if no user has this username
+     */
+    Optional<User> findByUsername(String username);
+
+    /**
+     * Finds the user with the given email using the unique index on the email.
+     *
+     * @param email the email to search for
+     * @return an {@link Optional} containing the user, or empty if no user has this email
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * Finds the users with the given IDs.
+     *
+     * @param ids the IDs of the users to load
+     * @return the users that exist among the given IDs, ordered by ID
+     */
+    List<User> findByIds(Collection<Long> ids);
+
+    /**
+     * Retrieves a page of the users a user could send a friend request to: everyone except the user,
+     * their friends and the users with a pending request to or from them, ordered by ID.
+     *
+     * @param userId         the ID of the user looking for new friends
+     * @param usernamePrefix if not null or empty, only users whose username starts with it are returned
+     * @param afterId        the cursor returned with the previous page, or null for the first page
+     * @param pageSize       the number of users per page
+     * @return the page of users and the cursor of the next page
+     */
+    Page<User> findNonFriendsPageAfter(Long userId, String usernamePrefix, Long afterId, int pageSize);
+}
@@ -0,0 +1,57 @@
+package org.example.repository;
+
+import org.example.domain.*;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Builds {@link User} entities directly from a row of the {@code users} table.
+ * Shared by every database repository that selects {@code users.*}, so list queries
+ * hydrate their entities from the rows they already fetched instead of re-querying by id.
+ */
+public final class UserRowMapper {
+
+    private UserRowMapper() {
+    }
+
+    /**
+     * Maps the current row of the result set to a {@link Person}, {@link SwimmingDuck},
+     * {@link FlyingDuck} or {@link FlyingSwimmingDuck}.
+     *
+     * @param rs a result set positioned on a row containing the columns of the {@code users} table
+     * @return the user stored in the row, or null if the user or duck type is not recognized
+     * @throws SQLException if a column cannot be read
+     */
+    public static User mapRow(ResultSet rs) throws SQLException {
+        Long id = rs.getLong("id");
+        String userType = rs.getString("usertype");
+        String username = rs.getString("username");
+        String email = rs.getString("email");
+        String password = rs.getString("password");
+        if ("Person".equals(userType)) {
+            String surname = rs.getString("surname");
+            String name = rs.getString("name");
+            Date birthdate = rs.getDate("birthdate");
+            LocalDate localBirthdate = birthdate == null ? null : birthdate.toLocalDate();
+            String occupation = rs.getString("occupation");
+            return new Person(id, userType, username, email, password, surname, name, localBirthdate, occupation);
+        } else if ("Duck".equals(userType)) {
+            String duckType = rs.getString("duckType");
+            Double speed = rs.getDouble("speed");
+            Double resistance = rs.getDouble("resistance");
+            if (duckType == null) {
+                return null;
+            }
+            return switch (duckType) {
+                case "SWIMMING" -> new SwimmingDuck(id, userType, username, email, password, speed, resistance);
+                case "FLYING" -> new FlyingDuck(id, userType, username, email, password, speed, resistance);
+                case "FLYING_AND_SWIMMING" -> new FlyingSwimmingDuck(id, userType, username, email, password, speed, resistance);
+                default -> null;
+            };
+        }
+        return null;
+    }
+}
@@ -0,0 +1,297 @@
+package org.example.service;
+
+import org.example.domain.Friendship;
+import org.example.domain.GraphChanges;
+import org.example.domain.SocialGraph;
+import org.example.repository.FriendshipRepository;
+import org.example.repository.GraphSnapshotStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the communities (connected groups of at least two friends) of the social network up to date
+ * with a union-find structure, so the number of communities and their sizes are answered without
+ * rebuilding the friendship graph.
+ *
+ * <p>New friendships are merged in immediately, in near-constant time (union by size with path
+ * compression). Union-find cannot split a set, so removing a friendship or a user only marks the
+ * index as stale; it is rebuilt from the friendship graph the next time it is queried.</p>
+ *
+ * <p>Every change increments a version number, which callers can use to cache results derived
+ * from the communities. The index also keeps a {@link SocialGraph} snapshot of the friendships for
+ * the analytics that need the full adjacency. It is read from the repository once; later changes are
+ * collected and applied to the snapshot in memory, at most once per version. Changes must be reported
+ * only after they were stored in the repository.</p>
+ *
+ * <p>With a {@link GraphSnapshotStore}, every change is also appended to the delta log of the store,
+ * and the first query after a restart starts from the stored snapshot, if it matches the
+ * {@link FriendshipRepository.Watermark} of the repository, instead of reading every friendship.
+ * A graph read from the repository is saved as the new snapshot, and {@link #close} saves the
+ * graph with the changes of the session applied.</p>
+ */
+public class CommunityIndex implements AutoCloseable {
+    private final FriendshipRepository friendshipRepository;
+    private final GraphSnapshotStore snapshotStore;
+    private final Map<Long, Integer> indexById = new HashMap<>();
+    private int[] parent = new int[16];
+    private int[] size = new int[16];
+    private int communityCount;
+    private boolean stale = true;
+    private long version;
+    private SocialGraph graph;
+    private GraphChanges pendingChanges = new GraphChanges();
+    private long graphVersion = -1;
+    private boolean snapshotLoaded;
+
+    /**
+     * Creates an index over the friendships of the given repository. The index is built lazily,
+     * on the first query.
+     *
+     * @param friendshipRepository the repository the friendships are read from
+     */
+    public CommunityIndex(FriendshipRepository friendshipRepository) {
+        this(friendshipRepository, null);
+    }
+
+    /**
+     * Creates an index over the friendships of the given repository, persisted in a graph snapshot.
+     * The index is built lazily, on the first query, from the snapshot if there is one.
+     *
+     * @param friendshipRepository the repository the friendships are read from
+     * @param snapshotStore        the store keeping the friendship graph between restarts, or null
+     */
+    public CommunityIndex(FriendshipRepository friendshipRepository, GraphSnapshotStore snapshotStore) {
+        this.friendshipRepository = friendshipRepository;
+        this.snapshotStore = snapshotStore;
+    }
+
+    /**
+     * Records a new friendship, merging the communities of the two users.
+     *
+     * @param friendshipId the id of the stored friendship
+     * @param firstUserId  the id of one friend
+     * @param secondUserId the id of the other friend
+     */
+    public synchronized void friendshipAdded(long friendshipId, long firstUserId, long secondUserId) {
+        version++;
+        pendingChanges.friendshipAdded(firstUserId, secondUserId);
+        if (snapshotStore != null) {
+            snapshotStore.friendshipAdded(friendshipId, firstUserId, secondUserId);
+        }
+        if (!stale) {
+            union(indexOf(firstUserId), indexOf(secondUserId));
+        }
+    }
+
+    /**
+     * Records that a friendship was removed. The affected community may have split,
+     * so the index is rebuilt on the next query.
+     *
+     * @param firstUserId  the id of one former friend
+     * @param secondUserId the id of the other former friend
+     */
+    public synchronized void friendshipRemoved(long firstUserId, long secondUserId) {
+        version++;
+        pendingChanges.friendshipRemoved(firstUserId, secondUserId);
+        if (snapshotStore != null) {
+            snapshotStore.friendshipRemoved(firstUserId, secondUserId);
+        }
+        stale = true;
+    }
+
+    /**
+     * Records that a user was removed together with their friendships.
+     *
+     * @param userId the id of the removed user
+     */
+    public synchronized void userRemoved(long userId) {
+        version++;
+        pendingChanges.userRemoved(userId);
+        if (snapshotStore != null) {
+            snapshotStore.userRemoved(userId);
+        }
+        if (indexById.containsKey(userId)) {
+            stale = true;
+        }
+    }
+
+    /**
+     * @return the number of communities with at least two members
+     */
+    public synchronized int getCommunityCount() {
+        ensureBuilt();
+        return communityCount;
+    }
+
+    /**
+     * Returns the size of the community of a user.
+     *
+     * @param userId the id of the user
+     * @return the number of users in the community of the user, or 1 if the user has no friends
+     */
+    public synchronized int getCommunitySize(long userId) {
+        ensureBuilt();
+        Integer index = indexById.get(userId);
+        return index == null ? 1 : size[find(index)];
+    }
+
+    /**
+     * Checks whether two users belong to the same community.
+     *
+     * @param firstUserId  the id of one user
+     * @param secondUserId the id of the other user
+     * @return true if the users are connected by a chain of friendships
+     */
+    public synchronized boolean sameCommunity(long firstUserId, long secondUserId) {
+        ensureBuilt();
+        if (firstUserId == secondUserId) {
+            return true;
+        }
+        Integer first = indexById.get(firstUserId);
+        Integer second = indexById.get(secondUserId);
+        return first != null && second != null && find(first) == find(second);
+    }
+
+    /**
+     * @return a number that changes every time a friendship or user is added or removed
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a snapshot of the friendship graph. The first call loads the stored snapshot, whose delta
+     * log holds every change made before, or reads the friendships from the repository if there is no
+     * up to date snapshot; later calls apply the changes recorded since the previous call.
+     *
+     * @return the current friendship graph
+     */
+    public synchronized SocialGraph getGraph() {
+        if (!snapshotLoaded && snapshotStore != null) {
+            snapshotLoaded = true;
+            SocialGraph stored = snapshotStore.load(friendshipRepository.getWatermark());
+            if (stored != null) {
+                graph = stored;
+                pendingChanges = new GraphChanges();
+                graphVersion = version;
+            }
+        }
+        if (graph == null) {
+            List<Friendship> friendships = new ArrayList<>();
+            long maxFriendshipId = 0;
+            for (Friendship friendship : friendshipRepository.findAll()) {
+                friendships.add(friendship);
+                maxFriendshipId = Math.max(maxFriendshipId, friendship.getId());
+            }
+            graph = SocialGraph.of(friendships);
+            pendingChanges = new GraphChanges();
+            graphVersion = version;
+            if (snapshotStore != null) {
+                snapshotStore.save(graph, maxFriendshipId);
+            }
+        } else if (graphVersion != version) {
+            graph = pendingChanges.applyTo(graph);
+            pendingChanges = new GraphChanges();
+            graphVersion = version;
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the graph snapshot only if it is still up to date, without rebuilding it.
+     *
+     * @return the current friendship graph, or null if it has not been built since the last change
+     */
+    public synchronized SocialGraph getGraphIfCurrent() {
+        return graphVersion == version ? graph : null;
+    }
+
+    /**
+     * Saves the graph with the changes of the session applied as the new snapshot, if it was built,
+     * and releases the snapshot store.
+     */
+    @Override
+    public synchronized void close() {
+        if (snapshotStore == null) {
+            return;
+        }
+        if (graph != null) {
+            snapshotStore.checkpoint(getGraph());
+        }
+        snapshotStore.close();
+    }
+
+    private void ensureBuilt() {
+        if (!stale) {
+            return;
+        }
+        indexById.clear();
+        communityCount = 0;
+        SocialGraph current = getGraph();
+        for (int v = 0; v < current.size(); v++) {
+            for (int p = current.neighborStart(v); p < current.neighborEnd(v); p++) {
+                union(indexOf(current.idOf(v)), indexOf(current.idOf(current.neighborAt(p))));
+            }
+        }
+        stale = false;
+    }
+
+    private int indexOf(long userId) {
+        Integer index = indexById.get(userId);
+        if (index != null) {
+            return index;
+        }
+        int newIndex = indexById.size();
+        if (newIndex == parent.length) {
+            parent = Arrays.copyOf(parent, newIndex * 2);
+            size = Arrays.copyOf(size, newIndex * 2);
+        }
+        parent[newIndex] = newIndex;
+        size[newIndex] = 1;
+        indexById.put(userId, newIndex);
+        return newIndex;
+    }
+
+    private int find(int index) {
+        int root = index;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[index] != root) {
+            int next = parent[index];
+            parent[index] = root;
+            index = next;
+        }
+        return root;
+    }
+
+    /**
+     * Merges the sets of two users. Users only enter the index through a friendship, so every set
+     * except a freshly created singleton is a community; the community count is adjusted accordingly.
+     */
+    private void union(int first, int second) {
+        int firstRoot = find(first);
+        int secondRoot = find(second);
+        if (firstRoot == secondRoot) {
+            return;
+        }
+        boolean firstIsCommunity = size[firstRoot] > 1;
+        boolean secondIsCommunity = size[secondRoot] > 1;
+        if (size[firstRoot] < size[secondRoot]) {
+            int swap = firstRoot;
+            firstRoot = secondRoot;
+            secondRoot = swap;
+        }
+        parent[secondRoot] = firstRoot;
+        size[firstRoot] += size[secondRoot];
+        if (firstIsCommunity && secondIsCommunity) {
+            communityCount--;
+        } else if (!firstIsCommunity && !secondIsCommunity) {
+            communityCount++;
+        }
+    }
+}
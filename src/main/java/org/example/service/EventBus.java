@@ -0,0 +1,252 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-process, asynchronous publish/subscribe bus for the notifications of the service layer.
+ *
+ * <p>A topic is a notification type together with the id of the user the notification is addressed to,
+ * so a publisher only reaches the subscribers of that user. Publishing never blocks and never runs
+ * subscriber code: the notification is appended to the mailbox of every subscriber of the topic, a
+ * lock-free queue that any number of threads can publish to, and the subscriber is scheduled on its own
+ * executor, for example the JavaFX Application Thread.</p>
+ *
+ * <p>A scheduled subscriber receives everything queued in its mailbox as a single batch, so a burst of
+ * notifications costs one hand-off to its executor. Mailboxes are bounded: when a mailbox is full, its
+ * oldest notification is dropped in favour of the new one (coalesced), so a slow subscriber only ever
+ * sees the latest changes instead of holding back publishers or growing without limit.</p>
+ */
+public class EventBus {
+    public static final int DEFAULT_MAILBOX_CAPACITY = 64;
+
+    private final Map<Class<?>, Map<Long, List<Mailbox<?>>>> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Snapshot of the activity of the bus.
+     *
+     * @param published            the number of notifications published, once per receiving subscriber
+     * @param delivered            the number of notifications handed to subscribers
+     * @param coalesced            the number of notifications dropped because a mailbox was full
+     * @param queueDepth           the number of notifications waiting in mailboxes
+     * @param averageLatencyMillis the average time between publishing and delivering a notification
+     * @param maxLatencyMillis     the longest time between publishing and delivering a notification
+     */
+    public record Metrics(long published, long delivered, long coalesced, int queueDepth,
+                          double averageLatencyMillis, double maxLatencyMillis) {
+    }
+
+    /**
+     * Handle of a subscription, used to stop receiving notifications.
+     */
+    public interface Subscription {
+        /**
+         * Stops the delivery of notifications and discards the ones still queued.
+         */
+        void cancel();
+    }
+
+    private record Envelope<E>(E notification, long publishedAt) {
+    }
+
+    /**
+     * Subscribes to the notifications of a type addressed to a user, with a mailbox of
+     * {@link #DEFAULT_MAILBOX_CAPACITY} notifications.
+     *
+     * @param type     the type of the notifications
+     * @param userId   the id of the user the notifications are addressed to
+     * @param executor the executor the handler runs on
+     * @param handler  receives the queued notifications, oldest first
+     * @param <E>      the type of the notifications
+     * @return the subscription
+     */
+    public <E> Subscription subscribe(Class<E> type, long userId, Executor executor, Consumer<List<E>> handler) {
+        return subscribe(type, userId, executor, DEFAULT_MAILBOX_CAPACITY, handler);
+    }
+
+    /**
+     * Subscribes to the notifications of a type addressed to a user.
+     *
+     * @param type     the type of the notifications
+     * @param userId   the id of the user the notifications are addressed to
+     * @param executor the executor the handler runs on
+     * @param capacity the number of notifications the mailbox holds before the oldest are dropped, at least 1
+     * @param handler  receives the queued notifications, oldest first
+     * @param <E>      the type of the notifications
+     * @return the subscription
+     */
+    public <E> Subscription subscribe(Class<E> type, long userId, Executor executor, int capacity, Consumer<List<E>> handler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The mailbox capacity must be at least 1");
+        }
+        Mailbox<E> mailbox = new Mailbox<>(type, userId, executor, capacity, handler);
+        topics.computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+                .compute(userId, (id, mailboxes) -> {
+                    List<Mailbox<?>> updated = mailboxes == null ? new CopyOnWriteArrayList<>() : mailboxes;
+                    updated.add(mailbox);
+                    return updated;
+                });
+        return mailbox;
+    }
+
+    /**
+     * Publishes a notification to the subscribers of a user. Returns immediately; the subscribers
+     * are called later on their executors.
+     *
+     * @param type         the type of the notification
+     * @param userId       the id of the user the notification is addressed to
+     * @param notification the notification
+     * @param <E>          the type of the notification
+     */
+    @SuppressWarnings("unchecked")
+    public <E> void publish(Class<E> type, long userId, E notification) {
+        Map<Long, List<Mailbox<?>>> subscribers = topics.get(type);
+        List<Mailbox<?>> mailboxes = subscribers == null ? null : subscribers.get(userId);
+        if (mailboxes == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Mailbox<?> mailbox : mailboxes) {
+            ((Mailbox<E>) mailbox).offer(new Envelope<>(notification, now));
+        }
+    }
+
+    /**
+     * Returns the users that have a subscriber for a notification type, so a publisher addressing
+     * many users can skip the ones that are not listening.
+     *
+     * @param type the type of the notifications
+     * @return a live view of the ids of the users with a subscriber
+     */
+    public Set<Long> subscribedUsers(Class<?> type) {
+        return topics.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).keySet();
+    }
+
+    /**
+     * @return the current queue depth and the delivery counters and latencies since the bus was created
+     */
+    public Metrics metrics() {
+        long count = delivered.sum();
+        double averageLatency = count == 0 ? 0 : totalLatencyNanos.sum() / (double) count / 1_000_000;
+        return new Metrics(published.sum(), count, coalesced.sum(), queueDepth.get(),
+                averageLatency, maxLatencyNanos.get() / 1_000_000.0);
+    }
+
+    private final class Mailbox<E> implements Subscription {
+        private final Class<E> type;
+        private final long userId;
+        private final Executor executor;
+        private final int capacity;
+        private final Consumer<List<E>> handler;
+        private final Queue<Envelope<E>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        private Mailbox(Class<E> type, long userId, Executor executor, int capacity, Consumer<List<E>> handler) {
+            this.type = type;
+            this.userId = userId;
+            this.executor = executor;
+            this.capacity = capacity;
+            this.handler = handler;
+        }
+
+        private void offer(Envelope<E> envelope) {
+            if (cancelled) {
+                return;
+            }
+            queue.offer(envelope);
+            published.increment();
+            queueDepth.incrementAndGet();
+            if (size.incrementAndGet() > capacity && poll() != null) {
+                coalesced.increment();
+            }
+            schedule();
+        }
+
+        private Envelope<E> poll() {
+            Envelope<E> envelope = queue.poll();
+            if (envelope != null) {
+                size.decrementAndGet();
+                queueDepth.decrementAndGet();
+            }
+            return envelope;
+        }
+
+        private void schedule() {
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void drain() {
+            List<E> batch = new ArrayList<>();
+            long publishedAtSum = 0;
+            long oldestPublishedAt = Long.MAX_VALUE;
+            while (batch.size() < capacity) {
+                Envelope<E> envelope = poll();
+                if (envelope == null) {
+                    break;
+                }
+                batch.add(envelope.notification());
+                publishedAtSum += envelope.publishedAt();
+                oldestPublishedAt = Math.min(oldestPublishedAt, envelope.publishedAt());
+            }
+            if (!batch.isEmpty()) {
+                long now = System.nanoTime();
+                totalLatencyNanos.add(now * batch.size() - publishedAtSum);
+                maxLatencyNanos.accumulateAndGet(now - oldestPublishedAt, Math::max);
+            }
+            if (!batch.isEmpty() && !cancelled) {
+                delivered.add(batch.size());
+                try {
+                    handler.accept(batch);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            scheduled.set(false);
+            if (!cancelled) {
+                schedule();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Map<Long, List<Mailbox<?>>> subscribers = topics.get(type);
+            if (subscribers != null) {
+                subscribers.computeIfPresent(userId, (id, mailboxes) -> {
+                    mailboxes.remove(this);
+                    return mailboxes.isEmpty() ? null : mailboxes;
+                });
+            }
+            while (poll() != null) {
+                // discard the notifications that were not delivered
+            }
+        }
+    }
+}
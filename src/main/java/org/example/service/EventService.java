@@ -1,36 +1,59 @@
 package org.example.service;
 
-import org.example.controller.EventWindow;
 import org.example.domain.*;
 import org.example.exceptions.EntityNotFoundException;
 import org.example.exceptions.validationExceptions.eventExceptions.EventAlreadyExists;
 import org.example.exceptions.validationExceptions.eventExceptions.NotEnoughLanesException;
 import org.example.exceptions.validationExceptions.eventExceptions.NotEnoughParticipantsException;
 import org.example.exceptions.validationExceptions.userExceptions.IdValidationException;
-import org.example.repository.EventFileRepository;
 import org.example.repository.EventRepository;
+import org.example.repository.IdAllocator;
 import org.example.repository.UserRepository;
 import org.example.validation.ValidatorContext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
-public class EventService implements Service<Long, Event>, Subject {
+public class EventService implements Service<Long, Event> {
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final ValidatorContext<Event> validatorEvent;
-    private final List<Observer> observers = new ArrayList<>();
+    private final IdAllocator idAllocator;
+    private final TaskExecutor taskExecutor;
+    private final EventBus eventBus;
+    private final Map<Long, CachedRaceResults> raceResults = new ConcurrentHashMap<>();
+    private final Map<Long, Long> raceVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Results of a race, valid as long as the version of the race they were computed for is current.
+     */
+    private record CachedRaceResults(long version, List<DuckResult> results) {
+    }
 
     /**
      * Creates an AbstractService with the given Repository
      *
      * @param eventRepository the repository used by the service
+     * @param idAllocator the allocator providing the ids of new events
+     * @param taskExecutor the executor running the background computations of the service
+     * @param eventBus the bus the notifications of the service are published to
      */
-    public EventService(EventRepository eventRepository, UserRepository userRepository, ValidatorContext<Event> validatorEvent) {
+    public EventService(EventRepository eventRepository, UserRepository userRepository, ValidatorContext<Event> validatorEvent, IdAllocator idAllocator, TaskExecutor taskExecutor, EventBus eventBus) {
         this.eventRepository = eventRepository;
         this.userRepository = userRepository;
         this.validatorEvent = validatorEvent;
+        this.idAllocator = idAllocator;
+        this.taskExecutor = taskExecutor;
+        this.eventBus = eventBus;
     }
 
     /**
@@ -83,6 +106,7 @@ public class EventService implements Service<Long, Event>, Subject {
             throw new EntityNotFoundException("The event with id " + id + " was not found");
         }
         eventRepository.remove(eventRepository.findById(longId));
+        invalidateRaceResults(longId);
     }
 
     /**
@@ -96,21 +120,13 @@ public class EventService implements Service<Long, Event>, Subject {
     }
 
     /**
-     * Generates a new unique identifier for an Event.
-     * The method iterates through all existing events and identifies the highest existing ID,
-     * incrementing it by 1 to generate a new, unique identifier.
+     * Generates a unique id for a new event, taken from the {@link IdAllocator}.
      *
-     * @return the newly generated unique identifier as Long
+     * @return a new unique event id
      */
     @Override
     public Long generateID() {
-        long maxNumber = 0;
-        for (Event event : findAll()) {
-            if (event.getId() > maxNumber) {
-                maxNumber = event.getId();
-            }
-        }
-        return maxNumber + 1;
+        return idAllocator.nextId();
     }
 
     /**
@@ -276,6 +292,7 @@ public class EventService implements Service<Long, Event>, Subject {
         }
 
         eventRepository.addParticipantToEvent(longEventId, longUserId);
+        invalidateRaceResults(longEventId);
     }
 
     /**
@@ -335,6 +352,7 @@ public class EventService implements Service<Long, Event>, Subject {
         }
 
         eventRepository.removeParticipantFromEvent(longEventId, longDuckId);
+        invalidateRaceResults(longEventId);
     }
 
     /**
@@ -382,6 +400,7 @@ public class EventService implements Service<Long, Event>, Subject {
         }
 
         eventRepository.addLaneToEvent(longEventId, doubleLaneValue);
+        invalidateRaceResults(longEventId);
     }
 
     /**
@@ -430,6 +449,7 @@ public class EventService implements Service<Long, Event>, Subject {
         }
 
         eventRepository.removeLaneFromEvent(longEventId, intIndexValue);
+        invalidateRaceResults(longEventId);
     }
 
     /**
@@ -464,8 +484,8 @@ public class EventService implements Service<Long, Event>, Subject {
     /**
      * Starts the specified event by its ID. If the event is a race event, it verifies
      * that the number of lanes is enough for the participants and that there are
-     * lanes available. If the conditions are met, it notifies subscribers and determines
-     * the best ducks for the given race lanes.
+     * lanes available. If the conditions are met, it determines the best ducks for the given
+     * race lanes, stores the results so {@link #getResults(String)} can serve them, and notifies subscribers.
      *
      * @param eventId the identifier of the event to start. It must be a string representing a valid number.
      * @throws IdValidationException          if the provided eventId is not a valid numeric value.
@@ -480,6 +500,7 @@ public class EventService implements Service<Long, Event>, Subject {
         } catch (NumberFormatException e) {
             throw new IdValidationException("The id must be a number");
         }
+        long version = raceVersion(longEventId);
         Event event = findById(eventId);
         if (event == null) {
             throw new EntityNotFoundException("The event with id " + eventId + " was not found");
@@ -491,8 +512,8 @@ public class EventService implements Service<Long, Event>, Subject {
                 throw new NotEnoughLanesException("The event can't start because the number of lanes is empty");
             }
             eventRepository.updateStatusEvent(event.getId(), true);
-            event.startEvent();
-            notifyObservers(event);
+            computeRaceResults((RaceEvent) event, version);
+            publishEventStarted(event);
         }
     }
 
@@ -510,6 +531,16 @@ public class EventService implements Service<Long, Event>, Subject {
         eventRepository.updateStatusEvent(event.getId(), false);
     }
 
+    /**
+     * Returns the results of a race. The results computed when the race started are served from
+     * memory, or from the repository after a restart; they are computed again only if the participants
+     * or lanes changed since.
+     *
+     * @param eventId the identifier of the event
+     * @return the formatted results, or an empty text if the event is not a race
+     * @throws IdValidationException   if the provided eventId is not a valid numeric value.
+     * @throws EntityNotFoundException if the event with the specified ID is not found.
+     */
     public StringBuilder getResults(String eventId) {
         long longEventId;
         try {
@@ -517,60 +548,158 @@ public class EventService implements Service<Long, Event>, Subject {
         } catch (NumberFormatException e) {
             throw new IdValidationException("The id must be a number");
         }
+        long version = raceVersion(longEventId);
+        CachedRaceResults cached = raceResults.get(longEventId);
+        if (cached != null && cached.version() == version) {
+            return formatResults(cached.results());
+        }
+        List<DuckResult> stored = eventRepository.findRaceResults(longEventId);
+        if (stored != null) {
+            cacheRaceResults(longEventId, version, stored);
+            return formatResults(stored);
+        }
+
         Event event = findById(eventId);
         if (event == null) {
             throw new EntityNotFoundException("The event with id " + eventId + " was not found");
         } else if (event.getType().equals("RaceEvent")){
-            List<Duck> duckList = new ArrayList<>();
-            for (Swimmer s : ((RaceEvent)event).getParticipants()) {
-                duckList.add((Duck) s);
-            }
-            List<DuckResult> results = bestDuckSelection(duckList, ((RaceEvent)event).getLanes());
-            StringBuilder sb = new StringBuilder();
-            double total = 0;
-            sb.append("=== Race Results ===\n");
-            for (int i = 0; i < results.size(); i++) {
-                DuckResult dr = results.get(i);
-                sb.append("Duck ").append(dr.getDuck().getId()).append(" on lane ").append(i + 1).append(": t = ").append(String.format("%.3f", dr.getTime())).append(" s\n");
-
-                total = Math.max(total, dr.getTime());
+            return formatResults(computeRaceResults((RaceEvent) event, version));
+        }
+        return new StringBuilder();
+    }
+
+    /**
+     * Returns the results of a race without blocking the caller, computing them on the shared
+     * {@link TaskExecutor} if needed. Cancelling the returned future interrupts the computation.
+     *
+     * @param eventId the identifier of the event
+     * @return a future completed with the results of {@link #getResults(String)}, or with the exception it threw
+     */
+    public CompletableFuture<StringBuilder> getResultsAsync(String eventId) {
+        return taskExecutor.submit(() -> getResults(eventId));
+    }
+
+    private StringBuilder formatResults(List<DuckResult> results) {
+        StringBuilder sb = new StringBuilder();
+        double total = 0;
+        sb.append("=== Race Results ===\n");
+        for (int i = 0; i < results.size(); i++) {
+            DuckResult dr = results.get(i);
+            sb.append("Duck ").append(dr.getDuck().getId()).append(" on lane ").append(i + 1).append(": t = ").append(String.format("%.3f", dr.getTime())).append(" s\n");
+
+            total = Math.max(total, dr.getTime());
+        }
+
+        sb.append("Total race duration = ").append(String.format("%.3f", total)).append(" s\n");
+        return sb;
+    }
+
+    /**
+     * Computes the results of a race and stores them, in memory and in the repository, unless the
+     * race changed while they were computed.
+     *
+     * @param raceEvent the race, loaded after {@code version} was read
+     * @param version   the version of the race when the computation started
+     * @return the computed results
+     */
+    private List<DuckResult> computeRaceResults(RaceEvent raceEvent, long version) {
+        List<Duck> duckList = new ArrayList<>();
+        for (Swimmer s : raceEvent.getParticipants()) {
+            duckList.add((Duck) s);
+        }
+        List<DuckResult> results = bestDuckSelection(duckList, raceEvent.getLanes());
+        if (cacheRaceResults(raceEvent.getId(), version, results)) {
+            eventRepository.saveRaceResults(raceEvent.getId(), results);
+            if (raceVersion(raceEvent.getId()) != version) {
+                eventRepository.removeRaceResults(raceEvent.getId());
             }
+        }
+        return results;
+    }
 
-            sb.append("Total race duration = ").append(String.format("%.3f", total)).append(" s\n");
-            return sb;
+    private boolean cacheRaceResults(long eventId, long version, List<DuckResult> results) {
+        if (raceVersion(eventId) != version) {
+            return false;
         }
-        return new StringBuilder();
+        raceResults.put(eventId, new CachedRaceResults(version, List.copyOf(results)));
+        return true;
+    }
+
+    private long raceVersion(long eventId) {
+        return raceVersions.getOrDefault(eventId, 0L);
+    }
+
+    /**
+     * Discards the results of a race after its participants or lanes changed. The version of the race
+     * is increased first, so results computed concurrently from the old data are not stored.
+     *
+     * @param eventId the id of the race
+     */
+    private void invalidateRaceResults(long eventId) {
+        raceVersions.merge(eventId, 1L, Long::sum);
+        raceResults.remove(eventId);
+        eventRepository.removeRaceResults(eventId);
     }
 
     /**
      * Selects the best ducks from the given list based on their resistance and speed to compete
      * in races across the specified lanes and calculates the results for each selected duck.
+     * Each lane gets a different duck, the resistance of the ducks may not decrease from one lane
+     * to the next, and the time of the slowest duck is minimized.
+     *
+     * <p>Whether all lanes can be finished within a time limit is checked greedily (see
+     * {@link #assignWithin(List, int[], double[], double, Duck[])}), and that check is monotone in
+     * the limit, so the smallest feasible limit is found by binary search. The search runs over the
+     * bit patterns of the non-negative doubles, which are ordered like the values themselves, so it
+     * ends after at most 64 checks on exactly the optimal time.</p>
      *
      * @param ducks in the list of ducks available for selection, each duck having attributes such
      *              as speed and resistance
      * @param lanes the list of race lane distances, where each lane represents a race the duck
      *              must compete in
      * @return a list of {@code DuckResult} objects containing the selected duck, the lane
-     *         distance assigned, and the calculated time taken for the race
+     *         distance assigned, and the calculated time taken for the race; empty if there
+     *         are fewer ducks than lanes
      */
     private List<DuckResult> bestDuckSelection(List<Duck> ducks, List<Double> lanes) {
         int M = lanes.size();
-        List<Duck> bestSelection = new ArrayList<>();
-        double[] bestTime = {Double.MAX_VALUE}; // Using an array to allow updates within recursive calls.
-        List<Duck> currentSelection = new ArrayList<>();
-        boolean[] used = new boolean[ducks.size()];
+        double[] distances = new double[M];
+        for (int i = 0; i < M; i++) {
+            distances[i] = lanes.get(i);
+        }
 
         ducks.sort((d1, d2) -> {
             if (!Objects.equals(d1.getResistance(), d2.getResistance()))
                 return Double.compare(d1.getResistance(), d2.getResistance());
             return Double.compare(d2.getSpeed(), d1.getSpeed());
         });
+        List<Integer> groupStarts = new ArrayList<>();
+        for (int i = 0; i <= ducks.size(); i++) {
+            if (i == 0 || i == ducks.size() || !Objects.equals(ducks.get(i).getResistance(), ducks.get(i - 1).getResistance())) {
+                groupStarts.add(i);
+            }
+        }
+        int[] groups = groupStarts.stream().mapToInt(Integer::intValue).toArray();
 
-        backtrack(0, M, ducks, lanes, currentSelection, used, bestSelection, bestTime, -1);
+        long low = 0;
+        long high = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        if (!assignWithin(ducks, groups, distances, Double.POSITIVE_INFINITY, null)) {
+            return new ArrayList<>();
+        }
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (assignWithin(ducks, groups, distances, Double.longBitsToDouble(middle), null)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
 
+        Duck[] bestSelection = new Duck[M];
+        assignWithin(ducks, groups, distances, Double.longBitsToDouble(high), bestSelection);
         List<DuckResult> results = new ArrayList<>();
         for (int i = 0; i < M; i++) {
-            Duck d = bestSelection.get(i);
+            Duck d = bestSelection[i];
             double time = 2 * lanes.get(i) / d.getSpeed();
             results.add(new DuckResult(d, lanes.get(i), time));
         }
@@ -578,47 +707,64 @@ public class EventService implements Service<Long, Event>, Subject {
     }
 
     /**
-     * A recursive method that performs backtracking to find the best range of ducks
-     * across lanes with the goal of minimizing the maximum time required to cross all lanes.
+     * Checks whether every lane can be finished within the given time. The ducks are sorted by
+     * resistance and split into groups of equal resistance; the lanes are filled in order, and each
+     * group, taken by increasing resistance, covers as many of the next lanes as it can. Covering
+     * more lanes never hurts the following groups, so this greedy choice is optimal. Inside a group
+     * the order of the ducks is free, so {@code k} lanes can be covered exactly when the {@code k}
+     * fastest ducks, paired with the lanes from the longest to the shortest, all finish in time.
      *
-     * @param laneIndex         The current lane being processed.
-     * @param M                 The total number of lanes.
-     * @param ducks             The list of available ducks to choose from.
-     * @param lanes             The list of distances for each lane.
-     * @param currentSelection  The current selection of ducks matching lanes being processed.
-     * @param used              An array indicating whether a duck has already been selected.
-     * @param bestSelection     The list that holds the optimal selection of ducks minimizing the maximum time.
-     * @param bestTime          An array holding the best (minimum) maximum time found so far.
-     * @param lastResistance    The resistance value of the last duck added to the current selection.
+     * @param ducks      the ducks, sorted by resistance and then by decreasing speed
+     * @param groups     the start of every group of equal resistance in {@code ducks}, followed by {@code ducks.size()}
+     * @param distances  the distance of every lane
+     * @param limit      the time limit
+     * @param assignment if not null, receives the duck running every lane when the check succeeds
+     * @return true if all the lanes can be finished within the limit
      */
-    private void backtrack(int laneIndex, int M, List<Duck> ducks, List<Double> lanes,
-                           List<Duck> currentSelection, boolean[] used,
-                           List<Duck> bestSelection, double[] bestTime, double lastResistance) {
-
-        if (laneIndex == M) {
-            double maxTime = 0;
-            for (int i = 0; i < M; i++) {
-                Duck d = currentSelection.get(i);
-                double time = 2 * lanes.get(i) / d.getSpeed();
-                maxTime = Math.max(maxTime, time);
+    private boolean assignWithin(List<Duck> ducks, int[] groups, double[] distances, double limit, Duck[] assignment) {
+        int lane = 0;
+        for (int g = 0; g + 1 < groups.length && lane < distances.length; g++) {
+            int first = groups[g];
+            int low = 0;
+            int high = Math.min(groups[g + 1] - first, distances.length - lane);
+            while (low < high) {
+                int k = (low + high + 1) >>> 1;
+                if (coversLanes(ducks, first, distances, lane, k, limit, null)) {
+                    low = k;
+                } else {
+                    high = k - 1;
+                }
             }
-            if (maxTime < bestTime[0]) {
-                bestTime[0] = maxTime;
-                bestSelection.clear();
-                bestSelection.addAll(currentSelection);
+            if (assignment != null) {
+                coversLanes(ducks, first, distances, lane, low, limit, assignment);
             }
-            return;
+            lane += low;
         }
+        return lane == distances.length;
+    }
 
-        for (int i = 0; i < ducks.size(); i++) {
-            if (!used[i] && ducks.get(i).getResistance() >= lastResistance) {
-                used[i] = true;
-                currentSelection.add(ducks.get(i));
-                backtrack(laneIndex + 1, M, ducks, lanes, currentSelection, used, bestSelection, bestTime, ducks.get(i).getResistance());
-                currentSelection.removeLast();
-                used[i] = false;
+    /**
+     * Checks whether the {@code k} fastest ducks of a group, starting at {@code first}, can finish the
+     * {@code k} lanes starting at {@code lane} within the limit, by pairing the fastest duck with the
+     * longest lane, the second fastest with the second longest, and so on.
+     */
+    private boolean coversLanes(List<Duck> ducks, int first, double[] distances, int lane, int k,
+                                double limit, Duck[] assignment) {
+        Integer[] byDistance = new Integer[k];
+        for (int j = 0; j < k; j++) {
+            byDistance[j] = lane + j;
+        }
+        Arrays.sort(byDistance, (a, b) -> Double.compare(distances[b], distances[a]));
+        for (int j = 0; j < k; j++) {
+            Duck d = ducks.get(first + j);
+            if (2 * distances[byDistance[j]] / d.getSpeed() > limit) {
+                return false;
+            }
+            if (assignment != null) {
+                assignment[byDistance[j]] = d;
             }
         }
+        return true;
     }
 
     /**
@@ -642,8 +788,7 @@ public class EventService implements Service<Long, Event>, Subject {
 
     /**
      * Removes a user from all events in the repository. The user is removed as a participant
-     * from any RaceEvent they are part of, or as a subscriber from general events. If the user
-     * is successfully removed from at least one event, the repository is saved.
+     * from any RaceEvent they are part of, and as a spectator from any event they subscribed to.
      *
      * @param userId The ID of the user to be removed from all events. The ID must be a numeric
      *               string; otherwise, an IdValidationException is thrown.
@@ -657,73 +802,73 @@ public class EventService implements Service<Long, Event>, Subject {
             throw new IdValidationException("The id must be a number");
         }
 
-        boolean removed = false;
         for (Event event : eventRepository.findAll()) {
-            if (event instanceof RaceEvent raceEvent) {
-                List<Swimmer> participantsToRemove = new ArrayList<>();
-                for (Swimmer swimmer : raceEvent.getParticipants()) {
-                    if (((Duck)swimmer).getId() == longUserId) {
-                        participantsToRemove.add(swimmer);
-                    }
-                }
-                if (!participantsToRemove.isEmpty()) {
-                    raceEvent.getParticipants().removeAll(participantsToRemove);
-                    removed = true;
-                }
-            }
-
-            List<Observer> subscribersToRemove = new ArrayList<>();
-            for (Observer user : event.getSubscribers()) {
-                if (((User) user).getId() == longUserId) {
-                    subscribersToRemove.add(user);
-                }
+            if (event instanceof RaceEvent raceEvent && raceEvent.hasParticipant(longUserId)) {
+                eventRepository.removeParticipantFromEvent(raceEvent.getId(), longUserId);
+                invalidateRaceResults(raceEvent.getId());
             }
-            if (!subscribersToRemove.isEmpty()) {
-                event.getSubscribers().removeAll(subscribersToRemove);
-                removed = true;
+            if (event.hasSubscriber(longUserId)) {
+                eventRepository.removeSpectatorFromEvent(event.getId(), longUserId);
             }
         }
-
-        if (removed) {
-            ((EventFileRepository) eventRepository).save();
-        }
     }
 
+    /**
+     * Returns the events a user is subscribed to.
+     *
+     * @param user the user
+     * @return the events the user is subscribed to, ordered by id
+     */
     public List<Event> findEvents(User user) {
-        List<Event> subscribedEvents = new ArrayList<>();
-
-        for (Event event : eventRepository.findAll()) {
-            if (event.getSubscribers().contains(user)) {
-                subscribedEvents.add(event);
-            }
-        }
-        return subscribedEvents;
-    }
-
-    @Override
-    public void addObserver(Observer o) {
-        observers.add(o);
+        return eventRepository.findSubscribedEvents(user.getId());
     }
 
-    @Override
-    public void removeObserver(Observer o) {
-        observers.remove(o);
+    /**
+     * Returns the ids of the events a user is subscribed to, so a subscription can be checked in constant time.
+     *
+     * @param user the user
+     * @return the ids of the events the user is subscribed to
+     */
+    public Set<Long> findSubscribedEventIds(User user) {
+        return eventRepository.findSubscribedEventIds(user.getId());
     }
 
-    @Override
-    public void notifyObservers(String message) {
+    /**
+     * Subscribes to the start of the events a user is subscribed to.
+     *
+     * @param userId   the id of the user
+     * @param executor the executor the handler runs on, such as the JavaFX Application Thread
+     * @param handler  receives the events that started since the last call, oldest first
+     * @return the subscription, to cancel when the notifications are no longer needed
+     */
+    public EventBus.Subscription subscribeToEventStarts(Long userId, Executor executor, Consumer<List<EventStarted>> handler) {
+        return eventBus.subscribe(EventStarted.class, userId, executor, handler);
     }
 
-    public void notifyObservers(Event event) {
-        for (Observer o : observers) {
-            if (o instanceof EventWindow ew) {
-                for (User user : userRepository.findAll()) {
-                    if (Objects.equals(user.getId(), ew.getCurrentUser().getId()) && event.getSubscribers().contains(user)) {
-                        o.update("");
-                    }
+    /**
+     * Publishes the start of an event to the subscribers of the event that are listening. Walks either
+     * the subscribers of the event or the listening users, whichever is smaller, with a constant time
+     * lookup in the other.
+     *
+     * @param event the event that started
+     */
+    private void publishEventStarted(Event event) {
+        EventStarted notification = new EventStarted(event.getId(), event.getName());
+        Set<Long> listening = eventBus.subscribedUsers(EventStarted.class);
+        Collection<Observer> subscribers = event.getSubscribers();
+        if (listening.size() < subscribers.size()) {
+            for (Long userId : listening) {
+                if (event.hasSubscriber(userId)) {
+                    eventBus.publish(EventStarted.class, userId, notification);
+                }
+            }
+        } else {
+            for (Observer subscriber : subscribers) {
+                Long userId = ((User) subscriber).getId();
+                if (listening.contains(userId)) {
+                    eventBus.publish(EventStarted.class, userId, notification);
                 }
             }
         }
     }
 }
-
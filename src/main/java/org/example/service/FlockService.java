@@ -10,16 +10,19 @@ public class FlockService implements Service<Long, Flock>{
     private final FlockRepository flockRepository;
     private final UserRepository userRepository;
     private final ValidatorContext<Flock> validatorFlock;
+    private final IdAllocator idAllocator;
 
     /**
      * Creates an FlockService with the given Repository
      *
      * @param userRepository the repository used by the service
+     * @param idAllocator the allocator providing the ids of new flocks
      */
-    public FlockService(FlockRepository flockRepository, UserRepository userRepository, ValidatorContext<Flock> validatorFlock) {
+    public FlockService(FlockRepository flockRepository, UserRepository userRepository, ValidatorContext<Flock> validatorFlock, IdAllocator idAllocator) {
         this.flockRepository = flockRepository;
         this.userRepository = userRepository;
         this.validatorFlock = validatorFlock;
+        this.idAllocator = idAllocator;
     }
 
     /**
@@ -74,20 +77,13 @@ public class FlockService implements Service<Long, Flock>{
     }
 
     /**
-     * Generates a new unique identifier for a flock entity by finding the
-     * maximum existing identifier among all flocks and incrementing it by one.
+     * Generates a unique id for a new flock, taken from the {@link IdAllocator}.
      *
-     * @return a newly generated unique identifier as a {@code Long}
+     * @return a new unique flock id
      */
     @Override
     public Long generateID() {
-        long maxNumber = 0;
-        for (Flock flock : findAll()) {
-            if (flock.getId() > maxNumber) {
-                maxNumber = flock.getId();
-            }
-        }
-        return maxNumber + 1;
+        return idAllocator.nextId();
     }
 
     /**
@@ -0,0 +1,232 @@
+package org.example.service;
+
+import org.example.domain.Recommendation;
+import org.example.domain.SocialGraph;
+import org.example.domain.User;
+import org.example.repository.FriendshipRequestRepository;
+import org.example.repository.UserRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Suggests new friends ("people you may know"), ranked by the number of mutual friends.
+ *
+ * <p>Candidates are found by a two-hop expansion over the adjacency of the friendship graph: every
+ * friend of a friend who is not already a friend gets one point per mutual friend. The expansion stops
+ * after {@link #MAX_EXPANDED_EDGES} edges, so users with very popular friends still get an answer
+ * quickly, and only the best {@link #MAX_RECOMMENDATIONS} candidates are kept with a bounded heap.
+ * Users with a pending friend request in either direction are left out.</p>
+ *
+ * <p>The ranked list of every user is cached until the friendships change (tracked through the
+ * version of the {@link CommunityIndex}) or until it is invalidated explicitly, for example after the
+ * user sends a friend request. The cache has its own lock, held only to read or store a ranking, so
+ * invalidating a user from the JavaFX thread never waits for a ranking being computed; a ranking computed
+ * while an invalidation happened is returned but not cached.</p>
+ *
+ * <p>Ranking may need the friendship graph to be brought up to date, so the user interface asks for
+ * suggestions through {@link #getRecommendationPageAsync(Long, int, int)}, which runs on the
+ * {@link TaskExecutor}.</p>
+ */
+public class FriendRecommendationService {
+    public static final int MAX_RECOMMENDATIONS = 100;
+    public static final int MAX_EXPANDED_EDGES = 200_000;
+    private static final int MAX_CACHED_USERS = 1024;
+
+    private final CommunityIndex communityIndex;
+    private final UserRepository userRepository;
+    private final FriendshipRequestRepository friendshipRequestRepository;
+    private final TaskExecutor taskExecutor;
+    private final Map<Long, Ranking> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Ranking> eldest) {
+            return size() > MAX_CACHED_USERS;
+        }
+    };
+
+    private long invalidations;
+    private final Object rankLock = new Object(); // guards the scratch arrays of rank
+    private int[] mutualCount = new int[0];
+    private boolean[] excluded = new boolean[0];
+
+    /**
+     * Ranked candidates of one user, computed for one version of the friendships.
+     */
+    private record Ranking(long version, long[] userIds, int[] mutualFriends) {
+    }
+
+    /**
+     * One page of suggestions together with the total number of suggestions of the user.
+     *
+     * @param recommendations the suggestions of the page, best first
+     * @param total           the number of suggestions available for the user
+     */
+    public record RecommendationPage(List<Recommendation> recommendations, int total) {
+    }
+
+    public FriendRecommendationService(CommunityIndex communityIndex, UserRepository userRepository,
+                                       FriendshipRequestRepository friendshipRequestRepository, TaskExecutor taskExecutor) {
+        this.communityIndex = communityIndex;
+        this.userRepository = userRepository;
+        this.friendshipRequestRepository = friendshipRequestRepository;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Computes a page of suggestions in the background.
+     *
+     * @param userId the id of the user the suggestions are for
+     * @param offset the number of suggestions to skip
+     * @param limit  the maximum number of suggestions to return
+     * @return a future completed with the page and the total number of suggestions
+     */
+    public CompletableFuture<RecommendationPage> getRecommendationPageAsync(Long userId, int offset, int limit) {
+        return taskExecutor.submit(() -> {
+            Ranking ranking = getRanking(userId);
+            return new RecommendationPage(slice(ranking, offset, limit), ranking.userIds().length);
+        });
+    }
+
+    /**
+     * Returns a slice of the ranked friend suggestions of a user, best first.
+     *
+     * @param userId the id of the user the suggestions are for
+     * @param offset the number of suggestions to skip
+     * @param limit  the maximum number of suggestions to return
+     * @return the suggested users with their number of mutual friends
+     */
+    public List<Recommendation> getRecommendations(Long userId, int offset, int limit) {
+        return slice(getRanking(userId), offset, limit);
+    }
+
+    private List<Recommendation> slice(Ranking ranking, int offset, int limit) {
+        int from = Math.min(offset, ranking.userIds().length);
+        int to = Math.min(from + limit, ranking.userIds().length);
+        List<Long> ids = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ids.add(ranking.userIds()[i]);
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findByIds(ids)) {
+            users.put(user.getId(), user);
+        }
+        List<Recommendation> recommendations = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            User user = users.get(ranking.userIds()[i]);
+            if (user != null) {
+                recommendations.add(new Recommendation(user, ranking.mutualFriends()[i]));
+            }
+        }
+        return recommendations;
+    }
+
+    /**
+     * @param userId the id of the user the suggestions are for
+     * @return the number of friend suggestions available for the user
+     */
+    public int getRecommendationCount(Long userId) {
+        return getRanking(userId).userIds().length;
+    }
+
+    /**
+     * Drops the cached suggestions of a user, for example after a friend request from or to the user changed.
+     *
+     * @param userId the id of the user
+     */
+    public void invalidate(Long userId) {
+        synchronized (cache) {
+            cache.remove(userId);
+            invalidations++;
+        }
+    }
+
+    private Ranking getRanking(Long userId) {
+        long version = communityIndex.getVersion();
+        long invalidationsBefore;
+        synchronized (cache) {
+            Ranking cached = cache.get(userId);
+            if (cached != null && cached.version() == version) {
+                return cached;
+            }
+            invalidationsBefore = invalidations;
+        }
+        Ranking ranking;
+        synchronized (rankLock) {
+            ranking = rank(userId, communityIndex.getGraph(), version);
+        }
+        synchronized (cache) {
+            if (invalidations == invalidationsBefore) {
+                cache.put(userId, ranking);
+            }
+        }
+        return ranking;
+    }
+
+    private Ranking rank(long userId, SocialGraph graph, long version) {
+        int source = graph.indexOf(userId);
+        if (source < 0) {
+            return new Ranking(version, new long[0], new int[0]);
+        }
+        if (mutualCount.length != graph.size()) {
+            mutualCount = new int[graph.size()];
+            excluded = new boolean[graph.size()];
+        }
+
+        List<Integer> excludedUsers = new ArrayList<>();
+        excludedUsers.add(source);
+        for (int i = graph.neighborStart(source); i < graph.neighborEnd(source); i++) {
+            excludedUsers.add(graph.neighborAt(i));
+        }
+        for (User requested : friendshipRequestRepository.getFriendRequests(userId)) {
+            int index = graph.indexOf(requested.getId());
+            if (index >= 0) {
+                excludedUsers.add(index);
+            }
+        }
+        for (int index : excludedUsers) {
+            excluded[index] = true;
+        }
+
+        List<Integer> candidates = new ArrayList<>();
+        int expandedEdges = 0;
+        for (int i = graph.neighborStart(source); i < graph.neighborEnd(source) && expandedEdges < MAX_EXPANDED_EDGES; i++) {
+            int friend = graph.neighborAt(i);
+            for (int j = graph.neighborStart(friend); j < graph.neighborEnd(friend) && expandedEdges < MAX_EXPANDED_EDGES; j++) {
+                expandedEdges++;
+                int candidate = graph.neighborAt(j);
+                if (!excluded[candidate]) {
+                    if (mutualCount[candidate] == 0) {
+                        candidates.add(candidate);
+                    }
+                    mutualCount[candidate]++;
+                }
+            }
+        }
+
+        Comparator<Integer> ranking = Comparator.<Integer>comparingInt(candidate -> mutualCount[candidate])
+                .thenComparing(Comparator.reverseOrder());
+        PriorityQueue<Integer> best = new PriorityQueue<>(MAX_RECOMMENDATIONS + 1, ranking);
+        for (int candidate : candidates) {
+            best.add(candidate);
+            if (best.size() > MAX_RECOMMENDATIONS) {
+                best.poll();
+            }
+        }
+        int count = best.size();
+        long[] userIds = new long[count];
+        int[] mutualFriends = new int[count];
+        for (int k = count - 1; k >= 0; k--) {
+            int candidate = best.poll();
+            userIds[k] = graph.idOf(candidate);
+            mutualFriends[k] = mutualCount[candidate];
+        }
+
+        for (int candidate : candidates) {
+            mutualCount[candidate] = 0;
+        }
+        for (int index : excludedUsers) {
+            excluded[index] = false;
+        }
+        return new Ranking(version, userIds, mutualFriends);
+    }
+}
@@ -3,20 +3,31 @@ package org.example.service;
 import org.example.domain.*;
 import org.example.repository.*;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
-public class FriendshipRequestService implements Service<Long, FriendshipRequest>, Subject {
+public class FriendshipRequestService implements Service<Long, FriendshipRequest> {
     private final FriendshipRequestRepository friendshipRequestRepository;
     private final FriendshipRepository friendshipRepository;
     private final UserRepository userRepository;
-    private final List<Observer> observers = new ArrayList<>();
+    private final IdAllocator friendshipIdAllocator;
+    private final CommunityIndex communityIndex;
+    private final FriendRecommendationService recommendationService;
+    private final EventBus eventBus;
+    private final TaskExecutor taskExecutor;
 
-    public FriendshipRequestService(FriendshipRequestRepository friendshipRequestRepository, FriendshipRepository friendshipRepository, UserRepository userRepository) {
+    public FriendshipRequestService(FriendshipRequestRepository friendshipRequestRepository, FriendshipRepository friendshipRepository, UserRepository userRepository, IdAllocator friendshipIdAllocator, CommunityIndex communityIndex, FriendRecommendationService recommendationService, EventBus eventBus, TaskExecutor taskExecutor) {
         this.friendshipRequestRepository = friendshipRequestRepository;
         this.friendshipRepository = friendshipRepository;
         this.userRepository = userRepository;
+        this.friendshipIdAllocator = friendshipIdAllocator;
+        this.communityIndex = communityIndex;
+        this.recommendationService = recommendationService;
+        this.eventBus = eventBus;
+        this.taskExecutor = taskExecutor;
     }
 
     public List<User> getFriendRequests(Long userId) {
@@ -25,19 +36,25 @@ public class FriendshipRequestService implements Service<Long, FriendshipRequest
 
     public void sendFriendRequest(Long id1, Long id2) {
         friendshipRequestRepository.sendFriendRequest(id1, id2);
-        notifyObservers("Friend request sent from user " + id1 + " to user " + id2);
+        publishUpdate(new FriendRequestUpdate(id1, id2, Status.PENDING));
     }
 
     public List<User> getFriendRequestsUser(Long userId) {
         return friendshipRequestRepository.getFriendRequestsUser(userId);
     }
 
+    /**
+     * Accepts a pending friend request and makes the two users friends. If they already are, only
+     * the request is marked as accepted. The community index is updated only when a new friendship
+     * was actually stored.
+     *
+     * @param recipientId the id of the user accepting the request
+     * @param senderId the id of the user who sent the request
+     */
     public void acceptFriendRequest(Long recipientId, Long senderId) {
         Optional<FriendshipRequest> requestOptional = friendshipRequestRepository.findRequestBySenderAndRecipient(senderId, recipientId);
         if (requestOptional.isPresent()) {
             FriendshipRequest request = requestOptional.get();
-            request.setStatus(Status.ACCEPTED);
-            friendshipRequestRepository.updateFR(request);
             User user1 = userRepository.findById(senderId);
             if (user1 == null) {
                 throw new RuntimeException("Sender not found");
@@ -46,8 +63,17 @@ public class FriendshipRequestService implements Service<Long, FriendshipRequest
             if (user2 == null) {
                 throw new RuntimeException("Recipient not found");
             }
-            friendshipRepository.add(new Friendship(generateIDFriendship(), user1.getId(), user2.getId()));
-            notifyObservers("Friend request accepted from user " + senderId);
+            if (!friendshipRepository.existsBetween(user1.getId(), user2.getId())) {
+                Friendship friendship = new Friendship(generateIDFriendship(), user1.getId(), user2.getId());
+                if (friendshipRepository.addIfAbsent(friendship)) {
+                    communityIndex.friendshipAdded(friendship.getId(), user1.getId(), user2.getId());
+                } else if (!friendshipRepository.existsBetween(user1.getId(), user2.getId())) {
+                    throw new RuntimeException("The friendship could not be saved");
+                }
+            }
+            request.setStatus(Status.ACCEPTED);
+            friendshipRequestRepository.updateFR(request);
+            publishUpdate(new FriendRequestUpdate(senderId, recipientId, Status.ACCEPTED));
         } else {
             throw new RuntimeException("Friendship request not found.");
         }
@@ -59,7 +85,7 @@ public class FriendshipRequestService implements Service<Long, FriendshipRequest
             FriendshipRequest request = requestOptional.get();
             request.setStatus(Status.REJECTED);
             friendshipRequestRepository.updateFR(request);
-            notifyObservers("Friend request denied from user " + senderId);
+            publishUpdate(new FriendRequestUpdate(senderId, recipientId, Status.REJECTED));
         } else {
             throw new RuntimeException("Friendship request not found.");
         }
@@ -92,35 +118,51 @@ public class FriendshipRequestService implements Service<Long, FriendshipRequest
     }
 
     public Long generateIDFriendship() {
-        long maxNumber = 0;
-        for (Friendship friendship : friendshipRepository.findAll()) {
-            if (friendship.getId() > maxNumber) {
-                maxNumber = friendship.getId();
-            }
-        }
-        return maxNumber + 1;
+        return friendshipIdAllocator.nextId();
     }
 
-    @Override
-    public void addObserver(Observer o) {
-        observers.add(o);
+    /**
+     * Subscribes to the changes of the friend requests sent or received by a user.
+     *
+     * @param userId   the id of the user
+     * @param executor the executor the handler runs on, such as the JavaFX Application Thread
+     * @param handler  receives the changes since the last call, oldest first
+     * @return the subscription, to cancel when the notifications are no longer needed
+     */
+    public EventBus.Subscription subscribeToFriendRequests(Long userId, Executor executor, Consumer<List<FriendRequestUpdate>> handler) {
+        return eventBus.subscribe(FriendRequestUpdate.class, userId, executor, handler);
     }
 
-    @Override
-    public void removeObserver(Observer o) {
-        observers.remove(o);
+    /**
+     * Drops the cached friend suggestions of both users, since a request in either direction changes
+     * whether they are suggested to each other, and notifies both of them.
+     */
+    private void publishUpdate(FriendRequestUpdate update) {
+        recommendationService.invalidate(update.senderId());
+        recommendationService.invalidate(update.recipientId());
+        eventBus.publish(FriendRequestUpdate.class, update.senderId(), update);
+        eventBus.publish(FriendRequestUpdate.class, update.recipientId(), update);
     }
 
-    @Override
-    public void notifyObservers(String message) {
-        for (Observer observer : observers) {
-            observer.update(message);
-        }
+    /**
+     * Checks whether a user has received friend requests that are still pending, with a single
+     * lookup on the recipient index.
+     *
+     * @param userId the id of the user
+     * @return true if at least one request to the user is pending
+     */
+    public boolean hasPendingRequests(Long userId) {
+        return friendshipRequestRepository.hasPendingRequests(userId);
     }
 
-    public boolean hasPendingRequests(Long userId) {
-        List<FriendshipRequest> requests = (List<FriendshipRequest>) friendshipRequestRepository.findAll();
-        return requests.stream()
-                .anyMatch(request -> request.getRecipient().getId().equals(userId) && request.getStatus() == Status.PENDING);
+    /**
+     * Runs {@link #hasPendingRequests(Long)} in the background, so windows do not query the
+     * database on the JavaFX thread.
+     *
+     * @param userId the id of the user
+     * @return a future completed with true if at least one request to the user is pending
+     */
+    public CompletableFuture<Boolean> hasPendingRequestsAsync(Long userId) {
+        return taskExecutor.submit(() -> hasPendingRequests(userId));
     }
 }
@@ -1,28 +1,54 @@
 package org.example.service;
 
 import org.example.domain.Friendship;
+import org.example.domain.GraphDiameter;
+import org.example.domain.Page;
+import org.example.domain.SocialGraph;
 import org.example.domain.User;
 import org.example.exceptions.EntityAlreadyExists;
 import org.example.exceptions.EntityNotFoundException;
 import org.example.exceptions.validationExceptions.userExceptions.IdValidationException;
 import org.example.repository.FriendshipRepository;
+import org.example.repository.IdAllocator;
 import org.example.repository.UserRepository;
 import org.example.validation.ValidatorContext;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * Service layer for managing {@link Friendship} entities.
  */
 public class FriendshipService implements Service<Long, Friendship> {
+    private static final int PARALLEL_COMPONENT_SIZE = 100_000;
+    public static final int DEFAULT_MAX_DIAMETER_SEARCHES = 16;
+
     private final FriendshipRepository friendshipRepository;
     private final UserRepository userRepository;
     private final ValidatorContext<Friendship> validatorFriendship;
-
-    public FriendshipService(FriendshipRepository friendshipRepository, UserRepository userRepository, ValidatorContext<Friendship> validatorFriendship) {
+    private final IdAllocator idAllocator;
+    private final CommunityIndex communityIndex;
+    private final FriendRecommendationService recommendationService;
+    private final TaskExecutor taskExecutor;
+    private int diameterErrorBudget = 0;
+    private int maxDiameterSearches = DEFAULT_MAX_DIAMETER_SEARCHES;
+    private int maxConnectionHops = 6;
+    private ForkJoinPool analyticsPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private List<Long> mostSociableCommunity;
+    private int mostSociableCommunityError;
+    private long mostSociableCommunityVersion = -1;
+
+    public FriendshipService(FriendshipRepository friendshipRepository, UserRepository userRepository, ValidatorContext<Friendship> validatorFriendship, IdAllocator idAllocator, CommunityIndex communityIndex, FriendRecommendationService recommendationService, TaskExecutor taskExecutor) {
         this.friendshipRepository = friendshipRepository;
         this.userRepository = userRepository;
         this.validatorFriendship = validatorFriendship;
+        this.idAllocator = idAllocator;
+        this.communityIndex = communityIndex;
+        this.recommendationService = recommendationService;
+        this.taskExecutor = taskExecutor;
     }
 
     /**
@@ -56,7 +82,13 @@ public class FriendshipService implements Service<Long, Friendship> {
         if (exists(idFirstFriend, idSecondFriend)) {
             throw new EntityAlreadyExists("The friendship between " + idFirstFriend + " and " + idSecondFriend + " already exists");
         }
-        friendshipRepository.add(new Friendship(generateID(), longIdFirstFriend, longIdSecondFriend));
+        if (!friendshipRepository.addIfAbsent(friendship)) {
+            if (friendshipRepository.existsBetween(longIdFirstFriend, longIdSecondFriend)) {
+                throw new EntityAlreadyExists("The friendship between " + idFirstFriend + " and " + idSecondFriend + " already exists");
+            }
+            throw new RuntimeException("The friendship between " + idFirstFriend + " and " + idSecondFriend + " could not be saved");
+        }
+        communityIndex.friendshipAdded(friendship.getId(), longIdFirstFriend, longIdSecondFriend);
     }
 
     /**
@@ -74,10 +106,14 @@ public class FriendshipService implements Service<Long, Friendship> {
         } catch (NumberFormatException e) {
             throw new IdValidationException("The id must be a number");
         }
-        if (friendshipRepository.findById(longId) == null) {
+        Friendship friendship = friendshipRepository.findById(longId);
+        if (friendship == null) {
             throw new EntityNotFoundException("The friendship with id " + id + " was not found");
         }
-        friendshipRepository.remove(friendshipRepository.findById(longId));
+        if (!friendshipRepository.removeIfPresent(friendship)) {
+            throw new EntityNotFoundException("The friendship with id " + id + " was not found");
+        }
+        communityIndex.friendshipRemoved(friendship.getFirstFriendId(), friendship.getSecondFriendId());
     }
 
     @Override
@@ -92,13 +128,7 @@ public class FriendshipService implements Service<Long, Friendship> {
      */
     @Override
     public Long generateID() {
-        long maxNumber = 0;
-        for (Friendship friendship : findAll()) {
-            if (friendship.getId() > maxNumber) {
-                maxNumber = friendship.getId();
-            }
-        }
-        return maxNumber + 1;
+        return idAllocator.nextId();
     }
 
     /**
@@ -122,13 +152,7 @@ public class FriendshipService implements Service<Long, Friendship> {
         } catch (NumberFormatException e) {
             throw new IdValidationException(e.getMessage());
         }
-        for (Friendship friendship : friendshipRepository.findAll()) {
-            if (friendship.getFirstFriendId().equals(longIdFirstFriend) && friendship.getSecondFriendId().equals(longIdSecondFriend) ||
-                    friendship.getFirstFriendId().equals(longIdSecondFriend)  && friendship.getSecondFriendId().equals(longIdFirstFriend)) {
-                return true;
-            }
-        }
-        return false;
+        return friendshipRepository.existsBetween(longIdFirstFriend, longIdSecondFriend);
     }
 
 //    /**
@@ -157,176 +181,368 @@ public class FriendshipService implements Service<Long, Friendship> {
 
     /**
      * Returns the number of communities (connected groups of users) with at least two members.
+     * The count is maintained incrementally by the {@link CommunityIndex}.
      *
      * @return the number of communities
      */
     public int getNumberOfCommunities() {
-        Map<Long, List<Long>> graph = buildGraph();
-        Set<Long> visited = new HashSet<>();
+        return communityIndex.getCommunityCount();
+    }
 
-        int numberOfCommunities = 0;
+    /**
+     * Builds the friendship graph. Users without friends are not part of it, since they cannot
+     * belong to a community of at least two members.
+     *
+     * @return the friendship graph
+     */
+    private SocialGraph buildGraph() {
+        return communityIndex.getGraph();
+    }
+
+    /**
+     * Returns the most sociable community (the connected component with the largest diameter).
+     * The result is cached until the next change of the friendships. Diameters are only bounded
+     * within {@link #setMaxDiameterSearches(int)} searches per community, so on very large communities
+     * the result may rest on underestimated diameters; see {@link #getMostSociableCommunityError()}.
+     *
+     * @return the list of user ids in the most sociable community
+     */
+    public synchronized List<Long> getMostSociableCommunity() {
+        long version = communityIndex.getVersion();
+        if (mostSociableCommunity == null || mostSociableCommunityVersion != version) {
+            AtomicInteger error = new AtomicInteger();
+            mostSociableCommunity = computeMostSociableCommunity(error);
+            mostSociableCommunityError = error.get();
+            mostSociableCommunityVersion = version;
+        }
+        return new ArrayList<>(mostSociableCommunity);
+    }
 
-        for (Long userId : graph.keySet()) {
-            if (!visited.contains(userId) && !graph.get(userId).isEmpty()) {
-                int size = dfsSize(userId, graph, visited);
-                if (size >= 2) numberOfCommunities++;
+    /**
+     * Returns the most sociable community without blocking the caller, computing it on the shared
+     * {@link TaskExecutor} if needed.
+     *
+     * @return a future completed with the result of {@link #getMostSociableCommunity()}
+     */
+    public CompletableFuture<List<Long>> getMostSociableCommunityAsync() {
+        return taskExecutor.submit(this::getMostSociableCommunity);
+    }
+
+    /**
+     * @return the largest amount by which a community diameter may have been underestimated when the
+     * most sociable community was last computed; 0 if every diameter was exact
+     */
+    public synchronized int getMostSociableCommunityError() {
+        return mostSociableCommunityError;
+    }
+
+    /**
+     * Measures the diameter of every community on the analytics pool. Communities are processed from
+     * the largest to the smallest: the large ones run one at a time with parallel frontier BFS, so a giant
+     * community keeps every thread busy, and the small ones are spread over the pool by a parallel stream,
+     * whose work stealing balances uneven sizes. A community is skipped once it is too small to beat the
+     * best diameter found so far. Ties are broken in favour of the community found first, as before.
+     *
+     * @param error raised to the largest error of the measured diameters
+     * @return the ids of the users of the community with the largest diameter
+     */
+    private List<Long> computeMostSociableCommunity(AtomicInteger error) {
+        SocialGraph graph = buildGraph();
+        SocialGraph.Components components = graph.connectedComponents();
+        int[] diameters = new int[components.count()];
+        Arrays.fill(diameters, -1);
+        AtomicInteger maxDiameter = new AtomicInteger(-1);
+        int errorBudget = diameterErrorBudget;
+        int maxSearches = maxDiameterSearches;
+
+        int[] bySize = IntStream.range(0, components.count())
+                .boxed()
+                .sorted(Comparator.comparingInt(components::size).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int largeCount = 0;
+        while (largeCount < bySize.length && components.size(bySize[largeCount]) >= PARALLEL_COMPONENT_SIZE) {
+            largeCount++;
+        }
+        int large = largeCount;
+
+        GraphDiameter parallelDiameter = new GraphDiameter(graph, analyticsPool, PARALLEL_COMPONENT_SIZE);
+        for (int k = 0; k < large; k++) {
+            measureCommunity(bySize[k], components, parallelDiameter, errorBudget, maxSearches, diameters, maxDiameter, error);
+        }
+        ThreadLocal<GraphDiameter> workerDiameter = ThreadLocal.withInitial(() -> new GraphDiameter(graph));
+        analyticsPool.submit(() -> Arrays.stream(bySize, large, bySize.length)
+                .parallel()
+                .forEach(component -> measureCommunity(component, components, workerDiameter.get(),
+                        errorBudget, maxSearches, diameters, maxDiameter, error)))
+                .join();
+
+        int mostSociableCommunity = -1;
+        for (int component = 0; component < diameters.length; component++) {
+            if (mostSociableCommunity < 0 || diameters[component] > diameters[mostSociableCommunity]) {
+                mostSociableCommunity = component;
             }
         }
 
-        return numberOfCommunities;
+        List<Long> community = new ArrayList<>();
+        if (mostSociableCommunity >= 0) {
+            for (int member : components.members(mostSociableCommunity)) {
+                community.add(graph.idOf(member));
+            }
+        }
+        return community;
     }
 
-    private Map<Long, List<Long>> buildGraph() {
-        Map<Long, List<Long>> graph = new HashMap<>();
-        for (User user : userRepository.findAll()) graph.put(user.getId(), new ArrayList<>());
-        for (Friendship f : friendshipRepository.findAll()) {
-            graph.get(f.getFirstFriendId()).add(f.getSecondFriendId());
-            graph.get(f.getSecondFriendId()).add(f.getFirstFriendId());
+    private void measureCommunity(int component, SocialGraph.Components components, GraphDiameter diameter,
+                                  int errorBudget, int maxSearches, int[] diameters, AtomicInteger maxDiameter,
+                                  AtomicInteger error) {
+        if (components.size(component) - 1 < maxDiameter.get()) {
+            return;
         }
-        return graph;
+        GraphDiameter.Estimate estimate = diameter.estimate(components.members(component), errorBudget, maxSearches);
+        diameters[component] = estimate.lowerBound();
+        maxDiameter.accumulateAndGet(estimate.lowerBound(), Math::max);
+        error.accumulateAndGet(estimate.error(), Math::max);
     }
 
-    private int dfsSize(Long nodeId, Map<Long, List<Long>> graph, Set<Long> visited) {
-        visited.add(nodeId);
-        int size = 1;
-        for (Long neighbor : graph.get(nodeId)) {
-            if (!visited.contains(neighbor)) {
-                size += dfsSize(neighbor, graph, visited);
-            }
+    /**
+     * Sets the number of threads used by {@link #getMostSociableCommunity()}.
+     * Defaults to the number of available processors.
+     *
+     * @param threads the number of threads, at least 1
+     */
+    public synchronized void setAnalyticsParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1");
         }
-        return size;
+        ForkJoinPool previous = analyticsPool;
+        analyticsPool = new ForkJoinPool(threads);
+        previous.shutdown();
+    }
+
+    public synchronized int getAnalyticsParallelism() {
+        return analyticsPool.getParallelism();
     }
 
     /**
-     * Returns the most sociable community (the connected component with the largest diameter).
+     * Sets the error accepted when measuring community diameters for {@link #getMostSociableCommunity()}.
+     * With 0 (the default) the diameters are exact unless a community needs more than
+     * {@link #setMaxDiameterSearches(int)} searches; with {@code k > 0} each diameter may be underestimated
+     * by at most {@code k}, which saves breadth-first searches on very large communities.
      *
-     * @return the list of user ids in the most sociable community
+     * @param diameterErrorBudget the accepted error, at least 0
      */
-    public List<Long> getMostSociableCommunity() {
-        Map<Long , List<Long>> graph = buildGraph();
-        Set<Long> visited = new HashSet<>();
-        int maxDiameter = -1;
-        List<Long> mostSociableCommunity = new ArrayList<>();
-
-        for (Long userId : graph.keySet()) {
-            if (!visited.contains(userId) && !graph.get(userId).isEmpty()) {
-                List<Long> component = new ArrayList<>();
-                dfsCollect(userId, graph, visited, component);
-
-                int diameter = getCommunityDiameter(component, graph);
-
-                if (diameter > maxDiameter) {
-                    maxDiameter = diameter;
-                    mostSociableCommunity = component;
-                }
-            }
+    public synchronized void setDiameterErrorBudget(int diameterErrorBudget) {
+        if (diameterErrorBudget < 0) {
+            throw new IllegalArgumentException("The diameter error budget cannot be negative");
         }
+        this.diameterErrorBudget = diameterErrorBudget;
+        this.mostSociableCommunity = null;
+    }
 
-        return mostSociableCommunity;
+    /**
+     * Sets how many users of each community may have their eccentricity computed by
+     * {@link #getMostSociableCommunity()} once the central user is chosen. Each search visits the whole
+     * community, so the cap bounds the time spent on very large communities; a community that needs more
+     * searches gets a lower bound of its diameter, whose error is reported by {@link #getMostSociableCommunityError()}.
+     * Defaults to {@value #DEFAULT_MAX_DIAMETER_SEARCHES}.
+     *
+     * @param maxDiameterSearches the number of searches per community, at least 0
+     */
+    public synchronized void setMaxDiameterSearches(int maxDiameterSearches) {
+        if (maxDiameterSearches < 0) {
+            throw new IllegalArgumentException("The number of diameter searches cannot be negative");
+        }
+        this.maxDiameterSearches = maxDiameterSearches;
+        this.mostSociableCommunity = null;
+    }
+
+    public synchronized int getMaxDiameterSearches() {
+        return maxDiameterSearches;
+    }
+
+    public int getNumberOfFriends(Long userId) {
+        return friendshipRepository.countFriendsOfUser(userId);
     }
 
     /**
-     * Performs a depth-first search (DFS) traversal on the given graph,
-     * collecting all nodes that belong to the same connected component
-     * as the specified starting node.
+     * Returns the friends two users have in common. When the friendship graph snapshot is up to date
+     * the sorted adjacency lists are intersected in memory, otherwise the database intersects the two
+     * friend sets, so a profile view never forces a rebuild of the graph.
      *
-     * @param nodeId the ID of the starting node for the DFS traversal
-     * @param graph the adjacency list representation of the graph
-     * @param visited a set of nodes that have already been visited
-     * @param component a list to collect the nodes in the connected component
+     * @param firstUserId  the id of one user
+     * @param secondUserId the id of the other user
+     * @return the mutual friends, ordered by id
      */
-    private void dfsCollect(Long nodeId, Map<Long, List<Long>> graph, Set<Long> visited, List<Long> component) {
-        visited.add(nodeId);
-        component.add(nodeId);
-        for (Long neighbor : graph.get(nodeId)) {
-            if (!visited.contains(neighbor)) {
-                dfsCollect(neighbor, graph, visited, component);
-            }
+    public List<User> mutualFriends(Long firstUserId, Long secondUserId) {
+        SocialGraph graph = communityIndex.getGraphIfCurrent();
+        if (graph == null) {
+            return friendshipRepository.findMutualFriends(firstUserId, secondUserId);
         }
+        int first = graph.indexOf(firstUserId);
+        int second = graph.indexOf(secondUserId);
+        if (first < 0 || second < 0) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (int friend : graph.commonNeighbors(first, second)) {
+            ids.add(graph.idOf(friend));
+        }
+        return userRepository.findByIds(ids);
+    }
+
+    /**
+     * Counts the friends two users have in common, in memory when the friendship graph snapshot is
+     * up to date and in the database otherwise.
+     *
+     * @param firstUserId  the id of one user
+     * @param secondUserId the id of the other user
+     * @return the number of mutual friends
+     * @see #mutualFriends(Long, Long)
+     */
+    public int mutualFriendCount(Long firstUserId, Long secondUserId) {
+        SocialGraph graph = communityIndex.getGraphIfCurrent();
+        if (graph == null) {
+            return friendshipRepository.countMutualFriends(firstUserId, secondUserId);
+        }
+        int first = graph.indexOf(firstUserId);
+        int second = graph.indexOf(secondUserId);
+        return first < 0 || second < 0 ? 0 : graph.commonNeighborCount(first, second);
     }
 
     /**
-     * Performs a breadth-first search (BFS) traversal starting from a given node to find the farthest node
-     * within a connected component of a graph.
+     * Counts the friends a user has in common with each of several other users, in memory when the
+     * friendship graph snapshot is up to date and with a single database query otherwise.
      *
-     * @param start the starting node for the BFS traversal
-     * @param graph the adjacency list representation of the graph
-     * @param component a list of nodes that belong to the connected component
-     * @return the node that is farthest from the starting node within the specified component
+     * @param userId       the id of the user
+     * @param otherUserIds the ids of the users to compare with
+     * @return the number of mutual friends keyed by the id of the other user, 0 for users without any
      */
-    private Long bfsFarthestNode(Long start, Map<Long, List<Long>> graph, List<Long> component) {
-        Queue<Long> queue = new LinkedList<>();
-        Set<Long> visited = new HashSet<>();
-        queue.add(start);
-        visited.add(start);
-        Long farthest = start;
-
-        while (!queue.isEmpty()) {
-            Long current = queue.poll();
-            farthest = current;
-            for (Long neighbor : graph.get(current)) {
-                if (component.contains(neighbor) && !visited.contains(neighbor)) {
-                    visited.add(neighbor);
-                    queue.add(neighbor);
+    public Map<Long, Integer> mutualFriendCounts(Long userId, Collection<Long> otherUserIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        SocialGraph graph = communityIndex.getGraphIfCurrent();
+        if (graph == null) {
+            counts.putAll(friendshipRepository.countMutualFriends(userId, otherUserIds));
+        } else {
+            int source = graph.indexOf(userId);
+            for (Long otherUserId : otherUserIds) {
+                int other = graph.indexOf(otherUserId);
+                if (source >= 0 && other >= 0) {
+                    counts.put(otherUserId, graph.commonNeighborCount(source, other));
                 }
             }
         }
-        return farthest;
+        for (Long otherUserId : otherUserIds) {
+            counts.putIfAbsent(otherUserId, 0);
+        }
+        return counts;
     }
 
     /**
-     * Performs a breadth-first search (BFS) to compute the maximum distance from the starting node
-     * to any other node within the same connected component of a graph.
+     * Finds how two users are connected: the users on a shortest chain of friendships between them.
      *
-     * @param start the starting node for the BFS traversal
-     * @param graph the adjacency list representation of the graph
-     * @param component the list of nodes that belong to the connected component
-     * @return the maximum distance to any node within the specified component
+     * @param idFirstUser  the id of the first user
+     * @param idSecondUser the id of the second user
+     * @return the users on the path, from the first to the second user; the number of friendships
+     *         between them is {@code size() - 1}. Empty if the users are not connected within the hop limit
+     * @throws IdValidationException if any id is not a valid number
+     * @see #findConnectionPath(Long, Long)
      */
-    private int bfsMaxDistance(Long start, Map<Long, List<Long>> graph, List<Long> component) {
-        Queue<Long> queue = new LinkedList<>();
-        Map<Long, Integer> distance = new HashMap<>();
-        queue.add(start);
-        distance.put(start, 0);
-        int maxDistance = 0;
-
-        while (!queue.isEmpty()) {
-            Long current = queue.poll();
-            int currentDistance = distance.get(current);
-            maxDistance = Math.max(currentDistance, maxDistance);
-
-            for (Long neighbor : graph.get(current)) {
-                if (component.contains(neighbor) && !distance.containsKey(neighbor)) {
-                    distance.put(neighbor, currentDistance + 1);
-                    queue.add(neighbor);
-                }
+    public List<User> findConnectionPath(String idFirstUser, String idSecondUser) {
+        long longIdFirstUser;
+        long longIdSecondUser;
+        try {
+            longIdFirstUser = Long.parseLong(idFirstUser);
+            longIdSecondUser = Long.parseLong(idSecondUser);
+        } catch (NumberFormatException e) {
+            throw new IdValidationException("The id must be a number");
+        }
+        return findConnectionPath(longIdFirstUser, longIdSecondUser);
+    }
+
+    /**
+     * Finds how two users are connected with a bidirectional breadth-first search on the friendship
+     * graph, limited to {@link #getMaxConnectionHops()} friendships. Users of different communities
+     * are rejected by the {@link CommunityIndex} without searching.
+     *
+     * @param firstUserId  the id of the first user
+     * @param secondUserId the id of the second user
+     * @return the users on a shortest path, from the first to the second user, or an empty list if they
+     *         are not connected within the hop limit or a user on the path no longer exists
+     */
+    public List<User> findConnectionPath(Long firstUserId, Long secondUserId) {
+        if (firstUserId.equals(secondUserId)) {
+            User user = userRepository.findById(firstUserId);
+            return user == null ? new ArrayList<>() : new ArrayList<>(List.of(user));
+        }
+        if (!communityIndex.sameCommunity(firstUserId, secondUserId)) {
+            return new ArrayList<>();
+        }
+        SocialGraph graph = buildGraph();
+        int[] path = graph.shortestPath(graph.indexOf(firstUserId), graph.indexOf(secondUserId), maxConnectionHops);
+        if (path == null) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (int user : path) {
+            ids.add(graph.idOf(user));
+        }
+        Map<Long, User> usersById = new HashMap<>();
+        for (User user : userRepository.findByIds(ids)) {
+            usersById.put(user.getId(), user);
+        }
+        List<User> users = new ArrayList<>();
+        for (Long id : ids) {
+            User user = usersById.get(id);
+            if (user == null) {
+                return new ArrayList<>();
             }
+            users.add(user);
         }
+        return users;
+    }
 
-        return maxDistance;
+    /**
+     * Runs {@link #findConnectionPath(Long, Long)} in the background, since it may have to bring the
+     * friendship graph up to date first.
+     *
+     * @param firstUserId  the id of the first user
+     * @param secondUserId the id of the second user
+     * @return a future completed with the users on a shortest path, or with an empty list
+     */
+    public CompletableFuture<List<User>> findConnectionPathAsync(Long firstUserId, Long secondUserId) {
+        return taskExecutor.submit(() -> findConnectionPath(firstUserId, secondUserId));
     }
 
     /**
-     * Calculates the diameter of a connected component in a graph. The diameter is defined as the
-     * longest shortest path between any two nodes in the component.
+     * Sets the longest chain of friendships searched by {@link #findConnectionPath(Long, Long)}. Defaults to 6.
      *
-     * @param component the list of node IDs that belong to the connected component
-     * @param graph the adjacency list representation of the graph
-     * @return the diameter of the connected component
+     * @param maxConnectionHops the number of friendships, at least 1
      */
-    private int getCommunityDiameter(List<Long> component, Map<Long, List<Long>> graph) {
-        if (component.isEmpty()) return 0;
-        Long start = component.getFirst();
-        Long farthest = bfsFarthestNode(start, graph, component);
-        return bfsMaxDistance(farthest, graph, component);
+    public void setMaxConnectionHops(int maxConnectionHops) {
+        if (maxConnectionHops < 1) {
+            throw new IllegalArgumentException("The maximum number of hops must be at least 1");
+        }
+        this.maxConnectionHops = maxConnectionHops;
     }
 
-    public int getNumberOfFriends(Long userId) {
-        return friendshipRepository.countFriendsOfUser(userId);
+    public int getMaxConnectionHops() {
+        return maxConnectionHops;
     }
 
-    public List<User> findFriends(Long userId, int page, int pageSize) {
-        return friendshipRepository.findFriends(userId, page, pageSize);
+    public Page<User> findFriendsAfter(Long userId, Long afterId, int pageSize) {
+        return friendshipRepository.findFriendsAfter(userId, afterId, pageSize);
     }
 
+    /**
+     * Computes a page of "people you may know" suggestions for a user in the background, ranked by mutual friends.
+     *
+     * @param userId the id of the user
+     * @param offset the number of suggestions to skip
+     * @param limit  the maximum number of suggestions to return
+     * @return a future completed with the suggestions, best first, and their total number
+     */
+    public CompletableFuture<FriendRecommendationService.RecommendationPage> getFriendRecommendationsAsync(Long userId, int offset, int limit) {
+        return recommendationService.getRecommendationPageAsync(userId, offset, limit);
+    }
 }
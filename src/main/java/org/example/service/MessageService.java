@@ -3,6 +3,7 @@ package org.example.service;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import org.example.domain.Message;
+import org.example.repository.IdAllocator;
 import org.example.repository.MessageRepository;
 
 import java.time.LocalDateTime;
@@ -11,9 +12,11 @@ import java.util.List;
 public class MessageService implements Service<Long, Message> {
     private final MessageRepository messageRepository;
     private final ObservableList<Message> messages;
+    private final IdAllocator idAllocator;
 
-    public MessageService(MessageRepository messageRepository) {
+    public MessageService(MessageRepository messageRepository, IdAllocator idAllocator) {
         this.messageRepository = messageRepository;
+        this.idAllocator = idAllocator;
         this.messages = FXCollections.observableArrayList();
     }
 
@@ -51,12 +54,6 @@ public class MessageService implements Service<Long, Message> {
 
     @Override
     public Long generateID() {
-        long maxNumber = 0;
-        for (Message message : findAll()) {
-            if (message.getId() > maxNumber) {
-                maxNumber = message.getId();
-            }
-        }
-        return maxNumber + 1;
+        return idAllocator.nextId();
     }
 }
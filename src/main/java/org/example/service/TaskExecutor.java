@@ -0,0 +1,85 @@
+package org.example.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Application-wide executor for background work of the service layer, such as computing race results
+ * for the user interface. Every task runs on its own virtual thread, so waiting on the database costs
+ * no platform thread, while a semaphore limits how many tasks run at the same time so a burst of
+ * requests cannot exhaust the connection pool.
+ *
+ * <p>Cancelling a returned future interrupts its task, whether it is still waiting for a permit or
+ * already running.</p>
+ */
+public class TaskExecutor implements AutoCloseable {
+    public static final int DEFAULT_MAX_CONCURRENT_TASKS = 8;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+
+    /**
+     * Creates an executor running at most {@link #DEFAULT_MAX_CONCURRENT_TASKS} tasks at a time.
+     */
+    public TaskExecutor() {
+        this(DEFAULT_MAX_CONCURRENT_TASKS);
+    }
+
+    /**
+     * Creates an executor running at most the given number of tasks at a time.
+     *
+     * @param maxConcurrentTasks the number of tasks allowed to run at the same time, at least 1
+     */
+    public TaskExecutor(int maxConcurrentTasks) {
+        if (maxConcurrentTasks < 1) {
+            throw new IllegalArgumentException("The number of concurrent tasks must be at least 1");
+        }
+        this.permits = new Semaphore(maxConcurrentTasks);
+    }
+
+    /**
+     * Runs a task in the background.
+     *
+     * @param task the task to run
+     * @param <T>  the type of the result of the task
+     * @return a future completed with the result of the task, or with the exception it threw
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                result.cancel(false);
+                return;
+            }
+            try {
+                if (!result.isDone()) {
+                    result.complete(task.get());
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                permits.release();
+            }
+        });
+        result.whenComplete((value, exception) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stops accepting tasks and interrupts the running ones.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -1,12 +1,14 @@
 package org.example.service;
 
 import org.example.domain.*;
+import org.example.exceptions.EntityAlreadyExists;
 import org.example.exceptions.EntityNotFoundException;
 import org.example.exceptions.validationExceptions.duckExceptions.DuckTypeValidationException;
 import org.example.exceptions.validationExceptions.duckExceptions.ResistanceValidationException;
 import org.example.exceptions.validationExceptions.duckExceptions.SpeedValidationException;
 import org.example.exceptions.validationExceptions.personExceptions.BirthdateValidationException;
 import org.example.exceptions.validationExceptions.userExceptions.IdValidationException;
+import org.example.repository.IdAllocator;
 import org.example.repository.UserRepository;
 import org.example.validation.ValidatorContext;
 
@@ -14,7 +16,6 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -24,16 +25,22 @@ public class UserService implements Service<Long, User> {
 
     UserRepository userRepository;
     ValidatorContext<User> validatorUser;
+    IdAllocator idAllocator;
+    CommunityIndex communityIndex;
 
     /**
      * Constructs a UserService with the given repository and validator.
      *
      * @param userRepository repository used to store users
      * @param validatorUser validator used to validate user entities
+     * @param idAllocator allocator providing the ids of new users
+     * @param communityIndex community index notified when a user and their friendships are removed
      */
-    public UserService(UserRepository userRepository, ValidatorContext<User> validatorUser) {
+    public UserService(UserRepository userRepository, ValidatorContext<User> validatorUser, IdAllocator idAllocator, CommunityIndex communityIndex) {
         this.userRepository = userRepository;
         this.validatorUser = validatorUser;
+        this.idAllocator = idAllocator;
+        this.communityIndex = communityIndex;
     }
 
     /**
@@ -44,12 +51,19 @@ public class UserService implements Service<Long, User> {
      * @throws SpeedValidationException if the speed is not a valid number
      * @throws ResistanceValidationException if the resistance is not a valid number
      * @throws BirthdateValidationException if the birthdate format is invalid
+     * @throws EntityAlreadyExists if the username or the email is already used by another user
      */
     public void add(String ... fields) {
         String userType = fields[0];
         String username = fields[1];
         String email = fields[2];
         String password = fields[3];
+        if (userRepository.findByUsername(username).isPresent()) {
+            throw new EntityAlreadyExists("The username " + username + " is already taken");
+        }
+        if (userRepository.findByEmail(email).isPresent()) {
+            throw new EntityAlreadyExists("The email " + email + " is already used by another account");
+        }
         switch (userType) {
             case "Duck":
                 String duckType = fields[4];
@@ -123,6 +137,10 @@ public class UserService implements Service<Long, User> {
             throw new EntityNotFoundException("The user with id " + id + " was not found");
         }
         userRepository.remove(user);
+        if (userRepository.findById(longId) != null) {
+            throw new RuntimeException("The user with id " + id + " could not be removed");
+        }
+        communityIndex.userRemoved(longId);
     }
 
     @Override
@@ -137,13 +155,7 @@ public class UserService implements Service<Long, User> {
      */
     @Override
     public Long generateID() {
-        long maxNumber = 0;
-        for (User user : findAll()) {
-            if (user.getId() > maxNumber) {
-                maxNumber = user.getId();
-            }
-        }
-        return maxNumber + 1;
+        return idAllocator.nextId();
     }
 
     /**
@@ -194,35 +206,40 @@ public class UserService implements Service<Long, User> {
 //        return filtered;
 //    }
 
-    public List<User> getUsersPage(Long pageNumber, Long pageSize) {
-        return userRepository.getUsersPage(pageNumber, pageSize);
-    }
-
     public Long getUsersCount() {
         return userRepository.getUsersCount();
     }
 
-    public List<User> getDucksPageByType(String type, Long page, Long pageSize) {
-        return userRepository.findDucksPageByType(type, page, pageSize);
-    }
-
     public long getDucksCountByType(String type) {
         return userRepository.getDucksCountByType(type);
     }
 
-    public User login(String username, String password) {
-        for (User user : userRepository.findAll()) {
+    public Page<User> getUsersPageAfter(Long afterId, int pageSize) {
+        return userRepository.getUsersPageAfter(afterId, pageSize);
+    }
 
-            if (user == null) {
-                continue;
-            }
+    public Page<User> getDucksPageByTypeAfter(String type, Long afterId, int pageSize) {
+        return userRepository.findDucksPageByTypeAfter(type, afterId, pageSize);
+    }
 
-            if (user.getUsername().equals(username)
-                    && user.getPassword().equals(hashPassword(password))) {
-                return user;
-            }
-        }
-        return null;
+    public Page<User> getNonFriendsPageAfter(Long userId, String usernamePrefix, Long afterId, int pageSize) {
+        return userRepository.findNonFriendsPageAfter(userId, usernamePrefix, afterId, pageSize);
+    }
+
+    /**
+     * Finds a user by username
+     * @param username the username of the user to find
+     * @return the User entity with the given username, or null if not found
+     */
+    public User findByUsername(String username) {
+        return userRepository.findByUsername(username).orElse(null);
+    }
+
+    public User login(String username, String password) {
+        String hashedPassword = hashPassword(password);
+        return userRepository.findByUsername(username)
+                .filter(user -> user.getPassword().equals(hashedPassword))
+                .orElse(null);
     }
 
     public static String hashPassword(String password) {
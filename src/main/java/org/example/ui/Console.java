@@ -50,6 +50,7 @@ public class Console {
         System.out.println("8. Show The Most Sociable Community");
         System.out.println("9. Flock Menu");
         System.out.println("10. Event Menu");
+        System.out.println("11. Show How Two Users Are Connected");
         System.out.println("0. Exit");
         System.out.println("================");
         System.out.print("Choose an option: ");
@@ -198,6 +199,9 @@ public class Console {
                         }
                     }
                     break;
+                case "11":
+                    showConnectionPath();
+                    break;
                 case "0":
                     run = false;
                     System.out.println("Exiting...");
@@ -382,6 +386,38 @@ public class Console {
             User user = userService.findById(userId.toString());
             System.out.println(user);
         }
+        int error = friendshipService.getMostSociableCommunityError();
+        if (error > 0) {
+            System.out.println("Diameters of very large communities were estimated to within " + error + " friendships");
+        }
+    }
+
+    /**
+     * Prompts for two user IDs and displays a shortest chain of friendships between them.
+     * All exceptions are caught and printed to the console.
+     */
+    public void showConnectionPath() {
+        Scanner scanner = new Scanner(System.in);
+
+        System.out.print("Enter the ID of the first user: ");
+        String firstId = scanner.nextLine();
+
+        System.out.print("Enter the ID of the second user: ");
+        String secondId = scanner.nextLine();
+
+        try {
+            List<User> path = friendshipService.findConnectionPath(firstId, secondId);
+            if (path.isEmpty()) {
+                System.out.println("The users are not connected within " + friendshipService.getMaxConnectionHops() + " friendships");
+                return;
+            }
+            System.out.println("Degrees of separation: " + (path.size() - 1));
+            for (User user : path) {
+                System.out.println(user);
+            }
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
     }
 
     /**
@@ -0,0 +1,69 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Times the exact and approximate diameter of the largest community of preferential attachment graphs
+ * of up to a million users. Like social networks, these graphs have a few hubs, which keep the fringes
+ * iFUB has to visit small. Graphs whose users all have about the same number of friends are its worst case:
+ * there, the search is capped and the bounds reached within the cap are reported.
+ */
+@Tag("benchmark")
+class GraphDiameterBenchmark {
+
+    @Test
+    void diameterOfAMillionUserCommunityTakesSeconds() {
+        System.out.printf("%10s %12s %10s %10s %12s %12s%n", "users", "community", "diameter", "exact ms", "approx(2)", "approx ms");
+        for (int users : new int[]{100_000, 1_000_000}) {
+            SocialGraph graph = TestGraphs.preferentialAttachment(users, 2, users);
+            SocialGraph.Components components = graph.connectedComponents();
+            int largest = 0;
+            for (int c = 1; c < components.count(); c++) {
+                if (components.size(c) > components.size(largest)) {
+                    largest = c;
+                }
+            }
+            int[] members = components.members(largest);
+            GraphDiameter diameter = new GraphDiameter(graph);
+
+            long start = System.nanoTime();
+            int exact = diameter.exact(members);
+            long exactNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int approximate = diameter.approximate(members, 2);
+            long approximateNanos = System.nanoTime() - start;
+
+            System.out.printf("%10d %12d %10d %10.1f %12d %12.1f%n", users, members.length, exact,
+                    exactNanos / 1e6, approximate, approximateNanos / 1e6);
+            assertTrue(approximate <= exact && approximate >= exact - 2);
+        }
+    }
+
+    @Test
+    void cappedSearchesBoundAUniformMillionUserGraphInSeconds() {
+        System.out.printf("%10s %12s %10s %10s %10s%n", "users", "community", "lower", "upper", "ms");
+        for (int users : new int[]{100_000, 1_000_000}) {
+            SocialGraph graph = TestGraphs.random(users, 2 * users, users);
+            SocialGraph.Components components = graph.connectedComponents();
+            int largest = 0;
+            for (int c = 1; c < components.count(); c++) {
+                if (components.size(c) > components.size(largest)) {
+                    largest = c;
+                }
+            }
+            int[] members = components.members(largest);
+
+            long start = System.nanoTime();
+            GraphDiameter.Estimate estimate = new GraphDiameter(graph).estimate(members, 0, 16);
+            long nanos = System.nanoTime() - start;
+
+            System.out.printf("%10d %12d %10d %10d %10.1f%n", users, members.length, estimate.lowerBound(),
+                    estimate.upperBound(), nanos / 1e6);
+            assertTrue(estimate.lowerBound() <= estimate.upperBound());
+        }
+    }
+}
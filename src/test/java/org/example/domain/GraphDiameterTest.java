@@ -0,0 +1,106 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphDiameterTest {
+
+    @Test
+    void measuresSmallComponents() {
+        SocialGraph graph = SocialGraph.of(new long[]{1, 3, 4}, new long[]{2, 4, 5}, 3);
+        GraphDiameter diameter = new GraphDiameter(graph);
+
+        assertEquals(1, diameter.exact(new int[]{graph.indexOf(1), graph.indexOf(2)}));
+        assertEquals(2, diameter.exact(new int[]{graph.indexOf(3), graph.indexOf(4), graph.indexOf(5)}));
+    }
+
+    @Test
+    void measuresChainsCyclesAndStars() {
+        SocialGraph chain = TestGraphs.chain(1_000);
+        assertEquals(999, new GraphDiameter(chain).exact(chain.connectedComponents().members(0)));
+
+        long[] firstIds = new long[101];
+        long[] secondIds = new long[101];
+        for (int i = 0; i < 101; i++) {
+            firstIds[i] = i;
+            secondIds[i] = (i + 1) % 101;
+        }
+        SocialGraph cycle = SocialGraph.of(firstIds, secondIds, 101);
+        assertEquals(50, new GraphDiameter(cycle).exact(cycle.connectedComponents().members(0)));
+
+        for (int i = 0; i < 100; i++) {
+            firstIds[i] = 0;
+            secondIds[i] = i + 1;
+        }
+        SocialGraph star = SocialGraph.of(firstIds, secondIds, 100);
+        assertEquals(2, new GraphDiameter(star).exact(star.connectedComponents().members(0)));
+    }
+
+    @Test
+    void exactDiameterMatchesTheLargestEccentricity() {
+        for (long seed = 1; seed <= 20; seed++) {
+            SocialGraph graph = TestGraphs.random(400, 450 + (int) seed * 10, seed);
+            SocialGraph.Components components = graph.connectedComponents();
+            GraphDiameter diameter = new GraphDiameter(graph);
+            for (int c = 0; c < components.count(); c++) {
+                int[] members = components.members(c);
+                assertEquals(bruteForceDiameter(graph, members), diameter.exact(members), "seed " + seed + ", component " + c);
+            }
+        }
+    }
+
+    @Test
+    void exactDiameterMatchesTheLargestEccentricityOnGraphsWithHubs() {
+        for (long seed = 1; seed <= 10; seed++) {
+            SocialGraph graph = TestGraphs.preferentialAttachment(1_000, 1 + (int) seed % 2, seed);
+            int[] members = graph.connectedComponents().members(0);
+            assertEquals(bruteForceDiameter(graph, members), new GraphDiameter(graph).exact(members), "seed " + seed);
+        }
+    }
+
+    @Test
+    void approximateDiameterStaysWithinTheErrorBudget() {
+        for (long seed = 1; seed <= 10; seed++) {
+            SocialGraph graph = TestGraphs.random(2_000, 2_100, seed);
+            SocialGraph.Components components = graph.connectedComponents();
+            GraphDiameter diameter = new GraphDiameter(graph);
+            for (int c = 0; c < components.count(); c++) {
+                int[] members = components.members(c);
+                int exact = bruteForceDiameter(graph, members);
+                int approximate = diameter.approximate(members, 2);
+                assertTrue(approximate <= exact && approximate >= exact - 2, "seed " + seed + ": " + approximate + " for " + exact);
+            }
+        }
+    }
+
+    @Test
+    void cappedSearchesBoundTheDiameter() {
+        for (long seed = 1; seed <= 10; seed++) {
+            SocialGraph graph = TestGraphs.random(2_000, 3_000, seed);
+            int[] members = graph.connectedComponents().members(0);
+            int exact = bruteForceDiameter(graph, members);
+            GraphDiameter diameter = new GraphDiameter(graph);
+            for (int maxSearches : new int[]{0, 1, 4, 16}) {
+                GraphDiameter.Estimate estimate = diameter.estimate(members, 0, maxSearches);
+                assertTrue(estimate.lowerBound() <= exact && exact <= estimate.upperBound(),
+                        "seed " + seed + ": " + estimate + " for " + exact);
+                assertEquals(estimate.upperBound() - estimate.lowerBound(), estimate.error());
+            }
+            GraphDiameter.Estimate unlimited = diameter.estimate(members, 0, Integer.MAX_VALUE);
+            assertEquals(exact, unlimited.lowerBound());
+            assertEquals(0, unlimited.error());
+        }
+    }
+
+    private static int bruteForceDiameter(SocialGraph graph, int[] members) {
+        int diameter = 0;
+        for (int source : members) {
+            for (int d : graph.distancesFrom(source)) {
+                diameter = Math.max(diameter, d);
+            }
+        }
+        return diameter;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Times subscribing every spectator of an event, with the membership check {@code addObserver} used to do,
+ * and unsubscribing them again in random order, with an {@link IdRegistry} and with the former {@link ArrayList}.
+ */
+@Tag("benchmark")
+class IdRegistryBenchmark {
+
+    @Test
+    void subscribingTensOfThousandsOfSpectatorsStaysLinear() {
+        System.out.printf("%10s %14s %14s%n", "spectators", "registry ms", "ArrayList ms");
+        for (int spectators : new int[]{1_000, 10_000, 50_000}) {
+            List<Entity<Long>> users = new ArrayList<>();
+            for (long id = 1; id <= spectators; id++) {
+                users.add(new Entity<>(id));
+            }
+            List<Entity<Long>> leaving = new ArrayList<>(users);
+            Collections.shuffle(leaving, new Random(spectators));
+
+            double registryMillis = subscribeAndLeave(IdRegistry::new, users, leaving);
+            double listMillis = subscribeAndLeave(ArrayList::new, users, leaving);
+            System.out.printf("%10d %14.1f %14.1f%n", spectators, registryMillis, listMillis);
+        }
+    }
+
+    private static double subscribeAndLeave(Supplier<Collection<Entity<Long>>> registries,
+                                            List<Entity<Long>> users, List<Entity<Long>> leaving) {
+        long start = System.nanoTime();
+        Collection<Entity<Long>> subscribers = registries.get();
+        for (Entity<Long> user : users) {
+            if (!subscribers.contains(user)) {
+                subscribers.add(user);
+            }
+        }
+        for (Entity<Long> user : leaving) {
+            subscribers.remove(user);
+        }
+        long nanos = System.nanoTime() - start;
+        assertTrue(subscribers.isEmpty());
+        return nanos / 1e6;
+    }
+}
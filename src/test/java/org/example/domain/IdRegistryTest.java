@@ -0,0 +1,114 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdRegistryTest {
+
+    @Test
+    void keepsOneEntityPerIdInInsertionOrder() {
+        IdRegistry<Entity<Long>> registry = new IdRegistry<>();
+        Entity<Long> first = new Entity<>(5L);
+
+        assertTrue(registry.add(first));
+        assertTrue(registry.add(new Entity<>(-3L)));
+        assertTrue(registry.add(new Entity<>(0L)));
+        assertFalse(registry.add(new Entity<>(5L)));
+
+        assertEquals(3, registry.size());
+        assertEquals(List.of(5L, -3L, 0L), ids(registry));
+        assertSame(first, registry.iterator().next());
+        assertTrue(registry.contains(new Entity<>(-3L)));
+        assertTrue(registry.containsId(0L));
+        assertFalse(registry.containsId(7L));
+        assertFalse(registry.contains("5"));
+    }
+
+    @Test
+    void rejectsElementsWithoutALongId() {
+        IdRegistry<Object> registry = new IdRegistry<>();
+
+        assertThrows(IllegalArgumentException.class, () -> registry.add("duck"));
+        assertThrows(IllegalArgumentException.class, () -> registry.add(new Entity<>("duck")));
+        assertThrows(IllegalArgumentException.class, () -> registry.add(new Entity<Long>(null)));
+    }
+
+    @Test
+    void removesByIdAndThroughTheIterator() {
+        IdRegistry<Entity<Long>> registry = new IdRegistry<>();
+        for (long id = 1; id <= 10; id++) {
+            registry.add(new Entity<>(id));
+        }
+
+        assertTrue(registry.removeId(4));
+        assertFalse(registry.removeId(4));
+        assertTrue(registry.remove(new Entity<>(1L)));
+        for (Iterator<Entity<Long>> it = registry.iterator(); it.hasNext(); ) {
+            if (it.next().getId() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(List.of(3L, 5L, 7L, 9L), ids(registry));
+
+        registry.add(new Entity<>(4L));
+        assertEquals(List.of(3L, 5L, 7L, 9L, 4L), ids(registry));
+        registry.clear();
+        assertTrue(registry.isEmpty());
+        assertFalse(registry.containsId(3));
+    }
+
+    @Test
+    void failsFastWhenChangedDuringIteration() {
+        IdRegistry<Entity<Long>> registry = new IdRegistry<>();
+        registry.add(new Entity<>(1L));
+        registry.add(new Entity<>(2L));
+        Iterator<Entity<Long>> it = registry.iterator();
+        it.next();
+
+        registry.add(new Entity<>(3L));
+
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    void behavesLikeAnInsertionOrderedMapUnderRandomChanges() {
+        SplittableRandom random = new SplittableRandom(42);
+        IdRegistry<Entity<Long>> registry = new IdRegistry<>();
+        Map<Long, Entity<Long>> reference = new LinkedHashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            long id = random.nextInt(step < 100_000 ? 5_000 : 500);
+            Entity<Long> entity = new Entity<>(id);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(reference.putIfAbsent(id, entity) == null, registry.add(entity));
+                case 1 -> assertEquals(reference.remove(id) != null, registry.removeId(id));
+                default -> assertEquals(reference.containsKey(id), registry.containsId(id));
+            }
+            if (step % 10_000 == 0) {
+                assertEquals(new ArrayList<>(reference.keySet()), ids(registry));
+            }
+        }
+        assertEquals(reference.size(), registry.size());
+        assertEquals(new ArrayList<>(reference.values()), new ArrayList<>(registry));
+    }
+
+    private static List<Long> ids(IdRegistry<Entity<Long>> registry) {
+        List<Long> ids = new ArrayList<>();
+        for (Entity<Long> entity : registry) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MutualFriendsTest {
+
+    @Test
+    void findsTheCommonFriendsOfTwoUsers() {
+        SocialGraph graph = SocialGraph.of(
+                new long[]{1, 1, 1, 2, 2, 3},
+                new long[]{3, 4, 5, 3, 5, 6}, 6);
+
+        int[] common = graph.commonNeighbors(graph.indexOf(1), graph.indexOf(2));
+
+        assertArrayEquals(new int[]{graph.indexOf(3), graph.indexOf(5)}, common);
+        assertEquals(2, graph.commonNeighborCount(graph.indexOf(2), graph.indexOf(1)));
+        assertEquals(0, graph.commonNeighborCount(graph.indexOf(4), graph.indexOf(6)));
+    }
+
+    @Test
+    void intersectsAHubWithSmallNeighborListsLikeAPlainSetIntersection() {
+        long[] firstIds = new long[30_000];
+        long[] secondIds = new long[30_000];
+        int e = 0;
+        for (long friend = 2; friend <= 10_001; friend++) {
+            firstIds[e] = 1;
+            secondIds[e++] = friend;
+        }
+        SocialGraph random = TestGraphs.random(10_001, 20_000, 17);
+        for (int v = 0; v < random.size() && e < firstIds.length; v++) {
+            for (int p = random.neighborStart(v); p < random.neighborEnd(v) && e < firstIds.length; p++) {
+                firstIds[e] = random.idOf(v);
+                secondIds[e++] = random.idOf(random.neighborAt(p));
+            }
+        }
+        SocialGraph graph = SocialGraph.of(firstIds, secondIds, e);
+
+        for (int other : TestGraphs.sample(graph, 200, 3)) {
+            for (int user : new int[]{graph.indexOf(1), TestGraphs.sample(graph, 1, other)[0]}) {
+                int[] expected = plainIntersection(graph, user, other);
+                assertArrayEquals(expected, graph.commonNeighbors(user, other));
+                assertArrayEquals(expected, graph.commonNeighbors(other, user));
+                assertEquals(expected.length, graph.commonNeighborCount(user, other));
+            }
+        }
+    }
+
+    private static int[] plainIntersection(SocialGraph graph, int first, int second) {
+        Set<Integer> friends = new HashSet<>();
+        for (int p = graph.neighborStart(first); p < graph.neighborEnd(first); p++) {
+            friends.add(graph.neighborAt(p));
+        }
+        int[] common = new int[graph.degree(second)];
+        int count = 0;
+        for (int p = graph.neighborStart(second); p < graph.neighborEnd(second); p++) {
+            if (friends.contains(graph.neighborAt(p))) {
+                common[count++] = graph.neighborAt(p);
+            }
+        }
+        int[] result = Arrays.copyOf(common, count);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelBreadthFirstTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelSearchFindsTheSameDistancesAsTheSequentialOne() {
+        SocialGraph graph = TestGraphs.random(60_000, 180_000, 3);
+
+        for (int source : TestGraphs.sample(graph, 5, 9)) {
+            int[] distance = new int[graph.size()];
+            Arrays.fill(distance, -1);
+            int[] queue = new int[graph.size()];
+            int reached = graph.parallelBreadthFirst(source, distance, queue, pool);
+
+            int[] expected = graph.distancesFrom(source);
+            assertArrayEquals(expected, distance);
+            assertEquals(Arrays.stream(expected).filter(d -> d >= 0).count(), reached);
+            for (int k = 1; k < reached; k++) {
+                assertTrue(distance[queue[k - 1]] <= distance[queue[k]], "queue not ordered by level at " + k);
+            }
+        }
+    }
+
+    @Test
+    void parallelDiameterMatchesTheSequentialOne() {
+        SocialGraph graph = TestGraphs.preferentialAttachment(50_000, 2, 5);
+        int[] members = graph.connectedComponents().members(0);
+
+        assertEquals(new GraphDiameter(graph).exact(members), new GraphDiameter(graph, pool, 1).exact(members));
+    }
+}
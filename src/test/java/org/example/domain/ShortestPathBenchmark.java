@@ -0,0 +1,46 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Times degrees-of-separation queries between random users of preferential attachment graphs of up to
+ * a million users and two million friendships, with the default limit of six hops. Pairs further apart
+ * than that are the slowest queries, as both searches run until the limit.
+ */
+@Tag("benchmark")
+class ShortestPathBenchmark {
+    private static final int QUERIES = 1_000;
+
+    @Test
+    void aQueryOnAMillionUsersTakesMilliseconds() {
+        System.out.printf("%10s %10s %10s %12s %12s%n", "users", "edges", "found", "avg ms", "max ms");
+        for (int users : new int[]{100_000, 1_000_000}) {
+            SocialGraph graph = TestGraphs.preferentialAttachment(users, 2, users);
+            int[] sources = TestGraphs.sample(graph, QUERIES, 1);
+            int[] targets = TestGraphs.sample(graph, QUERIES, 2);
+            for (int i = 0; i < 100; i++) {
+                graph.shortestPath(sources[i], targets[i], 6);
+            }
+
+            int found = 0;
+            long totalNanos = 0;
+            long maxNanos = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                long start = System.nanoTime();
+                int[] path = graph.shortestPath(sources[i], targets[i], 6);
+                long nanos = System.nanoTime() - start;
+                totalNanos += nanos;
+                maxNanos = Math.max(maxNanos, nanos);
+                if (path != null) {
+                    assertTrue(path.length <= 7);
+                    found++;
+                }
+            }
+            System.out.printf("%10d %10d %10d %12.3f %12.3f%n", graph.size(), graph.edgeCount(), found,
+                    totalNanos / 1e6 / QUERIES, maxNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShortestPathTest {
+
+    @Test
+    void findsThePathAlongAChain() {
+        SocialGraph graph = TestGraphs.chain(8);
+
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, graph.shortestPath(1, 5, 6));
+        assertArrayEquals(new int[]{5, 4, 3}, graph.shortestPath(5, 3, 6));
+        assertArrayEquals(new int[]{2}, graph.shortestPath(2, 2, 6));
+    }
+
+    @Test
+    void stopsAtTheHopLimitAndBetweenCommunities() {
+        SocialGraph graph = SocialGraph.of(new long[]{1, 2, 3, 10}, new long[]{2, 3, 4, 11}, 4);
+
+        assertNull(graph.shortestPath(graph.indexOf(1), graph.indexOf(4), 2));
+        assertNotNull(graph.shortestPath(graph.indexOf(1), graph.indexOf(4), 3));
+        assertNull(graph.shortestPath(graph.indexOf(1), graph.indexOf(10), 6));
+    }
+
+    @Test
+    void pathsAreAsShortAsAReferenceSearchAndMadeOfFriendships() {
+        SocialGraph graph = TestGraphs.random(5_000, 6_000, 23);
+        List<List<Integer>> adjacency = TestGraphs.adjacency(graph);
+        int[] sources = TestGraphs.sample(graph, 30, 1);
+        int[] targets = TestGraphs.sample(graph, 30, 2);
+
+        for (int i = 0; i < sources.length; i++) {
+            int expected = TestGraphs.referenceDistances(adjacency, sources[i])[targets[i]];
+            int[] path = graph.shortestPath(sources[i], targets[i], 50);
+            if (expected < 0) {
+                assertNull(path);
+                continue;
+            }
+            assertNotNull(path);
+            assertEquals(expected, path.length - 1);
+            assertEquals(sources[i], path[0]);
+            assertEquals(targets[i], path[path.length - 1]);
+            for (int k = 1; k < path.length; k++) {
+                assertTrue(adjacency.get(path[k - 1]).contains(path[k]), "not friends: " + path[k - 1] + ", " + path[k]);
+            }
+        }
+    }
+}
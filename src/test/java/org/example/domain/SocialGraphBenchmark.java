@@ -0,0 +1,110 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Times building the CSR graph, one breadth-first search and the connected components on random graphs
+ * of up to 10M edges. Up to 1M edges the same work is also timed on the boxed {@code Map<Long, List<Long>>}
+ * adjacency with a {@code LinkedList} queue and {@code HashMap} distances that the graph replaced.
+ *
+ * <p>Like the other benchmarks of the project, this runs as a tagged JUnit test through the Gradle
+ * {@code benchmark} task rather than under JMH. To keep the JIT warm-up out of the figures, every operation
+ * is run {@link #RUNS} times and the median is reported.</p>
+ */
+@Tag("benchmark")
+class SocialGraphBenchmark {
+    private static final int RUNS = 5;
+
+    @Test
+    void csrGraphScalesToTenMillionEdges() {
+        System.out.printf("%10s %10s %10s %10s %12s %14s %12s%n",
+                "edges", "build ms", "bfs ms", "cc ms", "components", "boxed build", "boxed bfs");
+        for (int edges : new int[]{100_000, 1_000_000, 10_000_000}) {
+            int users = edges / 5;
+            long[] firstIds = new long[edges];
+            long[] secondIds = new long[edges];
+            SplittableRandom random = new SplittableRandom(edges);
+            for (int e = 0; e < edges; e++) {
+                firstIds[e] = 1 + random.nextInt(users);
+                secondIds[e] = 1 + random.nextInt(users);
+            }
+
+            SocialGraph graph = SocialGraph.of(firstIds, secondIds, edges);
+            double buildMillis = medianMillis(() -> SocialGraph.of(firstIds, secondIds, edges));
+            int[] distance = graph.distancesFrom(0);
+            double bfsMillis = medianMillis(() -> graph.distancesFrom(0));
+            SocialGraph.Components components = graph.connectedComponents();
+            double componentsMillis = medianMillis(graph::connectedComponents);
+
+            String boxedBuild = "-";
+            String boxedBfs = "-";
+            if (edges <= 1_000_000) {
+                Map<Long, List<Long>> adjacency = boxedAdjacency(firstIds, secondIds, edges);
+                boxedBuild = String.format("%.1f", medianMillis(() -> boxedAdjacency(firstIds, secondIds, edges)));
+                Map<Long, Integer> boxedDistance = boxedDistances(adjacency, graph.idOf(0));
+                boxedBfs = String.format("%.1f", medianMillis(() -> boxedDistances(adjacency, graph.idOf(0))));
+                int reached = 0;
+                for (int d : distance) {
+                    if (d >= 0) {
+                        reached++;
+                    }
+                }
+                assertEquals(boxedDistance.size(), reached);
+            }
+
+            System.out.printf("%10d %10.1f %10.1f %10.1f %12d %14s %12s%n", edges, buildMillis,
+                    bfsMillis, componentsMillis, components.count(), boxedBuild, boxedBfs);
+        }
+    }
+
+    private static double medianMillis(Supplier<?> operation) {
+        double[] millis = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            operation.get();
+            millis[run] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    private static Map<Long, List<Long>> boxedAdjacency(long[] firstIds, long[] secondIds, int edges) {
+        Map<Long, List<Long>> adjacency = new HashMap<>();
+        for (int e = 0; e < edges; e++) {
+            if (firstIds[e] != secondIds[e]) {
+                adjacency.computeIfAbsent(firstIds[e], id -> new ArrayList<>()).add(secondIds[e]);
+                adjacency.computeIfAbsent(secondIds[e], id -> new ArrayList<>()).add(firstIds[e]);
+            }
+        }
+        return adjacency;
+    }
+
+    private static Map<Long, Integer> boxedDistances(Map<Long, List<Long>> adjacency, Long source) {
+        Map<Long, Integer> distance = new HashMap<>();
+        LinkedList<Long> queue = new LinkedList<>();
+        distance.put(source, 0);
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            Long current = queue.poll();
+            for (Long neighbor : adjacency.get(current)) {
+                if (!distance.containsKey(neighbor)) {
+                    distance.put(neighbor, distance.get(current) + 1);
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SocialGraphTest {
+
+    @Test
+    void buildsSortedNeighborListsWithoutLoopsOrRepeatedEdges() {
+        SocialGraph graph = SocialGraph.of(
+                new long[]{30, 10, 20, 10, 40},
+                new long[]{10, 20, 10, 10, 30}, 5);
+
+        assertEquals(4, graph.size());
+        assertEquals(3, graph.edgeCount());
+        int ten = graph.indexOf(10);
+        assertEquals(10, graph.idOf(ten));
+        assertEquals(2, graph.degree(ten));
+        assertEquals(graph.indexOf(20), graph.neighborAt(graph.neighborStart(ten)));
+        assertEquals(graph.indexOf(30), graph.neighborAt(graph.neighborStart(ten) + 1));
+        assertEquals(-1, graph.indexOf(50));
+    }
+
+    @Test
+    void buildsTheSameGraphFromFriendships() {
+        SocialGraph graph = SocialGraph.of(List.of(new Friendship(1L, 5L, 7L), new Friendship(2L, 7L, 9L)));
+
+        assertEquals(3, graph.size());
+        assertEquals(2, graph.edgeCount());
+        assertEquals(2, graph.degree(graph.indexOf(7)));
+    }
+
+    @Test
+    void rejectsInvalidCsrArrays() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SocialGraph.fromCsr(new long[]{1, 2}, new int[]{0, 1, 1}, new int[]{5}));
+    }
+
+    @Test
+    void breadthFirstDistancesMatchAReferenceSearch() {
+        SocialGraph graph = TestGraphs.random(2_000, 3_000, 42);
+        List<List<Integer>> adjacency = TestGraphs.adjacency(graph);
+
+        for (int source : TestGraphs.sample(graph, 20, 7)) {
+            assertArrayEquals(TestGraphs.referenceDistances(adjacency, source), graph.distancesFrom(source));
+        }
+    }
+
+    @Test
+    void breadthFirstListsTheReachedUsersWithTheFarthestLast() {
+        SocialGraph graph = TestGraphs.chain(10);
+        int[] distance = new int[graph.size()];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[graph.size()];
+
+        int reached = graph.breadthFirst(graph.indexOf(4), distance, queue);
+
+        assertEquals(10, reached);
+        assertEquals(graph.indexOf(10), queue[reached - 1]);
+        assertEquals(6, distance[graph.indexOf(10)]);
+    }
+
+    @Test
+    void traversesLongChainsWithoutOverflowingTheStack() {
+        SocialGraph graph = TestGraphs.chain(500_000);
+
+        int[] order = graph.depthFirstOrder(0);
+
+        assertEquals(500_000, order.length);
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(i, order[i]);
+        }
+        assertEquals(499_999, graph.distancesFrom(0)[499_999]);
+        assertEquals(1, graph.connectedComponents().count());
+    }
+
+    @Test
+    void connectedComponentsGroupExactlyTheMutuallyReachableUsers() {
+        SocialGraph graph = TestGraphs.random(3_000, 2_000, 11);
+        SocialGraph.Components components = graph.connectedComponents();
+
+        int total = 0;
+        for (int c = 0; c < components.count(); c++) {
+            int[] members = components.members(c);
+            assertEquals(components.size(c), members.length);
+            int[] distance = graph.distancesFrom(members[0]);
+            int reachable = 0;
+            for (int v = 0; v < graph.size(); v++) {
+                if (distance[v] >= 0) {
+                    reachable++;
+                    assertEquals(c, components.componentOf(v));
+                }
+            }
+            assertEquals(members.length, reachable);
+            total += members.length;
+        }
+        assertEquals(graph.size(), total);
+        assertTrue(components.count() > 1);
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.domain;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Graphs shared by the graph tests and benchmarks, and a plain adjacency-list breadth-first search
+ * used as the reference the optimized searches are checked against.
+ */
+final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    /**
+     * Builds a random graph over the user ids {@code 1..users}, repeated edges and self loops included,
+     * so the graph also exercises their removal.
+     */
+    static SocialGraph random(int users, int edges, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] firstIds = new long[edges];
+        long[] secondIds = new long[edges];
+        for (int e = 0; e < edges; e++) {
+            firstIds[e] = 1 + random.nextInt(users);
+            secondIds[e] = 1 + random.nextInt(users);
+        }
+        return SocialGraph.of(firstIds, secondIds, edges);
+    }
+
+    /**
+     * Builds a preferential attachment graph over the user ids {@code 1..users}: every new user befriends
+     * {@code friendsPerUser} users picked with a probability proportional to their number of friends, which
+     * gives the few well-connected hubs of a social network.
+     */
+    static SocialGraph preferentialAttachment(int users, int friendsPerUser, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int edges = (users - 1) * friendsPerUser;
+        long[] firstIds = new long[edges];
+        long[] secondIds = new long[edges];
+        long[] endpoints = new long[2 * edges];
+        int endpointCount = 0;
+        int e = 0;
+        for (long id = 2; id <= users; id++) {
+            for (int k = 0; k < friendsPerUser; k++) {
+                firstIds[e] = id;
+                secondIds[e] = endpointCount == 0 ? 1 : endpoints[random.nextInt(endpointCount)];
+                e++;
+            }
+            for (int k = e - friendsPerUser; k < e; k++) {
+                endpoints[endpointCount++] = firstIds[k];
+                endpoints[endpointCount++] = secondIds[k];
+            }
+        }
+        return SocialGraph.of(firstIds, secondIds, e);
+    }
+
+    /**
+     * Builds the chain {@code 1 - 2 - ... - length}.
+     */
+    static SocialGraph chain(int length) {
+        long[] firstIds = new long[length - 1];
+        long[] secondIds = new long[length - 1];
+        for (int i = 0; i < length - 1; i++) {
+            firstIds[i] = i + 1;
+            secondIds[i] = i + 2;
+        }
+        return SocialGraph.of(firstIds, secondIds, length - 1);
+    }
+
+    /**
+     * Copies the adjacency of a graph into lists, independently of its CSR arrays.
+     */
+    static List<List<Integer>> adjacency(SocialGraph graph) {
+        List<List<Integer>> adjacency = new ArrayList<>();
+        for (int v = 0; v < graph.size(); v++) {
+            List<Integer> neighbors = new ArrayList<>();
+            for (int p = graph.neighborStart(v); p < graph.neighborEnd(v); p++) {
+                neighbors.add(graph.neighborAt(p));
+            }
+            adjacency.add(neighbors);
+        }
+        return adjacency;
+    }
+
+    /**
+     * Reference breadth-first search over adjacency lists.
+     */
+    static int[] referenceDistances(List<List<Integer>> adjacency, int source) {
+        int[] distance = new int[adjacency.size()];
+        Arrays.fill(distance, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        distance[source] = 0;
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            for (int neighbor : adjacency.get(current)) {
+                if (distance[neighbor] < 0) {
+                    distance[neighbor] = distance[current] + 1;
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Picks {@code count} distinct users of the graph at random.
+     */
+    static int[] sample(SocialGraph graph, int count, long seed) {
+        Random random = new Random(seed);
+        Map<Integer, Boolean> picked = new HashMap<>();
+        int[] users = new int[Math.min(count, graph.size())];
+        for (int i = 0; i < users.length; ) {
+            int v = random.nextInt(graph.size());
+            if (picked.putIfAbsent(v, Boolean.TRUE) == null) {
+                users[i++] = v;
+            }
+        }
+        return users;
+    }
+}
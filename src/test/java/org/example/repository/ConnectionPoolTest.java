@@ -0,0 +1,162 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+    private final FakeDriver driver = new FakeDriver();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void registerDriver() throws SQLException {
+        DriverManager.registerDriver(driver);
+    }
+
+    @AfterEach
+    void closePool() throws SQLException {
+        if (pool != null) {
+            pool.close();
+        }
+        DriverManager.deregisterDriver(driver);
+    }
+
+    private ConnectionPool createPool(int maxPoolSize, int minIdle, long idleTimeoutMillis) {
+        pool = new ConnectionPool(driver.url, "user", "password", maxPoolSize, minIdle, 50,
+                idleTimeoutMillis, 60_000, now::get);
+        return pool;
+    }
+
+    @Test
+    void timesOutWhenEveryConnectionIsBorrowed() throws SQLException {
+        createPool(1, 0, 300_000);
+        Connection borrowed = pool.getConnection();
+
+        assertThrows(SQLTimeoutException.class, pool::getConnection);
+        assertEquals(1, pool.getMetrics().timeouts());
+
+        borrowed.close();
+        pool.getConnection().close();
+        assertEquals(2, pool.getMetrics().acquisitions());
+    }
+
+    @Test
+    void givesThePermitBackWhenConnectingFails() throws SQLException {
+        createPool(1, 0, 300_000);
+        driver.failing = true;
+
+        assertThrows(SQLException.class, pool::getConnection);
+        assertThrows(SQLException.class, pool::getConnection);
+        assertEquals(0, pool.getMetrics().timeouts());
+
+        driver.failing = false;
+        pool.getConnection().close();
+        assertEquals(1, driver.opened.size());
+    }
+
+    @Test
+    void rollsBackAndRestoresAutoCommitOnRelease() throws SQLException {
+        createPool(1, 0, 300_000);
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        FakeDriver.FakeConnection physical = driver.opened.get(0);
+        assertEquals(1, physical.rollbacks);
+        assertTrue(physical.autoCommit);
+
+        try (Connection again = pool.getConnection()) {
+            assertTrue(again.getAutoCommit());
+        }
+        assertEquals(1, driver.opened.size());
+        assertEquals(1, physical.rollbacks);
+    }
+
+    @Test
+    void closingTwiceReturnsTheConnectionOnce() throws SQLException {
+        createPool(2, 0, 300_000);
+        Connection connection = pool.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, () -> connection.setAutoCommit(false));
+        assertEquals(0, pool.getMetrics().active());
+        assertEquals(1, pool.getMetrics().idle());
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertThrows(SQLTimeoutException.class, pool::getConnection);
+        first.close();
+        second.close();
+        assertFalse(driver.opened.get(0).closed);
+    }
+
+    @Test
+    void validatesOnlyConnectionsIdleForMoreThanFiveSeconds() throws SQLException {
+        createPool(1, 0, 300_000);
+        pool.getConnection().close();
+        FakeDriver.FakeConnection physical = driver.opened.get(0);
+
+        now.addAndGet(4_000);
+        pool.getConnection().close();
+        assertEquals(0, physical.validations);
+
+        now.addAndGet(6_000);
+        pool.getConnection().close();
+        assertEquals(1, physical.validations);
+        assertEquals(1, driver.opened.size());
+
+        now.addAndGet(6_000);
+        driver.valid = false;
+        pool.getConnection().close();
+        assertTrue(physical.closed);
+        assertEquals(2, driver.opened.size());
+    }
+
+    @Test
+    void reportsLeaksOnce() throws SQLException {
+        createPool(2, 0, 300_000);
+        Connection leaked = pool.getConnection();
+        pool.getConnection().close();
+
+        now.addAndGet(30_000);
+        pool.runMaintenance();
+        assertEquals(0, pool.getMetrics().leaksDetected());
+
+        now.addAndGet(31_000);
+        pool.runMaintenance();
+        pool.runMaintenance();
+        assertEquals(1, pool.getMetrics().leaksDetected());
+        leaked.close();
+    }
+
+    @Test
+    void closesIdleConnectionsDownToTheMinimum() throws SQLException {
+        createPool(3, 1, 10_000);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        Connection third = pool.getConnection();
+        first.close();
+        second.close();
+        third.close();
+
+        now.addAndGet(20_000);
+        pool.runMaintenance();
+
+        assertEquals(1, pool.getMetrics().idle());
+        assertEquals(2, driver.opened.stream().filter(connection -> connection.closed).count());
+    }
+}
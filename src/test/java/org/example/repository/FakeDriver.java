@@ -0,0 +1,101 @@
+package org.example.repository;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC driver for its own {@code jdbc:fake:} url, handing out connections that only record what is done
+ * to them, so {@link ConnectionPool} can be exercised without a database.
+ */
+class FakeDriver implements Driver {
+    final String url = "jdbc:fake:" + UUID.randomUUID();
+    final List<FakeConnection> opened = new ArrayList<>();
+    volatile boolean failing;
+    volatile boolean valid = true;
+
+    /**
+     * What a repository did with one physical connection.
+     */
+    static final class FakeConnection {
+        boolean autoCommit = true;
+        boolean closed;
+        int rollbacks;
+        int validations;
+    }
+
+    @Override
+    public synchronized Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        if (failing) {
+            throw new SQLException("The database is down");
+        }
+        FakeConnection state = new FakeConnection();
+        opened.add(state);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getAutoCommit" -> state.autoCommit;
+                    case "setAutoCommit" -> {
+                        state.autoCommit = (Boolean) args[0];
+                        yield null;
+                    }
+                    case "rollback" -> {
+                        state.rollbacks++;
+                        yield null;
+                    }
+                    case "isValid" -> {
+                        state.validations++;
+                        yield valid;
+                    }
+                    case "isClosed" -> state.closed;
+                    case "close" -> {
+                        state.closed = true;
+                        yield null;
+                    }
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "FakeConnection@" + System.identityHashCode(state);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return this.url.equals(url);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
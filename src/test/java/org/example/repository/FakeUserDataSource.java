@@ -0,0 +1,213 @@
+package org.example.repository;
+
+import org.example.domain.Duck;
+import org.example.domain.Person;
+import org.example.domain.SwimmingDuck;
+import org.example.domain.User;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A {@link DataSource} serving the queries {@link UserDataBaseRepository} runs on the {@code users} table
+ * from memory, so the repository can be exercised without PostgreSQL. Lookups by id, username and email
+ * go through hash maps, like the primary key and the unique indexes. Every executed query counts as a
+ * round trip and waits for the configured latency, to stand in for the network.
+ */
+public class FakeUserDataSource implements DataSource {
+    private final List<User> users;
+    private final Map<Object, User> byId = new HashMap<>();
+    private final Map<Object, User> byUsername = new HashMap<>();
+    private final Map<Object, User> byEmail = new HashMap<>();
+    private final long roundTripNanos;
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    /**
+     * @param users          the rows of the {@code users} table
+     * @param roundTripNanos the simulated latency of every query, in nanoseconds
+     */
+    public FakeUserDataSource(List<User> users, long roundTripNanos) {
+        this.users = users;
+        this.roundTripNanos = roundTripNanos;
+        for (User user : users) {
+            byId.put(user.getId(), user);
+            byUsername.put(user.getUsername(), user);
+            byEmail.put(user.getEmail(), user);
+        }
+    }
+
+    /**
+     * @return the number of queries executed since the last reset
+     */
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    public void resetRoundTrips() {
+        roundTrips.set(0);
+    }
+
+    @Override
+    public Connection getConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> statement((String) args[0]);
+                    case "createStatement" -> statement(null);
+                    case "close" -> null;
+                    case "isClosed" -> false;
+                    case "getAutoCommit", "isValid" -> true;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    private Object statement(String preparedSql) {
+        Object[] parameter = new Object[1];
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "setLong", "setString" -> {
+                        parameter[0] = args[1];
+                        yield null;
+                    }
+                    case "executeQuery" -> resultSet(query(args == null ? preparedSql : (String) args[0], parameter[0]));
+                    case "execute" -> {
+                        roundTrip();
+                        yield false;
+                    }
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private List<User> query(String sql, Object parameter) {
+        roundTrip();
+        if (sql.equals("SELECT * FROM users")) {
+            return users;
+        } else if (sql.equals("SELECT * FROM users WHERE id = ?")) {
+            return single(byId.get(parameter));
+        } else if (sql.equals("SELECT * FROM users WHERE username = ?")) {
+            return single(byUsername.get(parameter));
+        } else if (sql.equals("SELECT * FROM users WHERE email = ?")) {
+            return single(byEmail.get(parameter));
+        } else if (sql.contains("HAVING COUNT(*) > 1")) {
+            return List.of();
+        }
+        throw new UnsupportedOperationException(sql);
+    }
+
+    private static List<User> single(User user) {
+        return user == null ? List.of() : List.of(user);
+    }
+
+    private void roundTrip() {
+        roundTrips.incrementAndGet();
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    private ResultSet resultSet(List<User> rows) {
+        int[] position = {-1};
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++position[0] < rows.size();
+                    case "getLong" -> ((Number) column(rows.get(position[0]), (String) args[0], 0L)).longValue();
+                    case "getDouble" -> ((Number) column(rows.get(position[0]), (String) args[0], 0.0)).doubleValue();
+                    case "getString", "getDate" -> column(rows.get(position[0]), (String) args[0], null);
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Object column(User user, String column, Object missing) {
+        Object value = switch (column.toLowerCase()) {
+            case "id" -> user.getId();
+            case "usertype" -> user.getUserType();
+            case "username" -> user.getUsername();
+            case "email" -> user.getEmail();
+            case "password" -> user.getPassword();
+            case "surname" -> user instanceof Person person ? person.getSurname() : null;
+            case "name" -> user instanceof Person person ? person.getName() : null;
+            case "birthdate" -> user instanceof Person person && person.getBirthdate() != null ? Date.valueOf(person.getBirthdate()) : null;
+            case "occupation" -> user instanceof Person person ? person.getOccupation() : null;
+            case "ducktype" -> user instanceof Duck duck ? duck.getDuckType() : null;
+            case "speed" -> user instanceof Duck duck ? duck.getSpeed() : null;
+            case "resistance" -> user instanceof Duck duck ? duck.getResistance() : null;
+            default -> throw new UnsupportedOperationException(column);
+        };
+        return value == null ? missing : value;
+    }
+
+    /**
+     * Creates {@code count} users with ids {@code 1..count}, alternating persons and swimming ducks.
+     *
+     * @param count    the number of users
+     * @param password the already hashed password of every user
+     * @return the users
+     */
+    public static List<User> createUsers(int count, String password) {
+        List<User> users = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            String username = "user" + id;
+            if (id % 2 == 0) {
+                users.add(new SwimmingDuck(id, "Duck", username, username + "@ducks.org", password, 1.0 + id % 7, 1.0 + id % 5));
+            } else {
+                users.add(new Person(id, "Person", username, username + "@ducks.org", password, "Surname", "Name",
+                        LocalDate.of(2000, 1, 1), "Student"));
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        throw new SQLException("Not a wrapper");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return false;
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.repository;
+
+import org.example.domain.SocialGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphSnapshotStoreTest {
+    private Path directory;
+    private Path snapshot;
+    private Path log;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("graph-snapshot");
+        snapshot = directory.resolve("friendships.graph");
+        log = directory.resolve("friendships.graph.log");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * 1-2, 1-3, 2-3, 3-4 and 10-11.
+     */
+    private static SocialGraph graph() {
+        return SocialGraph.of(new long[]{1, 1, 2, 3, 10}, new long[]{2, 3, 3, 4, 11}, 5);
+    }
+
+    private static FriendshipRepository.Watermark watermark(long count, long maxId) {
+        return new FriendshipRepository.Watermark(count, maxId);
+    }
+
+    @Test
+    void loadsWhatWasSaved() {
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            assertNull(store.load(watermark(0, 0)));
+            store.save(graph(), 42);
+        }
+
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            SocialGraph loaded = store.load(watermark(5, 42));
+            assertNotNull(loaded);
+            assertEquals(edges(graph()), edges(loaded));
+        }
+    }
+
+    @Test
+    void replaysTheLogAndCompactsIt() {
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            store.save(graph(), 42);
+            store.friendshipAdded(43, 4, 5);
+            store.friendshipRemoved(1, 3);
+            store.userRemoved(10);
+            store.friendshipAdded(44, 12, 1);
+        }
+        assertTrue(Files.exists(log));
+
+        List<String> expected = List.of("1-2", "1-12", "2-3", "3-4", "4-5");
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            SocialGraph loaded = store.load(watermark(5, 44));
+            assertNotNull(loaded);
+            assertEquals(expected, edges(loaded));
+        }
+        assertFalse(Files.exists(log));
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            assertEquals(expected, edges(store.load(watermark(5, 44))));
+        }
+    }
+
+    @Test
+    void checkpointSavesOnlyAfterLoggedChanges() throws IOException {
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            store.save(graph(), 42);
+            long saved = Files.getLastModifiedTime(snapshot).toMillis();
+            Files.setLastModifiedTime(snapshot, FileTime.fromMillis(saved - 10_000));
+            store.checkpoint(graph());
+            assertEquals(saved - 10_000, Files.getLastModifiedTime(snapshot).toMillis());
+
+            store.friendshipAdded(43, 4, 5);
+            SocialGraph changed = SocialGraph.of(new long[]{1, 1, 2, 3, 10, 4}, new long[]{2, 3, 3, 4, 11, 5}, 6);
+            store.checkpoint(changed);
+            assertFalse(Files.exists(log));
+        }
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            assertNotNull(store.load(watermark(6, 43)));
+        }
+    }
+
+    @Test
+    void ignoresATruncatedLogRecord() throws IOException {
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            store.save(graph(), 42);
+            store.friendshipAdded(43, 4, 5);
+            store.friendshipAdded(44, 5, 6);
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            SocialGraph loaded = store.load(watermark(6, 43));
+            assertNotNull(loaded);
+            assertEquals(List.of("1-2", "1-3", "2-3", "3-4", "4-5", "10-11"), edges(loaded));
+        }
+    }
+
+    @Test
+    void rejectsAnUnknownFormat() throws IOException {
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            store.save(graph(), 42);
+        }
+        byte[] valid = Files.readAllBytes(snapshot);
+
+        overwriteInt(valid, 0, 0x12345678);
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            assertNull(store.load(watermark(5, 42)));
+        }
+        overwriteInt(valid, 4, 1);
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            assertNull(store.load(watermark(5, 42)));
+        }
+        Files.write(snapshot, new byte[]{1, 2, 3});
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            assertNull(store.load(watermark(5, 42)));
+        }
+    }
+
+    @Test
+    void rejectsASnapshotThatDoesNotMatchTheDatabase() {
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            store.save(graph(), 42);
+        }
+
+        try (GraphSnapshotStore store = new GraphSnapshotStore(snapshot)) {
+            assertNull(store.load(watermark(6, 42)));
+            assertNull(store.load(watermark(5, 43)));
+            assertNotNull(store.load(watermark(5, 42)));
+        }
+    }
+
+    @Test
+    void onlyTheStoreHoldingTheLockUsesTheSnapshot() throws IOException {
+        try (GraphSnapshotStore first = new GraphSnapshotStore(snapshot)) {
+            first.save(graph(), 42);
+            byte[] saved = Files.readAllBytes(snapshot);
+
+            try (GraphSnapshotStore second = new GraphSnapshotStore(snapshot)) {
+                assertNull(second.load(watermark(5, 42)));
+                second.save(SocialGraph.of(new long[]{7}, new long[]{8}, 1), 1);
+                second.friendshipAdded(43, 4, 5);
+                assertTrue(Arrays.equals(saved, Files.readAllBytes(snapshot)));
+                assertFalse(Files.exists(log));
+            }
+            assertNotNull(first.load(watermark(5, 42)));
+        }
+
+        try (GraphSnapshotStore next = new GraphSnapshotStore(snapshot)) {
+            assertNotNull(next.load(watermark(5, 42)));
+        }
+    }
+
+    private void overwriteInt(byte[] valid, int offset, int value) throws IOException {
+        byte[] changed = valid.clone();
+        ByteBuffer.wrap(changed).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        Files.write(snapshot, changed);
+    }
+
+    /**
+     * @return the friendships of the graph as {@code "small-large"} id pairs, in id order
+     */
+    private static List<String> edges(SocialGraph graph) {
+        List<String> edges = new ArrayList<>();
+        for (int v = 0; v < graph.size(); v++) {
+            for (int p = graph.neighborStart(v); p < graph.neighborEnd(v); p++) {
+                int w = graph.neighborAt(p);
+                if (w > v) {
+                    edges.add(graph.idOf(v) + "-" + graph.idOf(w));
+                }
+            }
+        }
+        return edges;
+    }
+}
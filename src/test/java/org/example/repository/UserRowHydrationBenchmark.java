@@ -0,0 +1,56 @@
+package org.example.repository;
+
+import org.example.domain.Person;
+import org.example.domain.SwimmingDuck;
+import org.example.domain.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares hydrating the users of a list query from the rows already fetched with the previous
+ * approach of querying every user again by id, as the {@code users} table grows to 100k rows.
+ * Every query waits for a simulated round trip of 50 microseconds, a fast local network.
+ */
+@Tag("benchmark")
+class UserRowHydrationBenchmark {
+    private static final long ROUND_TRIP_NANOS = 50_000;
+
+    @Test
+    void findAllTakesOneRoundTripWhateverTheTableSize() {
+        System.out.printf("%10s %14s %14s %12s %12s%n", "users", "trips by id", "trips by row", "ms by id", "ms by row");
+        for (int count : new int[]{1_000, 10_000, 100_000}) {
+            FakeUserDataSource dataSource = new FakeUserDataSource(FakeUserDataSource.createUsers(count, "hash"), ROUND_TRIP_NANOS);
+            UserDataBaseRepository repository = new UserDataBaseRepository(dataSource);
+
+            dataSource.resetRoundTrips();
+            long start = System.nanoTime();
+            List<User> byId = new ArrayList<>();
+            for (User row : repository.findAll()) {
+                byId.add(repository.findById(row.getId()));
+            }
+            long byIdNanos = System.nanoTime() - start;
+            long byIdTrips = dataSource.getRoundTrips();
+
+            dataSource.resetRoundTrips();
+            start = System.nanoTime();
+            List<User> byRow = new ArrayList<>();
+            repository.findAll().forEach(byRow::add);
+            long byRowNanos = System.nanoTime() - start;
+            long byRowTrips = dataSource.getRoundTrips();
+
+            System.out.printf("%10d %14d %14d %12.1f %12.1f%n", count, byIdTrips, byRowTrips, byIdNanos / 1e6, byRowNanos / 1e6);
+            assertEquals(1 + count, byIdTrips);
+            assertEquals(1, byRowTrips);
+            assertEquals(count, byRow.size());
+            assertTrue(byRow.get(0) instanceof Person);
+            assertTrue(byRow.get(1) instanceof SwimmingDuck);
+            assertEquals(byId.get(count - 1).getUsername(), byRow.get(count - 1).getUsername());
+        }
+    }
+}
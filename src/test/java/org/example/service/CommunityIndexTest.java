@@ -0,0 +1,149 @@
+package org.example.service;
+
+import org.example.domain.Friendship;
+import org.example.domain.SocialGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommunityIndexTest {
+    private static final int USERS = 200;
+
+    private final List<Friendship> friendships = new ArrayList<>();
+    private final CommunityIndex index = new CommunityIndex(TestFriendships.repositoryOf(friendships));
+    private long nextFriendshipId = 1;
+
+    private void addFriendship(long firstUserId, long secondUserId) {
+        long id = nextFriendshipId++;
+        friendships.add(new Friendship(id, firstUserId, secondUserId));
+        index.friendshipAdded(id, firstUserId, secondUserId);
+    }
+
+    @Test
+    void countsCommunitiesAsFriendshipsAreAdded() {
+        addFriendship(1, 2);
+        assertEquals(1, index.getCommunityCount());
+
+        addFriendship(3, 4);
+        addFriendship(5, 6);
+        assertEquals(3, index.getCommunityCount());
+
+        addFriendship(2, 3);
+        assertEquals(2, index.getCommunityCount());
+        assertEquals(4, index.getCommunitySize(1));
+        assertEquals(1, index.getCommunitySize(99));
+        assertTrue(index.sameCommunity(1, 4));
+        assertFalse(index.sameCommunity(1, 5));
+        assertTrue(index.sameCommunity(99, 99));
+
+        addFriendship(4, 7);
+        addFriendship(1, 4);
+        assertEquals(2, index.getCommunityCount());
+        assertEquals(5, index.getCommunitySize(7));
+    }
+
+    @Test
+    void splitsCommunitiesAfterRemovals() {
+        addFriendship(1, 2);
+        addFriendship(2, 3);
+        addFriendship(3, 4);
+        assertEquals(1, index.getCommunityCount());
+
+        friendships.removeIf(f -> f.getFirstFriendId() == 2 && f.getSecondFriendId() == 3);
+        index.friendshipRemoved(3, 2);
+        assertEquals(2, index.getCommunityCount());
+        assertFalse(index.sameCommunity(1, 4));
+
+        friendships.removeIf(f -> f.getFirstFriendId() == 1 || f.getSecondFriendId() == 1);
+        index.userRemoved(1);
+        assertEquals(1, index.getCommunityCount());
+        assertEquals(1, index.getCommunitySize(2));
+        assertEquals(2, index.getCommunitySize(4));
+    }
+
+    @Test
+    void versionsTheGraph() {
+        addFriendship(1, 2);
+        long version = index.getVersion();
+        SocialGraph graph = index.getGraph();
+        assertSame(graph, index.getGraphIfCurrent());
+        assertSame(graph, index.getGraph());
+
+        addFriendship(2, 3);
+        assertNotEquals(version, index.getVersion());
+        assertNull(index.getGraphIfCurrent());
+        SocialGraph changed = index.getGraph();
+        assertEquals(2, changed.edgeCount());
+        assertSame(changed, index.getGraphIfCurrent());
+
+        index.userRemoved(42);
+        assertNull(index.getGraphIfCurrent());
+        assertEquals(2, index.getGraph().edgeCount());
+    }
+
+    @Test
+    void matchesTheComponentsOfTheGraphUnderRandomChanges() {
+        SplittableRandom random = new SplittableRandom(12);
+        for (int i = 0; i < 150; i++) {
+            addRandomFriendship(random);
+        }
+        for (int step = 0; step < 3_000; step++) {
+            int change = random.nextInt(10);
+            if (change < 6 || friendships.isEmpty()) {
+                addRandomFriendship(random);
+            } else if (change < 9) {
+                Friendship removed = friendships.remove(random.nextInt(friendships.size()));
+                index.friendshipRemoved(removed.getSecondFriendId(), removed.getFirstFriendId());
+            } else {
+                long userId = 1 + random.nextInt(USERS);
+                friendships.removeIf(f -> f.getFirstFriendId() == userId || f.getSecondFriendId() == userId);
+                index.userRemoved(userId);
+            }
+            if (step % 7 == 0) {
+                assertMatchesReference(random, step);
+            }
+        }
+    }
+
+    private void addRandomFriendship(SplittableRandom random) {
+        long first = 1 + random.nextInt(USERS);
+        long second = 1 + random.nextInt(USERS);
+        boolean exists = friendships.stream().anyMatch(f ->
+                f.getFirstFriendId() == Math.min(first, second) && f.getSecondFriendId() == Math.max(first, second));
+        if (first != second && !exists) {
+            addFriendship(Math.min(first, second), Math.max(first, second));
+        }
+    }
+
+    private void assertMatchesReference(SplittableRandom random, int step) {
+        SocialGraph reference = SocialGraph.of(friendships);
+        SocialGraph.Components components = reference.connectedComponents();
+
+        assertEquals(components.count(), index.getCommunityCount(), "step " + step);
+        for (long userId = 1; userId <= USERS; userId++) {
+            int v = reference.indexOf(userId);
+            int expected = v < 0 ? 1 : components.size(components.componentOf(v));
+            assertEquals(expected, index.getCommunitySize(userId), "step " + step + ", user " + userId);
+        }
+        for (int k = 0; k < 20; k++) {
+            long first = 1 + random.nextInt(USERS);
+            long second = 1 + random.nextInt(USERS);
+            int v = reference.indexOf(first);
+            int w = reference.indexOf(second);
+            boolean expected = first == second
+                    || v >= 0 && w >= 0 && components.componentOf(v) == components.componentOf(w);
+            assertEquals(expected, index.sameCommunity(first, second), "step " + step);
+        }
+        assertEquals(reference.edgeCount(), index.getGraph().edgeCount(), "step " + step);
+        assertSame(index.getGraph(), index.getGraphIfCurrent());
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Times publishers notifying a slow subscriber, a window that takes a millisecond to refresh, through the
+ * bus and through synchronous observer callbacks. Through the bus the publishers never wait for the window,
+ * which refreshes once per batch with the latest notifications.
+ */
+@Tag("benchmark")
+class EventBusBenchmark {
+    private static final int PUBLISHERS = 4;
+    private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void publishersDoNotWaitForASlowSubscriber() throws Exception {
+        System.out.printf("%14s %12s %10s %12s %10s %12s %12s%n", "notifications", "publish ms", "batches",
+                "coalesced", "depth", "avg lat ms", "max lat ms");
+        for (int notifications : new int[]{10_000, 100_000, 1_000_000}) {
+            EventBus bus = new EventBus();
+            ExecutorService window = Executors.newSingleThreadExecutor();
+            AtomicInteger batches = new AtomicInteger();
+            bus.subscribe(Integer.class, 1, window, batch -> {
+                batches.incrementAndGet();
+                refreshWindow();
+            });
+
+            long start = System.nanoTime();
+            publishConcurrently(notifications, i -> bus.publish(Integer.class, 1, i));
+            long publishNanos = System.nanoTime() - start;
+            EventBus.Metrics atEnd = bus.metrics();
+            waitUntilDrained(bus, window);
+
+            EventBus.Metrics metrics = bus.metrics();
+            System.out.printf("%14d %12.1f %10d %12d %10d %12.2f %12.2f%n", notifications, publishNanos / 1e6,
+                    batches.get(), metrics.coalesced(), atEnd.queueDepth(), metrics.averageLatencyMillis(),
+                    metrics.maxLatencyMillis());
+            assertEquals(notifications, metrics.delivered() + metrics.coalesced());
+            assertTrue(atEnd.queueDepth() <= EventBus.DEFAULT_MAILBOX_CAPACITY);
+        }
+
+        int notifications = 2_000;
+        long start = System.nanoTime();
+        publishConcurrently(notifications, new IntConsumer() {
+            @Override
+            public synchronized void accept(int i) {
+                refreshWindow();
+            }
+        });
+        System.out.printf("synchronous observers: %d notifications published in %.1f ms%n", notifications,
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    private static void refreshWindow() {
+        long end = System.nanoTime() + REFRESH_NANOS;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void publishConcurrently(int notifications, IntConsumer publish) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < PUBLISHERS; p++) {
+            int publisher = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = publisher; i < notifications; i += PUBLISHERS) {
+                    publish.accept(i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static void waitUntilDrained(EventBus bus, ExecutorService window) throws Exception {
+        while (bus.metrics().queueDepth() > 0) {
+            Thread.sleep(1);
+        }
+        window.submit(() -> { }).get();
+        window.shutdown();
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventBusTest {
+    private final EventBus bus = new EventBus();
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    /**
+     * Runs the tasks the bus scheduled on {@link #tasks}, like the JavaFX Application Thread would.
+     *
+     * @return the number of tasks run
+     */
+    private int runTasks() {
+        int count = 0;
+        for (Runnable task; (task = tasks.poll()) != null; count++) {
+            task.run();
+        }
+        return count;
+    }
+
+    @Test
+    void deliversABurstAsOneBatchOnTheSubscriberExecutor() {
+        List<List<String>> batches = new ArrayList<>();
+        bus.subscribe(String.class, 1, tasks::add, batches::add);
+
+        bus.publish(String.class, 1, "a");
+        bus.publish(String.class, 1, "b");
+        bus.publish(String.class, 1, "c");
+
+        assertTrue(batches.isEmpty());
+        assertEquals(1, tasks.size());
+        assertEquals(3, bus.metrics().queueDepth());
+        assertEquals(1, runTasks());
+        assertEquals(List.of(List.of("a", "b", "c")), batches);
+        EventBus.Metrics metrics = bus.metrics();
+        assertEquals(3, metrics.published());
+        assertEquals(3, metrics.delivered());
+        assertEquals(0, metrics.queueDepth());
+    }
+
+    @Test
+    void onlyReachesTheSubscribersOfTheTopic() {
+        List<List<String>> first = new ArrayList<>();
+        List<List<String>> second = new ArrayList<>();
+        List<List<Integer>> numbers = new ArrayList<>();
+        bus.subscribe(String.class, 1, tasks::add, first::add);
+        bus.subscribe(String.class, 1, tasks::add, second::add);
+        bus.subscribe(Integer.class, 1, tasks::add, numbers::add);
+
+        bus.publish(String.class, 1, "to 1");
+        bus.publish(String.class, 2, "to 2");
+        runTasks();
+
+        assertEquals(List.of(List.of("to 1")), first);
+        assertEquals(List.of(List.of("to 1")), second);
+        assertTrue(numbers.isEmpty());
+        assertEquals(Set.of(1L), bus.subscribedUsers(String.class));
+    }
+
+    @Test
+    void coalescesAFullMailboxKeepingTheLatestNotifications() {
+        List<List<Integer>> batches = new ArrayList<>();
+        bus.subscribe(Integer.class, 1, tasks::add, 2, batches::add);
+
+        for (int i = 1; i <= 5; i++) {
+            bus.publish(Integer.class, 1, i);
+        }
+        runTasks();
+
+        assertEquals(List.of(List.of(4, 5)), batches);
+        EventBus.Metrics metrics = bus.metrics();
+        assertEquals(5, metrics.published());
+        assertEquals(2, metrics.delivered());
+        assertEquals(3, metrics.coalesced());
+        assertEquals(0, metrics.queueDepth());
+        assertThrows(IllegalArgumentException.class, () -> bus.subscribe(Integer.class, 1, tasks::add, 0, batches::add));
+    }
+
+    @Test
+    void cancellingStopsDeliveryAndDiscardsTheQueue() {
+        List<List<String>> batches = new ArrayList<>();
+        EventBus.Subscription subscription = bus.subscribe(String.class, 1, tasks::add, batches::add);
+        bus.publish(String.class, 1, "queued");
+
+        subscription.cancel();
+        bus.publish(String.class, 1, "after");
+        runTasks();
+
+        assertTrue(batches.isEmpty());
+        assertEquals(0, bus.metrics().queueDepth());
+        assertEquals(0, bus.metrics().delivered());
+        assertFalse(bus.subscribedUsers(String.class).contains(1L));
+    }
+
+    @Test
+    void keepsDeliveringAfterAFailingHandler() {
+        List<String> received = new ArrayList<>();
+        bus.subscribe(String.class, 1, tasks::add, batch -> {
+            received.addAll(batch);
+            throw new IllegalStateException("window closed");
+        });
+
+        bus.publish(String.class, 1, "first");
+        runTasks();
+        bus.publish(String.class, 1, "second");
+        runTasks();
+
+        assertEquals(List.of("first", "second"), received);
+    }
+
+    @Test
+    void deliversEveryNotificationOfConcurrentPublishersInOrder() throws Exception {
+        int publishers = 4;
+        int perPublisher = 20_000;
+        ExecutorService subscriberThread = Executors.newSingleThreadExecutor();
+        List<Long> received = new ArrayList<>();
+        bus.subscribe(Long.class, 1, subscriberThread, publishers * perPublisher, received::addAll);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < publishers; p++) {
+            long publisher = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (long i = 0; i < perPublisher; i++) {
+                    bus.publish(Long.class, 1, publisher * perPublisher + i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (bus.metrics().delivered() < publishers * perPublisher && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        subscriberThread.submit(() -> { }).get();
+        subscriberThread.shutdown();
+
+        assertEquals(publishers * perPublisher, received.size());
+        long[] last = new long[publishers];
+        Arrays.fill(last, -1);
+        for (long notification : received) {
+            int publisher = (int) (notification / perPublisher);
+            assertTrue(notification > last[publisher], "out of order: " + notification);
+            last[publisher] = notification;
+        }
+        assertEquals(publishers * perPublisher, bus.metrics().delivered());
+        assertEquals(0, bus.metrics().coalesced());
+    }
+}
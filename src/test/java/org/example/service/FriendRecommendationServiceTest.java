@@ -0,0 +1,111 @@
+package org.example.service;
+
+import org.example.domain.Friendship;
+import org.example.domain.Recommendation;
+import org.example.domain.User;
+import org.example.repository.FakeUserDataSource;
+import org.example.repository.FriendshipRepository;
+import org.example.repository.FriendshipRequestRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FriendRecommendationServiceTest {
+    private static final List<User> USERS = FakeUserDataSource.createUsers(10, "password");
+
+    /**
+     * 1-2, 1-3, 2-4, 3-4, 2-5, 3-6, 4-6: user 4 shares two friends with user 1, users 5 and 6 one each.
+     */
+    private static final List<Friendship> FRIENDSHIPS = List.of(new Friendship(1L, 1L, 2L), new Friendship(2L, 1L, 3L),
+            new Friendship(3L, 2L, 4L), new Friendship(4L, 3L, 4L), new Friendship(5L, 2L, 5L),
+            new Friendship(6L, 3L, 6L), new Friendship(7L, 4L, 6L));
+
+    private final AtomicInteger rankings = new AtomicInteger();
+
+    private FriendRecommendationService createService(FriendshipRepository friendships, TaskExecutor taskExecutor) {
+        UserRepository users = (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByIds" -> USERS.stream().filter(user -> ((Collection<?>) args[0]).contains(user.getId())).toList();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        FriendshipRequestRepository requests = (FriendshipRequestRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{FriendshipRequestRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getFriendRequests" -> {
+                        rankings.incrementAndGet();
+                        yield List.of();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return new FriendRecommendationService(new CommunityIndex(friendships), users, requests, taskExecutor);
+    }
+
+    private static List<String> usernames(List<Recommendation> recommendations) {
+        return recommendations.stream()
+                .map(recommendation -> recommendation.user().getUsername() + ":" + recommendation.mutualFriends())
+                .toList();
+    }
+
+    @Test
+    void ranksFriendsOfFriendsByMutualFriends() {
+        FriendRecommendationService service = createService(TestFriendships.repositoryOf(FRIENDSHIPS), null);
+
+        assertEquals(List.of("user4:2", "user5:1", "user6:1"), usernames(service.getRecommendations(1L, 0, 10)));
+        assertEquals(List.of("user5:1"), usernames(service.getRecommendations(1L, 1, 1)));
+        assertEquals(3, service.getRecommendationCount(1L));
+        assertEquals(1, rankings.get());
+        assertTrue(service.getRecommendations(42L, 0, 10).isEmpty());
+    }
+
+    @Test
+    void pagesComeWithTheirTotalFromOneRanking() throws Exception {
+        try (TaskExecutor taskExecutor = new TaskExecutor()) {
+            FriendRecommendationService service = createService(TestFriendships.repositoryOf(FRIENDSHIPS), taskExecutor);
+
+            FriendRecommendationService.RecommendationPage page = service.getRecommendationPageAsync(1L, 2, 10).get();
+
+            assertEquals(List.of("user6:1"), usernames(page.recommendations()));
+            assertEquals(3, page.total());
+            assertEquals(1, rankings.get());
+        }
+    }
+
+    @Test
+    void invalidatingDoesNotWaitForARankingAndIsNotLost() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FriendshipRepository slowRepository = (FriendshipRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{FriendshipRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findAll")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    loading.countDown();
+                    release.await();
+                    return FRIENDSHIPS;
+                });
+        FriendRecommendationService service = createService(slowRepository, null);
+
+        Thread ranking = Thread.ofPlatform().start(() -> service.getRecommendations(1L, 0, 10));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        Thread invalidation = Thread.ofPlatform().start(() -> service.invalidate(1L));
+        invalidation.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(invalidation.isAlive(), "invalidate waited for the ranking");
+
+        release.countDown();
+        ranking.join();
+        assertEquals(1, rankings.get());
+        service.getRecommendations(1L, 0, 10);
+        assertEquals(2, rankings.get());
+        service.getRecommendations(1L, 0, 10);
+        assertEquals(2, rankings.get());
+    }
+}
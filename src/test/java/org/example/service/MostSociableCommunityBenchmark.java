@@ -0,0 +1,59 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures how {@link FriendshipService#getMostSociableCommunity()} speeds up with the analytics thread count,
+ * from 1 up to the number of available processors, on a graph with one community of a million users
+ * and 200k small ones, with the default settings. The million-user community has many users with a single
+ * friend on its rim, and its exact diameter would need a search from each of them, so it is bounded within
+ * {@link FriendshipService#DEFAULT_MAX_DIAMETER_SEARCHES} searches and the remaining error is printed.
+ */
+@Tag("benchmark")
+class MostSociableCommunityBenchmark {
+
+    @Test
+    void measuresTheSpeedupOfEveryThreadCount() {
+        CommunityIndex communityIndex = new CommunityIndex(TestFriendships.repositoryOf(
+                TestFriendships.hubAndSmallCommunities(1_000_000, 200_000, 7)));
+        communityIndex.getGraph();
+        int processors = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> threadCounts = new TreeSet<>(List.of(processors));
+        for (int threads = 1; threads < processors; threads *= 2) {
+            threadCounts.add(threads);
+        }
+
+        System.out.printf("%8s %10s %10s %8s%n", "threads", "ms", "speedup", "error");
+        double singleThreadMillis = 0;
+        List<Long> expected = null;
+        for (int threads : threadCounts) {
+            FriendshipService friendshipService = createService(communityIndex, threads);
+            friendshipService.getMostSociableCommunity();
+            friendshipService = createService(communityIndex, threads);
+
+            long start = System.nanoTime();
+            List<Long> community = friendshipService.getMostSociableCommunity();
+            double millis = (System.nanoTime() - start) / 1e6;
+
+            if (expected == null) {
+                expected = community;
+                singleThreadMillis = millis;
+            }
+            assertEquals(new TreeSet<>(expected), new TreeSet<>(community));
+            System.out.printf("%8d %10.1f %10.2f %8d%n", threads, millis, singleThreadMillis / millis,
+                    friendshipService.getMostSociableCommunityError());
+        }
+    }
+
+    private static FriendshipService createService(CommunityIndex communityIndex, int threads) {
+        FriendshipService friendshipService = new FriendshipService(null, null, null, null, communityIndex, null, null);
+        friendshipService.setAnalyticsParallelism(threads);
+        return friendshipService;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.service;
+
+import org.example.domain.Friendship;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MostSociableCommunityTest {
+
+    @Test
+    void findsTheCommunityWithTheLargestDiameterWhateverTheThreadCount() {
+        List<Friendship> friendships = TestFriendships.hubAndSmallCommunities(2_000, 500, 1);
+        friendships.add(new Friendship(100_000L, 50_000L, 50_001L));
+        for (long id = 50_001; id < 50_100; id++) {
+            friendships.add(new Friendship(id + 50_000, id, id + 1));
+        }
+        CommunityIndex communityIndex = new CommunityIndex(TestFriendships.repositoryOf(friendships));
+
+        for (int threads = 1; threads <= 4; threads++) {
+            FriendshipService friendshipService = new FriendshipService(null, null, null, null, communityIndex, null, null);
+            friendshipService.setAnalyticsParallelism(threads);
+            List<Long> community = friendshipService.getMostSociableCommunity();
+            assertEquals(101, community.size(), threads + " threads");
+            assertTrue(community.contains(50_000L) && community.contains(50_100L), threads + " threads");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.service;
+
+import org.example.domain.DuckResult;
+import org.example.domain.RaceEvent;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Times the results of races of up to 10k ducks and 1k lanes. Ducks sharing a resistance form the groups
+ * the feasibility check sorts, so the races are timed with few and with many distinct resistances.
+ */
+@Tag("benchmark")
+class RaceLaneAssignmentBenchmark {
+
+    @Test
+    void tenThousandDucksOnAThousandLanesTakeLessThanASecond() {
+        System.out.printf("%8s %8s %12s %10s %12s%n", "ducks", "lanes", "resistances", "ms", "duration s");
+        for (int[] size : new int[][]{{30, 10}, {1_000, 100}, {10_000, 1_000}}) {
+            for (int resistances : new int[]{10, size[0]}) {
+                RaceEvent race = TestRaces.race(size[0], size[1], resistances, size[0]);
+                long start = System.nanoTime();
+                List<DuckResult> results = TestRaces.results(race);
+                long nanos = System.nanoTime() - start;
+                RaceLaneAssignmentTest.assertValid(race, results);
+                double duration = results.stream().mapToDouble(DuckResult::getTime).max().orElseThrow();
+                System.out.printf("%8d %8d %12d %10.1f %12.3f%n", size[0], size[1], resistances, nanos / 1e6, duration);
+            }
+        }
+    }
+}
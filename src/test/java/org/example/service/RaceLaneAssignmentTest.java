@@ -0,0 +1,90 @@
+package org.example.service;
+
+import org.example.domain.Duck;
+import org.example.domain.DuckResult;
+import org.example.domain.RaceEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RaceLaneAssignmentTest {
+
+    @Test
+    void findsTheFastestAssignmentOfSmallRaces() {
+        for (long seed = 1; seed <= 500; seed++) {
+            int ducks = 1 + (int) (seed % 8);
+            int lanes = 1 + (int) (seed / 8 % Math.min(ducks, 4));
+            RaceEvent race = TestRaces.race(ducks, lanes, 1 + (int) (seed % 3), seed);
+
+            List<DuckResult> results = TestRaces.results(race);
+
+            assertValid(race, results);
+            double slowest = results.stream().mapToDouble(DuckResult::getTime).max().orElseThrow();
+            assertEquals(bruteForce(race), slowest, 1e-9, "seed " + seed);
+        }
+    }
+
+    @Test
+    void hasNoResultsWithFewerDucksThanLanes() {
+        assertTrue(TestRaces.results(TestRaces.race(2, 3, 2, 7)).isEmpty());
+    }
+
+    @Test
+    void assignsLargeRaces() {
+        RaceEvent race = TestRaces.race(2_000, 200, 20, 11);
+
+        assertValid(race, TestRaces.results(race));
+    }
+
+    /**
+     * Checks that every lane gets one result, in lane order, run by a different duck of the race, with
+     * resistances that never decrease from one lane to the next.
+     */
+    static void assertValid(RaceEvent race, List<DuckResult> results) {
+        List<Double> lanes = race.getLanes();
+        assertEquals(lanes.size(), results.size());
+        Set<Long> ducks = new HashSet<>();
+        double resistance = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < results.size(); i++) {
+            DuckResult result = results.get(i);
+            Duck duck = result.getDuck();
+            assertTrue(race.hasParticipant(duck.getId()));
+            assertTrue(ducks.add(duck.getId()), "duck " + duck.getId() + " runs twice");
+            assertTrue(duck.getResistance() >= resistance, "resistance decreases on lane " + (i + 1));
+            resistance = duck.getResistance();
+            assertEquals(lanes.get(i), result.getLaneDistance());
+            assertEquals(2 * lanes.get(i) / duck.getSpeed(), result.getTime(), 1e-9);
+        }
+    }
+
+    /**
+     * The fastest race over every ordered selection of ducks, as computed before the binary search.
+     */
+    private static double bruteForce(RaceEvent race) {
+        Duck[] ducks = race.getParticipants().stream().map(Duck.class::cast).toArray(Duck[]::new);
+        return bruteForce(ducks, race.getLanes(), 0, new boolean[ducks.length], Double.NEGATIVE_INFINITY, 0);
+    }
+
+    private static double bruteForce(Duck[] ducks, List<Double> lanes, int lane, boolean[] used,
+                                     double resistance, double slowest) {
+        if (lane == lanes.size()) {
+            return slowest;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < ducks.length; i++) {
+            if (!used[i] && ducks[i].getResistance() >= resistance) {
+                used[i] = true;
+                double time = 2 * lanes.get(lane) / ducks[i].getSpeed();
+                best = Math.min(best, bruteForce(ducks, lanes, lane + 1, used, ducks[i].getResistance(),
+                        Math.max(slowest, time)));
+                used[i] = false;
+            }
+        }
+        return best;
+    }
+}
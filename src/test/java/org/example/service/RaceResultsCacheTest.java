@@ -0,0 +1,175 @@
+package org.example.service;
+
+import org.example.domain.DuckResult;
+import org.example.domain.RaceEvent;
+import org.example.domain.Swimmer;
+import org.example.domain.SwimmingDuck;
+import org.example.domain.User;
+import org.example.repository.EventRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RaceResultsCacheTest {
+    private static final long SPARE_DUCK = 7;
+
+    private final RaceEvent race = TestRaces.race(6, 3, 2, 5);
+    private final String raceId = String.valueOf(race.getId());
+    private final Map<Long, User> users = new HashMap<>();
+    private final Map<Long, List<DuckResult>> stored = new HashMap<>();
+    private final EventRepository repository = TestRaces.repository(race, users, stored);
+
+    RaceResultsCacheTest() {
+        for (Swimmer participant : race.getParticipants()) {
+            users.put(((User) participant).getId(), (User) participant);
+        }
+        users.put(SPARE_DUCK, new SwimmingDuck(SPARE_DUCK, "Duck", "duck" + SPARE_DUCK, "duck7@ducks.org",
+                "password", 20.0, 10.0));
+    }
+
+    private EventService service(EventRepository eventRepository) {
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> users.get((Long) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return new EventService(eventRepository, userRepository, null, null, null, new EventBus());
+    }
+
+    /**
+     * Wraps {@link #repository} so that {@code write} runs when the service calls {@code method}: before the
+     * call is passed on, as if another thread changed the race right then.
+     */
+    private EventRepository writingDuring(String method, Runnable write) {
+        return (EventRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EventRepository.class}, (proxy, called, args) -> {
+                    if (called.getName().equals(method)) {
+                        write.run();
+                    }
+                    try {
+                        return called.invoke(repository, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Test
+    void servesTheResultsOfTheStartFromMemory() {
+        EventService service = service(repository);
+        service.start(raceId);
+        List<DuckResult> results = stored.get(race.getId());
+        assertNotNull(results);
+        String text = service.getResults(raceId).toString();
+
+        stored.clear();
+
+        assertEquals(text, service.getResults(raceId).toString());
+        assertTrue(stored.isEmpty(), "the results were computed again");
+    }
+
+    @Test
+    void servesTheStoredResultsAfterARestart() {
+        service(repository).start(raceId);
+        List<DuckResult> results = stored.get(race.getId());
+
+        EventService restarted = service(repository);
+        restarted.getResults(raceId);
+
+        assertSame(results, stored.get(race.getId()));
+    }
+
+    @Test
+    void addingAParticipantDiscardsTheResults() {
+        assertRecomputedAfter(service -> service.addParticipantsToEvent(raceId, String.valueOf(SPARE_DUCK)));
+        assertTrue(race.hasParticipant(SPARE_DUCK));
+    }
+
+    @Test
+    void removingAParticipantDiscardsTheResults() {
+        assertRecomputedAfter(service -> service.removeParticipantsFromEvent(raceId, "1"));
+        assertFalse(race.hasParticipant(1));
+    }
+
+    @Test
+    void removingAUserFromAllEventsDiscardsTheResults() {
+        race.addObserver(users.get(2L));
+        assertRecomputedAfter(service -> service.removeUserFromAllEvents("2"));
+        assertFalse(race.hasParticipant(2));
+        assertFalse(race.hasSubscriber(2));
+    }
+
+    @Test
+    void addingALaneDiscardsTheResults() {
+        assertRecomputedAfter(service -> service.addLaneToRaceEvent(raceId, "1000"));
+        assertEquals(4, race.getLanes().size());
+    }
+
+    @Test
+    void removingALaneDiscardsTheResults() {
+        assertRecomputedAfter(service -> service.removeLaneFromRaceEvent(raceId, "1"));
+        assertEquals(2, race.getLanes().size());
+    }
+
+    /**
+     * Starts the race, applies {@code write}, and checks that the results were removed from the repository
+     * and that the next request computes and stores results for the changed race instead of serving the old
+     * ones from memory.
+     */
+    private void assertRecomputedAfter(Consumer<EventService> write) {
+        EventService service = service(repository);
+        service.start(raceId);
+        assertNotNull(stored.get(race.getId()));
+
+        write.accept(service);
+
+        assertNull(stored.get(race.getId()));
+        service.getResults(raceId);
+        RaceLaneAssignmentTest.assertValid(race, stored.get(race.getId()));
+    }
+
+    @Test
+    void doesNotCacheResultsComputedWhileTheRaceChanged() {
+        EventService[] service = new EventService[1];
+        service[0] = service(writingDuring("updateStatusEvent", () -> service[0].addLaneToRaceEvent(raceId, "1000")));
+
+        service[0].start(raceId);
+
+        assertNull(stored.get(race.getId()));
+        service[0].getResults(raceId);
+        RaceLaneAssignmentTest.assertValid(race, stored.get(race.getId()));
+        assertEquals(4, stored.get(race.getId()).size());
+    }
+
+    @Test
+    void removesResultsStoredWhileTheRaceChanged() {
+        EventService[] service = new EventService[1];
+        boolean[] written = new boolean[1];
+        service[0] = service(writingDuring("saveRaceResults", () -> {
+            if (!written[0]) {
+                written[0] = true;
+                service[0].removeLaneFromRaceEvent(raceId, "1");
+            }
+        }));
+
+        service[0].start(raceId);
+
+        assertNull(stored.get(race.getId()));
+        service[0].getResults(raceId);
+        RaceLaneAssignmentTest.assertValid(race, stored.get(race.getId()));
+        assertEquals(2, stored.get(race.getId()).size());
+    }
+}
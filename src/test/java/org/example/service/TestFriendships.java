@@ -0,0 +1,61 @@
+package org.example.service;
+
+import org.example.domain.Friendship;
+import org.example.repository.FriendshipRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Friendship fixtures for the service tests: generated friendships and a repository serving them.
+ */
+final class TestFriendships {
+
+    private TestFriendships() {
+    }
+
+    /**
+     * Creates a repository whose {@code findAll} and {@code getWatermark} answer from the given list;
+     * every other method fails.
+     */
+    static FriendshipRepository repositoryOf(List<Friendship> friendships) {
+        return (FriendshipRepository) Proxy.newProxyInstance(TestFriendships.class.getClassLoader(),
+                new Class<?>[]{FriendshipRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> friendships;
+                    case "getWatermark" -> new FriendshipRepository.Watermark(friendships.size(),
+                            friendships.stream().mapToLong(Friendship::getId).max().orElse(0));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Generates one large community of {@code hubUsers} users grown by preferential attachment, so it has
+     * a few hubs like a social network, followed by {@code smallCommunities} chains of 2 to 8 users.
+     */
+    static List<Friendship> hubAndSmallCommunities(int hubUsers, int smallCommunities, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Friendship> friendships = new ArrayList<>();
+        long[] endpoints = new long[4 * hubUsers];
+        int endpointCount = 0;
+        long friendshipId = 1;
+        for (long id = 2; id <= hubUsers; id++) {
+            for (int k = 0; k < 2; k++) {
+                long friend = endpointCount == 0 ? 1 : endpoints[random.nextInt(endpointCount)];
+                friendships.add(new Friendship(friendshipId++, id, friend));
+                endpoints[endpointCount++] = id;
+                endpoints[endpointCount++] = friend;
+            }
+        }
+        long nextId = hubUsers + 1;
+        for (int c = 0; c < smallCommunities; c++) {
+            int length = 2 + random.nextInt(7);
+            for (int i = 1; i < length; i++) {
+                friendships.add(new Friendship(friendshipId++, nextId + i - 1, nextId + i));
+            }
+            nextId += length;
+        }
+        return friendships;
+    }
+}
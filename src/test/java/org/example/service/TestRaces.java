@@ -0,0 +1,87 @@
+package org.example.service;
+
+import org.example.domain.DuckResult;
+import org.example.domain.RaceEvent;
+import org.example.domain.Swimmer;
+import org.example.domain.SwimmingDuck;
+import org.example.domain.User;
+import org.example.repository.EventRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Race fixtures for the service tests: generated races and an event service computing their results.
+ */
+final class TestRaces {
+
+    private TestRaces() {
+    }
+
+    /**
+     * Creates a race with {@code ducks} swimming ducks and {@code lanes} lanes. Speeds and lane lengths are
+     * random; resistances are drawn from {@code resistances} distinct values, so ducks share them.
+     */
+    static RaceEvent race(int ducks, int lanes, int resistances, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        RaceEvent race = new RaceEvent(1L, "RaceEvent", "race" + seed);
+        for (long id = 1; id <= ducks; id++) {
+            race.addParticipant(new SwimmingDuck(id, "Duck", "duck" + id, "duck" + id + "@ducks.org", "password",
+                    1.0 + random.nextInt(100) / 10.0, 1.0 + random.nextInt(resistances)));
+        }
+        for (int i = 0; i < lanes; i++) {
+            race.addLane(10.0 + random.nextInt(900) / 10.0);
+        }
+        return race;
+    }
+
+    /**
+     * Computes the results of a race with an {@link EventService} whose repository only knows that race.
+     *
+     * @return the results the service stored, one per lane
+     */
+    static List<DuckResult> results(RaceEvent race) {
+        Map<Long, List<DuckResult>> stored = new HashMap<>();
+        new EventService(repository(race, Map.of(), stored), null, null, null, null, null)
+                .getResults(String.valueOf(race.getId()));
+        return stored.get(race.getId());
+    }
+
+    /**
+     * An event repository that only knows {@code race}. Participants, spectators and lanes are changed on the
+     * race itself, the participants being looked up in {@code users}, and race results are kept in
+     * {@code stored}. The other operations are not supported.
+     */
+    static EventRepository repository(RaceEvent race, Map<Long, ? extends User> users,
+                                      Map<Long, List<DuckResult>> stored) {
+        return (EventRepository) Proxy.newProxyInstance(TestRaces.class.getClassLoader(),
+                new Class<?>[]{EventRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> race.getId().equals(args[0]) ? race : null;
+                    case "findAll" -> List.of(race);
+                    case "updateStatusEvent" -> null;
+                    case "addParticipantToEvent" -> {
+                        race.addParticipant((Swimmer) users.get((Long) args[1]));
+                        yield null;
+                    }
+                    case "removeSpectatorFromEvent" -> race.removeSubscriber((long) (Long) args[1]);
+                    case "removeParticipantFromEvent" -> race.removeParticipant((long) (Long) args[1]);
+                    case "addLaneToEvent" -> {
+                        race.addLane((Double) args[1]);
+                        yield null;
+                    }
+                    case "removeLaneFromEvent" -> race.getLanes().remove((int) (long) (Long) args[1]);
+                    case "findRaceResults" -> stored.get((Long) args[0]);
+                    case "saveRaceResults" -> {
+                        @SuppressWarnings("unchecked")
+                        List<DuckResult> results = (List<DuckResult>) args[1];
+                        stored.put((Long) args[0], results);
+                        yield null;
+                    }
+                    case "removeRaceResults" -> stored.remove((Long) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
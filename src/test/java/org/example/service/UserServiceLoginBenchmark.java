@@ -0,0 +1,52 @@
+package org.example.service;
+
+import org.example.domain.User;
+import org.example.repository.FakeUserDataSource;
+import org.example.repository.UserDataBaseRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Measures login latency at 10k and 1M users, comparing the keyed lookup of {@link UserService#login}
+ * with the previous approach of scanning every user and hashing the password once per user.
+ * Every query waits for a simulated round trip of 50 microseconds.
+ */
+@Tag("benchmark")
+class UserServiceLoginBenchmark {
+    private static final long ROUND_TRIP_NANOS = 50_000;
+    private static final int LOGINS = 1_000;
+
+    @Test
+    void loginLatencyDoesNotGrowWithTheNumberOfUsers() {
+        System.out.printf("%10s %14s %14s%n", "users", "ms scan", "ms lookup");
+        for (int count : new int[]{10_000, 1_000_000}) {
+            FakeUserDataSource dataSource = new FakeUserDataSource(FakeUserDataSource.createUsers(count, UserService.hashPassword("secret")), ROUND_TRIP_NANOS);
+            UserDataBaseRepository repository = new UserDataBaseRepository(dataSource);
+            UserService userService = new UserService(repository, null, null, null);
+            String username = "user" + count;
+
+            long start = System.nanoTime();
+            User scanned = null;
+            for (User user : repository.findAll()) {
+                if (user.getUsername().equals(username) && user.getPassword().equals(UserService.hashPassword("secret"))) {
+                    scanned = user;
+                }
+            }
+            long scanNanos = System.nanoTime() - start;
+            assertNotNull(scanned);
+
+            for (int i = 0; i < LOGINS; i++) {
+                userService.login("user" + (1 + i * 7 % count), "secret");
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < LOGINS; i++) {
+                assertNotNull(userService.login("user" + (1 + i * 13 % count), "secret"));
+            }
+            long lookupNanos = (System.nanoTime() - start) / LOGINS;
+
+            System.out.printf("%10d %14.2f %14.3f%n", count, scanNanos / 1e6, lookupNanos / 1e6);
+        }
+    }
+}
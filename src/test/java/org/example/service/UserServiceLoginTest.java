@@ -0,0 +1,46 @@
+package org.example.service;
+
+import org.example.domain.User;
+import org.example.repository.FakeUserDataSource;
+import org.example.repository.UserDataBaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserServiceLoginTest {
+    private FakeUserDataSource dataSource;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new FakeUserDataSource(FakeUserDataSource.createUsers(1_000, UserService.hashPassword("secret")), 0);
+        userService = new UserService(new UserDataBaseRepository(dataSource), null, null, null);
+        dataSource.resetRoundTrips();
+    }
+
+    @Test
+    void loginReturnsTheUserWithTheGivenUsernameAndPassword() {
+        User user = userService.login("user42", "secret");
+        assertNotNull(user);
+        assertEquals("user42", user.getUsername());
+    }
+
+    @Test
+    void loginRejectsAWrongPassword() {
+        assertNull(userService.login("user42", "Secret"));
+    }
+
+    @Test
+    void loginRejectsAnUnknownUsername() {
+        assertNull(userService.login("nobody", "secret"));
+    }
+
+    @Test
+    void loginLooksTheUserUpWithASingleQuery() {
+        userService.login("user999", "secret");
+        assertEquals(1, dataSource.getRoundTrips());
+    }
+}